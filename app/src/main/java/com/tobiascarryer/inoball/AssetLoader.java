@@ -0,0 +1,110 @@
+package com.tobiascarryer.inoball;
+
+import android.graphics.Bitmap;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes and scales sprites on background threads so neither the UI thread nor the
+ * render thread waits for a decode. Every finished sprite is handed to its Target on the
+ * loader thread, targets publish it to the render thread through a volatile field.
+ *
+ * The time each decode took is logged so slow startups can be tracked down.
+ */
+
+final class AssetLoader {
+
+    /**
+     * Receives a sprite once it has been decoded.
+     */
+    interface Target {
+        /**
+         * Pre: Called on a loader thread.
+         * @param sprite The decoded sprite. Never null.
+         */
+        void onSpriteLoaded(Bitmap sprite);
+    }
+
+    private static final String TAG = "AssetLoader";
+
+    //Loader threads that have nothing to do are stopped after this long
+    private static final long KEEP_ALIVE_SECONDS = 5;
+
+    private final SpriteCache mSpriteCache;
+    private final ThreadPoolExecutor mExecutor;
+    private final AtomicInteger mPending = new AtomicInteger();
+    private volatile long mBatchStartNanos;
+
+    /**
+     * @param spriteCache The cache sprites are decoded into. Cannot be null.
+     */
+    AssetLoader(SpriteCache spriteCache) {
+        mSpriteCache = spriteCache;
+
+        final int threads = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+        mExecutor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        return new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                                runnable.run();
+                            }
+                        }, TAG + " #" + mCount.incrementAndGet());
+                    }
+                });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Post: The sprite will be decoded in the background and given to target, unless decoding fails.
+     * @param key The sprite to load. Cannot be null.
+     * @param target Where to send the sprite. Cannot be null.
+     */
+    final void load(final SpriteCache.Key key, final Target target) {
+        if( mPending.getAndIncrement() == 0 ) {
+            mBatchStartNanos = System.nanoTime();
+        }
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long start = System.nanoTime();
+                try {
+                    target.onSpriteLoaded(mSpriteCache.obtain(key));
+                    Log.i(TAG, "Decoded sprite " + key.resId + " in " + millisecondsSince(start) + "ms");
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Could not decode sprite " + key.resId, e);
+                } finally {
+                    if( mPending.decrementAndGet() == 0 ) {
+                        Log.i(TAG, "All sprites loaded " + millisecondsSince(mBatchStartNanos) + "ms after the first request");
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return The number of sprites requested but not loaded yet.
+     */
+    final int getPendingCount() {
+        return mPending.get();
+    }
+
+    /**
+     * @return The milliseconds that passed since the given System.nanoTime() timestamp.
+     */
+    private static double millisecondsSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000000.0;
+    }
+}
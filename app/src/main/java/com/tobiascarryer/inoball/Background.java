@@ -2,34 +2,137 @@ package com.tobiascarryer.inoball;
 
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 
 /**
  * Created by TobiasC on 2017-04-17.
+ *
+ * The background tile repeated across the whole screen. The tiles are drawn once into a
+ * screen sized bitmap so every frame only has to copy a single image.
+ *
+ * The tile is loaded in the background. Until it arrives the screen is filled with a
+ * plain color.
  */
 
-class Background implements DrawableObject {
+class Background implements DrawableObject, AssetLoader.Target {
+
+    static final SpriteCache.Key TILE = SpriteCache.key(R.drawable.bg);
+
+    private static final int PLACEHOLDER_COLOR = Color.BLACK;
 
     private Bitmap tile;
     private int mScreenWidth = 0;
     private int mScreenHeight = 0;
 
-    Background(Bitmap res, int screenWidth, int screenHeight ) {
-        tile = res;
+    //Written by whichever thread composed it last, read by the render thread
+    private volatile Bitmap mComposed;
+
+    //Only used on the render thread. Without detail the plain color is drawn even once the tile has loaded.
+    private boolean mDetailed = true;
+    //What the last frame showed, null for the plain color. Nothing is on screen before the first frame.
+    private Bitmap mDrawnComposed;
+    private boolean mDrawn = false;
+
+    Background(int screenWidth, int screenHeight ) {
+        resize(screenWidth, screenHeight);
+    }
+
+    /**
+     * Pre: Called on a loader thread.
+     * Post: The background is composed from the tile.
+     */
+    @Override
+    public synchronized void onSpriteLoaded(Bitmap sprite) {
+        tile = sprite;
+        compose();
+    }
+
+    /**
+     * Pre: screenWidth and screenHeight are positive.
+     * Post: The background covers a screen of the given size once the tile has loaded.
+     */
+    final synchronized void resize(int screenWidth, int screenHeight) {
+        if( screenWidth == mScreenWidth && screenHeight == mScreenHeight ) {
+            return;
+        }
+
         mScreenWidth = screenWidth;
         mScreenHeight = screenHeight;
+        compose();
     }
 
     /**
-     * Pre: Canvas is being displayed
-     * @param canvas The game's canvas. Cannot be null.
+     * Post: mComposed is a bitmap the size of the screen with the tile repeated across it,
+     *       or it is unchanged if the tile has not loaded yet.
      */
-    public void draw(Canvas canvas) {
-        assert canvas != null;
+    private void compose() {
+        if( tile == null ) {
+            return;
+        }
+
+        Bitmap composed = Bitmap.createBitmap(mScreenWidth, mScreenHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(composed);
 
         for( int x = 0; x < mScreenWidth; x += tile.getWidth() ) {
             for( int y = 0; y < mScreenHeight; y += tile.getHeight() ) {
                 canvas.drawBitmap(tile, x, y, null);
             }
         }
+
+        //The old bitmap is not recycled because the render thread may still be drawing it
+        mComposed = composed;
+    }
+
+    /**
+     * Pre: Called on the render thread.
+     * Post: The tiles are drawn if detailed is true, a plain color is drawn otherwise. Filling
+     *       the screen with a color is cheaper than copying a bitmap across it.
+     */
+    final void setDetailed(boolean detailed) {
+        mDetailed = detailed;
+    }
+
+    /**
+     * Pre: Canvas is being displayed
+     * @param canvas The game's canvas. Cannot be null.
+     */
+    public void draw(Canvas canvas) {
+        assert canvas != null;
+
+        final Bitmap shown = getShown();
+        if( shown != null ) {
+            canvas.drawBitmap(shown, 0, 0, null);
+        } else {
+            canvas.drawColor(PLACEHOLDER_COLOR);
+        }
+        setDrawn(shown);
+    }
+
+    /**
+     * @return The composed background if it has loaded and detail is on, null if the plain color is shown.
+     */
+    private Bitmap getShown() {
+        return mDetailed ? mComposed : null;
+    }
+
+    /**
+     * Pre: Called on the render thread.
+     * Post: reportDirtyRegion() compares what would be shown against shown until the next draw.
+     * @param shown What was drawn, null for the plain color.
+     */
+    final void setDrawn(Bitmap shown) {
+        mDrawnComposed = shown;
+        mDrawn = true;
+    }
+
+    /**
+     * Post: The whole screen is dirty until something has been drawn, and afterwards whenever
+     *       what would be shown changed: the tile loaded, the screen was resized or the detail
+     *       changed with the tile loaded. A tile that never loads leaves the plain color clean.
+     */
+    public void reportDirtyRegion(DirtyRegion region) {
+        if( !mDrawn || getShown() != mDrawnComposed ) {
+            region.union(0, 0, mScreenWidth, mScreenHeight);
+        }
     }
 }
@@ -1,230 +1,107 @@
 package com.tobiascarryer.inoball;
 
-import android.app.Activity;
-import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.util.Log;
 
-import java.lang.ref.WeakReference;
-import java.util.Random;
-
 /**
  * Created by Tobias Carryer on 2017-04-17.
  * A ball that jumps up and horizontally in a random direction every time it is tapped.
  * The ball ends the game if it falls off the bottom edge of the game panel.
+ * The movement itself is simulated by BallPhysics, this class draws it and ties it to the score.
  */
 
-class Ball implements DrawableObject {
-    private int mGameX = 0;
-    private int mGameY = 0;
+class Ball implements DrawableObject, AssetLoader.Target {
+    //A quarter of a second of positions at 60 ticks per second
+    private static final int HISTORY_TICKS = 16;
 
-    private WeakReference<Bitmap> mBallImage;
-    private int mRadius;
-    private Resources mResources;
+    private final BallPhysics mPhysics;
 
-    //Velocities are measured in game pixels per frame
-    private double mXVelocity, mYVelocity, mHorizontalDeceleration, mGravity;
-    private double mMinXVelocity, mMinYVelocity;
-    private double mMaxXVelocity, mMaxYVelocity, mMaxHorizontalDeceleration;
+    //Where the ball was after each recent tick, to check taps against what was on screen
+    private final PositionHistory mHistory = new PositionHistory(HISTORY_TICKS);
 
-    /**
-     * Create a new ball object at position (0,0)
-     *
-     * @param resources
-     * @param radius The radius of the ball in pixels
-     * @param fps The number of times ball.update() is called in a second.
-     */
-    Ball( Resources resources, int radius, int fps ) {
-        mResources = resources;
-        mRadius = radius;
+    //Where the ball will be drawn this frame and where it was drawn last frame, with sub-pixel precision
+    private float mDrawX = 0;
+    private float mDrawY = 0;
+    private float mDrawnX = 0;
+    private float mDrawnY = 0;
+    private boolean mDrawn = false;
 
-        mBallImage = new WeakReference<>(createScaledBall());
-
-        setVelocityUpperBounds(fps);
-        setVelocityLowerBounds();
-    }
+    //Set by the asset loader, null until the image has been decoded
+    private volatile Bitmap mBallImage;
 
     /**
-     * Post: mMaxXVelocity, mMaxYVelocity, and mMaxHorizontalDeceleration are set to non-zero values.
-     * @param fps The number of times ball.update() is called in a second.
+     * @param physics The simulation that moves the ball. Cannot be null.
      */
-    private void setVelocityUpperBounds(int fps) {
-        /* This formula is a rearranged version of the area equation for a velocity over time graph.
-        velocity * time / 2 = the distance travelled. Rearranged to: velocity = 2 * distance travelled / time
-        In this case, the distance travelled to the edge of the screen and back is known
-        (GamePanel.WIDTH)-getRadius() and an arbitrary number of seconds is picked. */
-        final int secondsToReachEdge = fps/2; //Half a second
-        mMaxXVelocity = 2*((GamePanel.WIDTH)-getRadius())/secondsToReachEdge;
-
-        //Slope of the line in the velocity over time diagram.
-        mMaxHorizontalDeceleration = mMaxXVelocity / secondsToReachEdge;
-
-        assert(mMaxXVelocity > 0);
-
-        /* This formula is like the max X velocity formula. The distance travelled to the top of
-        the screen is the height of the ball and an arbitrary number of seconds is picked. */
-        final int secondsToReachTop = (int)(1.1 * fps);
-        mMaxYVelocity = 2*(GamePanel.HEIGHT-(getRadius()*2))/secondsToReachTop;
-
-        assert(mMaxYVelocity > 0);
+    Ball( BallPhysics physics ) {
+        mPhysics = physics;
     }
 
     /**
-     * Post: mMinXVelocity and mMinYVelocity are set to a percentage of the upper bounds.
+     * @return The simulation that moves the ball.
      */
-    private void setVelocityLowerBounds() {
-        mMinXVelocity = mMaxXVelocity * 0.75;
-        mMinYVelocity = mMaxYVelocity * 0.75;
+    final BallPhysics getPhysics() {
+        return mPhysics;
     }
 
     /**
-     * Pre: GamePanel WIDTH and HEIGHT are initialized.
      * Post: Ball is at the bottom center of the game screen. Velocities are zero.
      */
     final void resetToStartingPosition() {
-        setGameX((GamePanel.WIDTH/2)-getRadius());
-        setGameY(GamePanel.HEIGHT-(getRadius()*2));
-        mXVelocity = 0;
-        mYVelocity = 0;
-        mHorizontalDeceleration = 0;
-        mGravity = 0;
+        mPhysics.resetToStartingPosition();
+        mHistory.clear();
     }
 
     /**
-     * @param newX the Ball's new X position
-     * Post: getGameX() returns newX
-     */
-    final void setGameX( int newX ) {
-        mGameX = newX;
-    }
-
-    /**
-     * @param newY the Ball's new Y position
-     * Post: getGameY() returns newY
-     */
-    final void setGameY( int newY ) {
-        mGameY = newY;
-    }
-
-    /**
-     * Pre: The Ball has an X position within the game panel
-     * @return The X position within the game panel.
-     */
-    final int getGameX() {
-        return mGameX;
-    }
-
-    /**
-     * Pre: The Ball has an Y position within the game panel
-     * @return The Y position within the game panel.
-     */
-    final int getGameY() {
-        return mGameY;
-    }
-
-    /**
-     * Pre: The Ball has a width.
      * @return Half the ball's width / the radius of the ball.
      */
     final int getRadius() {
-        return mRadius;
+        return mPhysics.getRadius();
     }
 
     /**
-     * Pre: The Ball has an X position.
-     * @return The center of the ball along the X axis.
+     * @param timeNanos When the point was touched, on the same clock as the tick times given to update().
+     * @return True if the point was inside the ball's circle at that time. Times from before the
+     *         remembered ticks use the oldest position remembered.
      */
-    final int getCenterX() {
-        return getGameX()+getRadius();
-    }
-
-    /**
-     * Pre: The Ball has a Y position.
-     * @return The center of the ball along the Y axis.
-     */
-    final int getCenterY() {
-        return getGameY()+getRadius();
+    final boolean containedAt(long timeNanos, int x, int y) {
+        if( mHistory.size() == 0 ) {
+            return mPhysics.contains(x, y);
+        }
+        return mPhysics.containsAt(x, y, mHistory.getXAt(timeNanos), mHistory.getYAt(timeNanos));
     }
 
     /**
-     * Pre: scoreManager is not null. The ball is moving downwards.
-     * Post: The ball is moving in a random direction and random speed upwards.
-     * @param fps The number of times ball.update() is called in a second.
+     * Pre: scoreManager is not null.
+     * Post: If the ball was moving downwards, it is moving in a random direction and random
+     *       speed upwards and the score went up.
+     * @return True if the ball jumped.
      */
-    final void wasTapped(ScoreManager scoreManager, int fps, Activity activity) {
+    final boolean wasTapped(ScoreManager scoreManager) {
         if( scoreManager == null ) {
             Log.e("ERROR", "scoreManager was unexpectedly null.");
-        } else if( mYVelocity >= 0 ){
-            scoreManager.increaseScore(activity);
-            randomizeVelocity(fps);
-        }
-    }
-
-    /**
-     * Post: Horizontal and vertical velocities are randomized within their limits.
-     *       Horizontal deceleration and gravity are randomized to non-zero values.
-     * @param fps The number of times ball.update() is called in a second.
-     */
-    final void randomizeVelocity(int fps) {
-        //Randomize magnitude
-        mXVelocity = (new Random().nextDouble() * (mMaxXVelocity - mMinXVelocity)) + mMinXVelocity;
-        mYVelocity = -((new Random().nextDouble() * (mMaxYVelocity - mMinYVelocity)) + mMinYVelocity); //Negative velocity = up
-
-        //Randomize direction
-        if( new Random().nextBoolean() ) {
-            mXVelocity = -mXVelocity;
+        } else if( mPhysics.tap() ){
+            scoreManager.increaseScore();
+            return true;
         }
-
-        //Randomize deceleration and gravity
-        mHorizontalDeceleration = new Random().nextDouble() * mMaxHorizontalDeceleration;
-
-        int minSecondsToFall = 2 * fps;
-        minSecondsToFall *= Math.random() + 1; //Can increase the seconds by nearly 100%
-        mGravity = Math.abs(mYVelocity / minSecondsToFall);
+        return false;
     }
 
     /**
      * Pre: A frame has passed in the game.
      * Post: The ball has changed positions depending on its velocity. The game has ended if
      * the ball fell off the bottom of the screen.
+     * @param tickTime The time the new position stands for, see GameLoop.Game.update().
+     * @return True if the game ended.
      */
-    final void update(ScoreManager scoreManager) {
-        final int ballDiameter = getRadius()*2;
-
-        mGameX += mXVelocity;
-        mGameY += mYVelocity;
-
-        if( mXVelocity > 0 ) {
-            mXVelocity -= mHorizontalDeceleration;
-            if( mXVelocity < 0 )
-                mXVelocity = 0;
-        } else if( mXVelocity < 0 ) {
-            mXVelocity += mHorizontalDeceleration;
-            if( mXVelocity > 0 )
-                mXVelocity = 0;
-        }
-
-        //Stop ball from moving out of the screen horizontally
-        if( getGameX() < 0 ) {
-            setGameX(0);
-            mXVelocity = -mXVelocity;
-        } else if ( getGameX()+ballDiameter > GamePanel.WIDTH ) {
-            setGameX(GamePanel.WIDTH-ballDiameter);
-            mXVelocity = -mXVelocity;
-        }
-
-        //Prevent ball from going to far above the screen
-        if( getGameY() < -ballDiameter*2 ) {
-            mYVelocity = mGravity; //If this was 0, it would get stuck
-        }
-
-        //Game is over is ball falls off the bottom of the screen
-        mYVelocity += mGravity;
-        mGravity *= 1.07;
-        if( scoreManager != null && mGameY > GamePanel.HEIGHT )
+    final boolean update(ScoreManager scoreManager, long tickTime) {
+        final boolean fell = mPhysics.update();
+        mHistory.record(tickTime, mPhysics.getGameX(), mPhysics.getGameY());
+        if( fell && scoreManager != null ) {
             gameOver(scoreManager);
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -241,29 +118,75 @@ class Ball implements DrawableObject {
     }
 
     /**
-     * Pre: Canvas is being displayed
+     * Post: The next call to draw() draws the ball between its previous and its current position.
+     * @param interpolation How far between the previous and the current tick the frame is.
+     *                      0 draws the ball where it was before the last update, 1 where it is now.
+     */
+    final void interpolate(double interpolation) {
+        final double previousX = mPhysics.getPreviousGameX();
+        final double previousY = mPhysics.getPreviousGameY();
+        mDrawX = (float) (previousX + (mPhysics.getGameX() - previousX) * interpolation);
+        mDrawY = (float) (previousY + (mPhysics.getGameY() - previousY) * interpolation);
+    }
+
+    /**
+     * Post: region covers the square the ball was last drawn in and the square it will be drawn in,
+     *       rounded outwards to whole pixels.
+     */
+    public void reportDirtyRegion(DirtyRegion region) {
+        final int diameter = getRadius()*2;
+        if( mDrawn && mDrawnX == mDrawX && mDrawnY == mDrawY ) {
+            return;
+        }
+
+        if( mDrawn ) {
+            unionSquare(region, mDrawnX, mDrawnY, diameter);
+        }
+        unionSquare(region, mDrawX, mDrawY, diameter);
+    }
+
+    /**
+     * Post: region covers the square with its top left corner at x, y, rounded outwards to whole pixels.
+     */
+    static void unionSquare(DirtyRegion region, float x, float y, int size) {
+        region.union((int) Math.floor(x), (int) Math.floor(y),
+                (int) Math.ceil(x + size), (int) Math.ceil(y + size));
+    }
+
+    /**
+     * Pre: Canvas is being displayed. interpolate() has been called for this frame.
      * @param canvas The game's canvas. Cannot be null.
      */
     public void draw(Canvas canvas) {
         assert canvas != null;
 
-        if( mBallImage.get() != null ) {
-            canvas.drawBitmap(mBallImage.get(), getGameX(), getGameY(), null);
-        } else {
-            Log.i("WeakReference", "Recreated scaled ball image");
-            mBallImage = new WeakReference<>(createScaledBall());
+        final Bitmap ballImage = mBallImage;
+        if( ballImage == null ) {
+            //Still loading, the ball appears as soon as its image is ready
+            return;
         }
+
+        canvas.drawBitmap(ballImage, mDrawX, mDrawY, null);
+        mDrawnX = mDrawX;
+        mDrawnY = mDrawY;
+        mDrawn = true;
     }
 
     /**
-     * Pre: There is a drawable named "ball", mResources is not null, radius is positive.
-     * @return A Bitmap scaled to the radius specified.
+     * Pre: There is a drawable named "ball", radius is positive.
+     * @return The key of the ball's image scaled to the radius specified.
      */
-    Bitmap createScaledBall() {
-        assert  mResources != null;
-
-        Bitmap originalBallImage = BitmapFactory.decodeResource(mResources, R.drawable.ball);
+    final SpriteCache.Key getSpriteKey() {
         int newDim = getRadius()*2;
-        return Bitmap.createScaledBitmap(originalBallImage, newDim, newDim, true );
+        return SpriteCache.key(R.drawable.ball, newDim, newDim);
+    }
+
+    /**
+     * Pre: Called on a loader thread.
+     * Post: The ball is drawn with the image from the next frame on.
+     */
+    @Override
+    public void onSpriteLoaded(Bitmap sprite) {
+        mBallImage = sprite;
     }
 }
@@ -0,0 +1,101 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * How fast a ball may move in a world of a given size. Shared by BallPhysics and BallSystem
+ * so one ball and many balls jump the same way.
+ */
+
+final class BallLimits {
+
+    //How much faster the ball falls every tick
+    static final double GRAVITY_GROWTH = 1.07;
+
+    /**
+     * The numbers that decide how the game feels. The game plays with DEFAULT, the difficulty
+     * tuner plays with others to see how they change the scores.
+     */
+    static final class Tuning {
+        static final Tuning DEFAULT = new Tuning(0.5, 1.1, 0.75, 2, GRAVITY_GROWTH);
+
+        //How long the fastest jump takes to cross the world and come back
+        final double secondsToReachEdge;
+        //How long the fastest jump takes to reach the top of the world
+        final double secondsToReachTop;
+        //The slowest jump as a fraction of the fastest
+        final double minVelocityFactor;
+        //The least time a jump takes to stop rising, before it is randomly made up to twice as long
+        final double secondsToFall;
+        //How much faster the ball falls every tick
+        final double gravityGrowth;
+
+        Tuning(double secondsToReachEdge, double secondsToReachTop, double minVelocityFactor,
+               double secondsToFall, double gravityGrowth) {
+            assert secondsToReachEdge > 0 && secondsToReachTop > 0 && secondsToFall > 0;
+            assert minVelocityFactor >= 0 && minVelocityFactor <= 1;
+            assert gravityGrowth >= 1;
+
+            this.secondsToReachEdge = secondsToReachEdge;
+            this.secondsToReachTop = secondsToReachTop;
+            this.minVelocityFactor = minVelocityFactor;
+            this.secondsToFall = secondsToFall;
+            this.gravityGrowth = gravityGrowth;
+        }
+
+        @Override
+        public String toString() {
+            return "edge=" + secondsToReachEdge + "s top=" + secondsToReachTop + "s min=" + minVelocityFactor
+                    + " fall=" + secondsToFall + "s gravity=" + gravityGrowth;
+        }
+    }
+
+    final int fps;
+    final double maxXVelocity, maxYVelocity, maxHorizontalDeceleration;
+    final double minXVelocity, minYVelocity;
+    //The least number of ticks a jump takes to stop rising
+    final int minTicksToFall;
+    final double gravityGrowth;
+
+    /**
+     * Post: The upper bounds are non-zero and the lower bounds are a percentage of them.
+     * @param worldWidth The width of the world the ball moves in.
+     * @param worldHeight The height of the world the ball moves in.
+     * @param radius The radius of the ball in the same units as the world.
+     * @param fps The number of times the ball is updated in a second.
+     */
+    BallLimits( int worldWidth, int worldHeight, int radius, int fps ) {
+        this(worldWidth, worldHeight, radius, fps, Tuning.DEFAULT);
+    }
+
+    /**
+     * Post: The upper bounds are non-zero and the lower bounds are a percentage of them.
+     * @param tuning The numbers that decide how the game feels. Cannot be null.
+     */
+    BallLimits( int worldWidth, int worldHeight, int radius, int fps, Tuning tuning ) {
+        this.fps = fps;
+
+        /* This formula is a rearranged version of the area equation for a velocity over time graph.
+        velocity * time / 2 = the distance travelled. Rearranged to: velocity = 2 * distance travelled / time
+        In this case, the distance travelled to the edge of the screen and back is known
+        (worldWidth)-radius and an arbitrary number of seconds is picked. */
+        final int secondsToReachEdge = (int)(tuning.secondsToReachEdge * fps); //Measured in ticks
+        maxXVelocity = 2*((worldWidth)-radius)/secondsToReachEdge;
+
+        //Slope of the line in the velocity over time diagram.
+        maxHorizontalDeceleration = maxXVelocity / secondsToReachEdge;
+
+        assert(maxXVelocity > 0);
+
+        /* This formula is like the max X velocity formula. The distance travelled to the top of
+        the screen is the height of the ball and an arbitrary number of seconds is picked. */
+        final int secondsToReachTop = (int)(tuning.secondsToReachTop * fps);
+        maxYVelocity = 2*(worldHeight-(radius*2))/secondsToReachTop;
+
+        assert(maxYVelocity > 0);
+
+        minXVelocity = maxXVelocity * tuning.minVelocityFactor;
+        minYVelocity = maxYVelocity * tuning.minVelocityFactor;
+
+        minTicksToFall = (int)(tuning.secondsToFall * fps);
+        gravityGrowth = tuning.gravityGrowth;
+    }
+}
@@ -0,0 +1,287 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * The movement of a ball that jumps up and horizontally in a random direction every time it
+ * is tapped, bounces off the sides of the world and falls off the bottom.
+ *
+ * This is plain Java with no Android dependencies. The size of the world is passed in
+ * so the simulation can run headless, for example in unit tests and benchmarks.
+ */
+
+final class BallPhysics {
+    private final int mWorldWidth;
+    private final int mWorldHeight;
+    private final int mRadius;
+    private final BallLimits mLimits;
+    private final GameRandom mRandom;
+
+    /* Positions keep their fractions so slow movement near the top of a jump adds up instead
+    of being truncated away every tick. */
+    private double mGameX = 0;
+    private double mGameY = 0;
+
+    //Position before the last update, used to draw the ball between two ticks
+    private double mPreviousGameX = 0;
+    private double mPreviousGameY = 0;
+
+    //Velocities are measured in game pixels per frame
+    private double mXVelocity, mYVelocity, mHorizontalDeceleration, mGravity;
+
+    /**
+     * Create a new ball at position (0,0)
+     *
+     * @param worldWidth The width of the world the ball moves in.
+     * @param worldHeight The height of the world the ball moves in.
+     * @param radius The radius of the ball in the same units as the world.
+     * @param fps The number of times update() is called in a second.
+     */
+    BallPhysics( int worldWidth, int worldHeight, int radius, int fps ) {
+        this(worldWidth, worldHeight, radius, fps, new GameRandom());
+    }
+
+    /**
+     * Create a new ball at position (0,0)
+     *
+     * @param worldWidth The width of the world the ball moves in.
+     * @param worldHeight The height of the world the ball moves in.
+     * @param radius The radius of the ball in the same units as the world.
+     * @param fps The number of times update() is called in a second.
+     * @param random Decides how the ball jumps. The same seed gives the same jumps. Cannot be null.
+     */
+    BallPhysics( int worldWidth, int worldHeight, int radius, int fps, GameRandom random ) {
+        this(worldWidth, worldHeight, radius, fps, random, BallLimits.Tuning.DEFAULT);
+    }
+
+    /**
+     * Create a new ball at position (0,0) that jumps and falls the way tuning says.
+     *
+     * @param random Decides how the ball jumps. The same seed gives the same jumps. Cannot be null.
+     * @param tuning The numbers that decide how the game feels. Cannot be null.
+     */
+    BallPhysics( int worldWidth, int worldHeight, int radius, int fps, GameRandom random, BallLimits.Tuning tuning ) {
+        mWorldWidth = worldWidth;
+        mWorldHeight = worldHeight;
+        mRadius = radius;
+        mRandom = random;
+
+        mLimits = new BallLimits(worldWidth, worldHeight, radius, fps, tuning);
+    }
+
+    /**
+     * Post: Ball is at the bottom center of the world. Velocities are zero.
+     */
+    final void resetToStartingPosition() {
+        setGameX((mWorldWidth/2)-getRadius());
+        setGameY(mWorldHeight-(getRadius()*2));
+        //Nothing to draw between, the ball starts still
+        mPreviousGameX = getGameX();
+        mPreviousGameY = getGameY();
+        mXVelocity = 0;
+        mYVelocity = 0;
+        mHorizontalDeceleration = 0;
+        mGravity = 0;
+    }
+
+    /**
+     * @param newX the Ball's new X position
+     * Post: getGameX() returns newX
+     */
+    final void setGameX( double newX ) {
+        mGameX = newX;
+    }
+
+    /**
+     * @param newY the Ball's new Y position
+     * Post: getGameY() returns newY
+     */
+    final void setGameY( double newY ) {
+        mGameY = newY;
+    }
+
+    /**
+     * @return The generator that decides how the ball jumps.
+     */
+    final GameRandom getRandom() {
+        return mRandom;
+    }
+
+    /**
+     * Pre: The Ball has an X position within the world
+     * @return The X position within the world.
+     */
+    final double getGameX() {
+        return mGameX;
+    }
+
+    /**
+     * Pre: The Ball has an Y position within the world
+     * @return The Y position within the world.
+     */
+    final double getGameY() {
+        return mGameY;
+    }
+
+    /**
+     * @return The X position before the last update.
+     */
+    final double getPreviousGameX() {
+        return mPreviousGameX;
+    }
+
+    /**
+     * @return The Y position before the last update.
+     */
+    final double getPreviousGameY() {
+        return mPreviousGameY;
+    }
+
+    /**
+     * Pre: The Ball has a width.
+     * @return Half the ball's width / the radius of the ball.
+     */
+    final int getRadius() {
+        return mRadius;
+    }
+
+    /**
+     * Pre: The Ball has an X position.
+     * @return The center of the ball along the X axis.
+     */
+    final double getCenterX() {
+        return getGameX()+getRadius();
+    }
+
+    /**
+     * Pre: The Ball has a Y position.
+     * @return The center of the ball along the Y axis.
+     */
+    final double getCenterY() {
+        return getGameY()+getRadius();
+    }
+
+    /**
+     * @return True if the point is inside the ball's circle.
+     */
+    final boolean contains(int x, int y) {
+        return containsAt(x, y, getGameX(), getGameY());
+    }
+
+    /**
+     * @return True if the point would be inside the ball's circle with its top left corner at ballX, ballY.
+     */
+    final boolean containsAt(double x, double y, double ballX, double ballY) {
+        //Compare squared distances so no square root is needed
+        final double radius = getRadius();
+        final double a = x - (ballX + radius);
+        final double b = y - (ballY + radius);
+        return a*a + b*b <= radius*radius;
+    }
+
+    /**
+     * @return True if the ball is standing still or falling, which is when it can be tapped.
+     */
+    final boolean canBeTapped() {
+        return mYVelocity >= 0;
+    }
+
+    /**
+     * @return True if the ball is moving at all.
+     */
+    final boolean isMoving() {
+        return mXVelocity != 0 || mYVelocity != 0 || mGravity != 0;
+    }
+
+    /**
+     * Post: If the ball was moving downwards, it is now moving in a random direction and random speed upwards.
+     * @return True if the tap made the ball jump.
+     */
+    final boolean tap() {
+        if( !canBeTapped() ) {
+            return false;
+        }
+        randomizeVelocity();
+        return true;
+    }
+
+    /**
+     * Post: Horizontal and vertical velocities are randomized within their limits.
+     *       Horizontal deceleration and gravity are randomized to non-zero values.
+     */
+    final void randomizeVelocity() {
+        //Randomize magnitude
+        final BallLimits limits = mLimits;
+        mXVelocity = (mRandom.nextDouble() * (limits.maxXVelocity - limits.minXVelocity)) + limits.minXVelocity;
+        mYVelocity = -((mRandom.nextDouble() * (limits.maxYVelocity - limits.minYVelocity)) + limits.minYVelocity); //Negative velocity = up
+
+        //Randomize direction
+        if( mRandom.nextBoolean() ) {
+            mXVelocity = -mXVelocity;
+        }
+
+        //Randomize deceleration and gravity
+        mHorizontalDeceleration = mRandom.nextDouble() * limits.maxHorizontalDeceleration;
+
+        int minSecondsToFall = limits.minTicksToFall;
+        minSecondsToFall *= mRandom.nextDouble() + 1; //Can increase the seconds by nearly 100%
+        mGravity = Math.abs(mYVelocity / minSecondsToFall);
+    }
+
+    /**
+     * @return A hash of everything that decides where the ball goes next. Two balls with the
+     *         same fingerprint are, in all likelihood, bit for bit the same.
+     */
+    final long fingerprint() {
+        long hash = GameRandom.mix(Double.doubleToLongBits(mGameX));
+        hash = GameRandom.mix(hash ^ Double.doubleToLongBits(mGameY));
+        hash = GameRandom.mix(hash ^ Double.doubleToLongBits(mXVelocity));
+        hash = GameRandom.mix(hash ^ Double.doubleToLongBits(mYVelocity));
+        hash = GameRandom.mix(hash ^ Double.doubleToLongBits(mHorizontalDeceleration));
+        return GameRandom.mix(hash ^ Double.doubleToLongBits(mGravity));
+    }
+
+    /**
+     * Pre: A frame has passed in the game.
+     * Post: The ball has changed positions depending on its velocity. The position before
+     *       the update is kept as the previous position, to draw the ball between the two.
+     * @return True if the ball fell off the bottom of the world, which ends the game.
+     */
+    final boolean update() {
+        final double ballDiameter = getRadius()*2;
+        final double rightEdge = mWorldWidth - ballDiameter;
+
+        mPreviousGameX = mGameX;
+        mPreviousGameY = mGameY;
+
+        mGameX += mXVelocity;
+        mGameY += mYVelocity;
+
+        if( mXVelocity > 0 ) {
+            mXVelocity -= mHorizontalDeceleration;
+            if( mXVelocity < 0 )
+                mXVelocity = 0;
+        } else if( mXVelocity < 0 ) {
+            mXVelocity += mHorizontalDeceleration;
+            if( mXVelocity > 0 )
+                mXVelocity = 0;
+        }
+
+        //Stop ball from moving out of the screen horizontally
+        if( getGameX() < 0 ) {
+            setGameX(0);
+            mXVelocity = -mXVelocity;
+        } else if ( getGameX() > rightEdge ) {
+            setGameX(rightEdge);
+            mXVelocity = -mXVelocity;
+        }
+
+        //Prevent ball from going to far above the screen
+        if( getGameY() < -ballDiameter*2 ) {
+            mYVelocity = mGravity; //If this was 0, it would get stuck
+        }
+
+        //Game is over is ball falls off the bottom of the screen
+        mYVelocity += mGravity;
+        mGravity *= mLimits.gravityGrowth;
+        return mGameY > mWorldHeight;
+    }
+}
@@ -0,0 +1,268 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * Many balls that all follow the same rules as BallPhysics, stored as parallel arrays of
+ * primitives instead of one object per ball. Updating every ball is a single loop over
+ * contiguous memory, so the cost per ball stays flat from a handful of balls to thousands.
+ *
+ * Positions are kept in floating point. Like BallPhysics this is plain Java and can run headless.
+ */
+
+final class BallSystem {
+    private final int mWorldWidth;
+    private final int mWorldHeight;
+    private final int mRadius;
+    private final BallLimits mLimits;
+    private final GameRandom mRandom;
+
+    private final int mCapacity;
+    private int mCount = 0;
+
+    //Top left corner of every ball, now and before the last update
+    private final double[] mX, mY;
+    private final double[] mPreviousX, mPreviousY;
+
+    //Measured in game pixels per frame
+    private final double[] mXVelocity, mYVelocity, mHorizontalDeceleration, mGravity;
+
+    //Finds balls by position. Only rebuilt when it is queried after the balls moved, so ticks don't pay for it.
+    private final SpatialGrid mGrid;
+    private boolean mGridStale = true;
+
+    /**
+     * @param worldWidth The width of the world the balls move in.
+     * @param worldHeight The height of the world the balls move in.
+     * @param radius The radius of every ball in the same units as the world.
+     * @param fps The number of times update() is called in a second.
+     * @param capacity The most balls the system can hold.
+     * @param random Decides how the balls jump. Cannot be null.
+     */
+    BallSystem( int worldWidth, int worldHeight, int radius, int fps, int capacity, GameRandom random ) {
+        assert capacity > 0;
+
+        mWorldWidth = worldWidth;
+        mWorldHeight = worldHeight;
+        mRadius = radius;
+        mLimits = new BallLimits(worldWidth, worldHeight, radius, fps);
+        mRandom = random;
+        mCapacity = capacity;
+
+        mX = new double[capacity];
+        mY = new double[capacity];
+        mPreviousX = new double[capacity];
+        mPreviousY = new double[capacity];
+        mXVelocity = new double[capacity];
+        mYVelocity = new double[capacity];
+        mHorizontalDeceleration = new double[capacity];
+        mGravity = new double[capacity];
+        mGrid = new SpatialGrid(worldWidth, worldHeight, radius, capacity);
+    }
+
+    /**
+     * Pre: getCount() is less than the capacity.
+     * Post: A new ball is standing still at its starting position.
+     * @return The index of the new ball.
+     */
+    final int add() {
+        assert mCount < mCapacity;
+
+        final int index = mCount++;
+        resetToStartingPosition(index);
+        return index;
+    }
+
+    /**
+     * Post: Every ball is standing still at its starting position.
+     */
+    final void resetAll() {
+        for( int i = 0; i < mCount; i++ ) {
+            resetToStartingPosition(i);
+        }
+    }
+
+    /**
+     * Post: The ball is standing still on the bottom of the world. Balls are spread evenly
+     *       across the width of the world in the order they were added.
+     */
+    final void resetToStartingPosition(int index) {
+        final double slotWidth = (double) mWorldWidth / mCapacity;
+        mX[index] = Math.min(Math.max(0, (index + 0.5) * slotWidth - mRadius), mWorldWidth - 2 * mRadius);
+        mY[index] = mWorldHeight - 2 * mRadius;
+        mPreviousX[index] = mX[index];
+        mPreviousY[index] = mY[index];
+        mXVelocity[index] = 0;
+        mYVelocity[index] = 0;
+        mHorizontalDeceleration[index] = 0;
+        mGravity[index] = 0;
+        mGridStale = true;
+    }
+
+    /**
+     * Post: If the ball was standing still or falling, it jumps in a random direction.
+     * @return True if the tap made the ball jump.
+     */
+    final boolean tap(int index) {
+        if( mYVelocity[index] < 0 ) {
+            return false;
+        }
+        randomizeVelocity(index);
+        return true;
+    }
+
+    /**
+     * Post: The ball's velocities are randomized the same way BallPhysics.randomizeVelocity() does.
+     */
+    final void randomizeVelocity(int index) {
+        final BallLimits limits = mLimits;
+        double xVelocity = (mRandom.nextDouble() * (limits.maxXVelocity - limits.minXVelocity)) + limits.minXVelocity;
+        final double yVelocity = -((mRandom.nextDouble() * (limits.maxYVelocity - limits.minYVelocity)) + limits.minYVelocity);
+        if( mRandom.nextBoolean() ) {
+            xVelocity = -xVelocity;
+        }
+
+        mXVelocity[index] = xVelocity;
+        mYVelocity[index] = yVelocity;
+        mHorizontalDeceleration[index] = mRandom.nextDouble() * limits.maxHorizontalDeceleration;
+
+        int minSecondsToFall = limits.minTicksToFall;
+        minSecondsToFall *= mRandom.nextDouble() + 1;
+        mGravity[index] = Math.abs(yVelocity / minSecondsToFall);
+    }
+
+    /**
+     * Pre: A frame has passed in the game.
+     * Post: Every ball has moved depending on its velocity. The grid is rebuilt on its next query.
+     * @return The number of balls that fell off the bottom of the world.
+     */
+    final int update() {
+        final double diameter = 2 * mRadius;
+        final double rightEdge = mWorldWidth - diameter;
+        final double ceiling = -diameter * 2;
+        final double worldHeight = mWorldHeight;
+        final double[] x = mX, y = mY, previousX = mPreviousX, previousY = mPreviousY;
+        final double[] xVelocity = mXVelocity, yVelocity = mYVelocity;
+        final double[] deceleration = mHorizontalDeceleration, gravity = mGravity;
+        final double gravityGrowth = mLimits.gravityGrowth;
+
+        int fallen = 0;
+        for( int i = 0; i < mCount; i++ ) {
+            previousX[i] = x[i];
+            previousY[i] = y[i];
+
+            double vx = xVelocity[i];
+            double px = x[i] + vx;
+            final double py = y[i] + yVelocity[i];
+
+            //Slow down horizontally without crossing zero
+            if( vx > 0 ) {
+                vx = Math.max(0, vx - deceleration[i]);
+            } else if( vx < 0 ) {
+                vx = Math.min(0, vx + deceleration[i]);
+            }
+
+            //Bounce off the sides of the world
+            if( px < 0 ) {
+                px = 0;
+                vx = -vx;
+            } else if( px > rightEdge ) {
+                px = rightEdge;
+                vx = -vx;
+            }
+
+            double vy = yVelocity[i];
+            if( py < ceiling ) {
+                vy = gravity[i];
+            }
+            vy += gravity[i];
+            gravity[i] *= gravityGrowth;
+
+            x[i] = px;
+            y[i] = py;
+            xVelocity[i] = vx;
+            yVelocity[i] = vy;
+
+            if( py > worldHeight ) {
+                fallen++;
+            }
+        }
+
+        mGridStale = true;
+        return fallen;
+    }
+
+    /**
+     * @return The index of the ball drawn on top at the point, or -1 if there is no ball there.
+     */
+    final int findBallAt(double pointX, double pointY) {
+        return getGrid().findAt(pointX, pointY);
+    }
+
+    /**
+     * Post: The grid's pairs are every two balls that overlap.
+     * @return The number of overlapping pairs.
+     */
+    final int findOverlappingPairs() {
+        return getGrid().findOverlappingPairs();
+    }
+
+    /**
+     * @return The grid of the balls' current positions.
+     */
+    final SpatialGrid getGrid() {
+        if( mGridStale ) {
+            mGrid.rebuild(mX, mY, mCount);
+            mGridStale = false;
+        }
+        return mGrid;
+    }
+
+    /**
+     * @return A hash of everything that decides where the balls go next, see BallPhysics.fingerprint().
+     */
+    final long fingerprint() {
+        long hash = mCount;
+        for( int i = 0; i < mCount; i++ ) {
+            hash = GameRandom.mix(hash ^ Double.doubleToLongBits(mX[i]));
+            hash = GameRandom.mix(hash ^ Double.doubleToLongBits(mY[i]));
+            hash = GameRandom.mix(hash ^ Double.doubleToLongBits(mXVelocity[i]));
+            hash = GameRandom.mix(hash ^ Double.doubleToLongBits(mYVelocity[i]));
+            hash = GameRandom.mix(hash ^ Double.doubleToLongBits(mHorizontalDeceleration[i]));
+            hash = GameRandom.mix(hash ^ Double.doubleToLongBits(mGravity[i]));
+        }
+        return hash;
+    }
+
+    /**
+     * @return The number of balls in the system.
+     */
+    final int getCount() {
+        return mCount;
+    }
+
+    final int getRadius() {
+        return mRadius;
+    }
+
+    final double getX(int index) {
+        return mX[index];
+    }
+
+    final double getY(int index) {
+        return mY[index];
+    }
+
+    final double getPreviousX(int index) {
+        return mPreviousX[index];
+    }
+
+    final double getPreviousY(int index) {
+        return mPreviousY[index];
+    }
+
+    /**
+     * @return True if the ball is moving at all.
+     */
+    final boolean isMoving(int index) {
+        return mXVelocity[index] != 0 || mYVelocity[index] != 0 || mGravity[index] != 0;
+    }
+}
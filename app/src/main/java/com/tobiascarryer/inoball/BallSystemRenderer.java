@@ -0,0 +1,107 @@
+package com.tobiascarryer.inoball;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+/**
+ * Draws every ball of a BallSystem with one shared sprite, the way Ball draws a single ball.
+ * Draw positions are kept in primitive arrays so a frame doesn't allocate no matter how
+ * many balls there are.
+ */
+
+final class BallSystemRenderer implements DrawableObject, AssetLoader.Target {
+    private final BallSystem mSystem;
+
+    //Where each ball will be drawn this frame and where it was drawn last frame, with sub-pixel precision
+    private final float[] mDrawX, mDrawY;
+    private final float[] mDrawnX, mDrawnY;
+    private int mDrawnCount = 0;
+
+    //Set by the asset loader, null until the image has been decoded
+    private volatile Bitmap mBallImage;
+
+    /**
+     * @param system The balls to draw. Cannot be null.
+     * @param capacity The most balls the system can hold.
+     */
+    BallSystemRenderer(BallSystem system, int capacity) {
+        assert system != null;
+
+        mSystem = system;
+        mDrawX = new float[capacity];
+        mDrawY = new float[capacity];
+        mDrawnX = new float[capacity];
+        mDrawnY = new float[capacity];
+    }
+
+    /**
+     * Post: The next call to draw() draws every ball between its previous and its current position.
+     * @param interpolation How far between the previous and the current tick the frame is.
+     */
+    final void interpolate(double interpolation) {
+        final BallSystem system = mSystem;
+        final int count = system.getCount();
+        for( int i = 0; i < count; i++ ) {
+            final double previousX = system.getPreviousX(i);
+            final double previousY = system.getPreviousY(i);
+            mDrawX[i] = (float) (previousX + (system.getX(i) - previousX) * interpolation);
+            mDrawY[i] = (float) (previousY + (system.getY(i) - previousY) * interpolation);
+        }
+    }
+
+    /**
+     * Post: region covers every square a ball was last drawn in and will be drawn in.
+     */
+    public void reportDirtyRegion(DirtyRegion region) {
+        final int diameter = mSystem.getRadius()*2;
+        final int count = mSystem.getCount();
+        for( int i = 0; i < count; i++ ) {
+            if( i < mDrawnCount ) {
+                if( mDrawnX[i] == mDrawX[i] && mDrawnY[i] == mDrawY[i] ) {
+                    continue;
+                }
+                Ball.unionSquare(region, mDrawnX[i], mDrawnY[i], diameter);
+            }
+            Ball.unionSquare(region, mDrawX[i], mDrawY[i], diameter);
+        }
+    }
+
+    /**
+     * Pre: Canvas is being displayed. interpolate() has been called for this frame.
+     * @param canvas The game's canvas. Cannot be null.
+     */
+    public void draw(Canvas canvas) {
+        assert canvas != null;
+
+        final Bitmap ballImage = mBallImage;
+        if( ballImage == null ) {
+            //Still loading, the balls appear as soon as their image is ready
+            return;
+        }
+
+        final int count = mSystem.getCount();
+        for( int i = 0; i < count; i++ ) {
+            canvas.drawBitmap(ballImage, mDrawX[i], mDrawY[i], null);
+            mDrawnX[i] = mDrawX[i];
+            mDrawnY[i] = mDrawY[i];
+        }
+        mDrawnCount = count;
+    }
+
+    /**
+     * @return The key of the image every ball is drawn with.
+     */
+    final SpriteCache.Key getSpriteKey() {
+        int newDim = mSystem.getRadius()*2;
+        return SpriteCache.key(R.drawable.ball, newDim, newDim);
+    }
+
+    /**
+     * Pre: Called on a loader thread.
+     * Post: The balls are drawn with the image from the next frame on.
+     */
+    @Override
+    public void onSpriteLoaded(Bitmap sprite) {
+        mBallImage = sprite;
+    }
+}
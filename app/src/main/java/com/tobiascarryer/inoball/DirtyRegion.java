@@ -0,0 +1,76 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * The rectangle of the screen that changed since the last frame. Drawable objects add
+ * the area they covered on the previous frame and the area they are about to cover,
+ * and only the union of those areas is redrawn.
+ */
+
+final class DirtyRegion {
+    private int mLeft, mTop, mRight, mBottom;
+
+    DirtyRegion() {
+        setEmpty();
+    }
+
+    /**
+     * Post: isEmpty() returns true.
+     */
+    final void setEmpty() {
+        mLeft = Integer.MAX_VALUE;
+        mTop = Integer.MAX_VALUE;
+        mRight = Integer.MIN_VALUE;
+        mBottom = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Post: The region covers at least the given rectangle. Empty rectangles are ignored.
+     * @param left The left edge, inclusive.
+     * @param top The top edge, inclusive.
+     * @param right The right edge, exclusive.
+     * @param bottom The bottom edge, exclusive.
+     */
+    final void union(int left, int top, int right, int bottom) {
+        if( left >= right || top >= bottom ) {
+            return;
+        }
+
+        mLeft = Math.min(mLeft, left);
+        mTop = Math.min(mTop, top);
+        mRight = Math.max(mRight, right);
+        mBottom = Math.max(mBottom, bottom);
+    }
+
+    /**
+     * Post: The region does not extend past a screen of the given size.
+     */
+    final void clipTo(int width, int height) {
+        mLeft = Math.max(mLeft, 0);
+        mTop = Math.max(mTop, 0);
+        mRight = Math.min(mRight, width);
+        mBottom = Math.min(mBottom, height);
+    }
+
+    /**
+     * @return True if nothing needs to be redrawn.
+     */
+    final boolean isEmpty() {
+        return mLeft >= mRight || mTop >= mBottom;
+    }
+
+    final int getLeft() {
+        return mLeft;
+    }
+
+    final int getTop() {
+        return mTop;
+    }
+
+    final int getRight() {
+        return mRight;
+    }
+
+    final int getBottom() {
+        return mBottom;
+    }
+}
@@ -0,0 +1,45 @@
+package com.tobiascarryer.inoball;
+
+import android.os.Process;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The one background thread the app writes its files on. Sharing it keeps disk writes off the
+ * UI and render threads and means two writes to the same file can never run at the same time,
+ * even if the activity is recreated while a write is still waiting.
+ */
+
+final class DiskWriter {
+    private static final String TAG = "DiskWriter";
+
+    private static ScheduledExecutorService sWriter;
+
+    private DiskWriter() {}
+
+    /**
+     * @return The writer thread, started the first time it is needed.
+     */
+    static synchronized ScheduledExecutorService get() {
+        if( sWriter == null ) {
+            sWriter = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, TAG);
+                    //Never keep the process alive just to write
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sWriter;
+    }
+}
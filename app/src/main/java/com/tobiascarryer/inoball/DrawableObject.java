@@ -12,4 +12,11 @@ interface DrawableObject {
      * @param canvas The game's canvas. Cannot be null.
      */
     void draw(Canvas canvas);
+
+    /**
+     * Post: region covers everything drawn by the last call to draw() and everything
+     *       the next call to draw() will draw, if either of them changes the screen.
+     * @param region The area of the screen to redraw this frame. Cannot be null.
+     */
+    void reportDirtyRegion(DirtyRegion region);
 }
@@ -0,0 +1,92 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * Counts durations in fixed width buckets so percentiles can be read without keeping
+ * every sample. Recording a duration never allocates. Durations longer than the last
+ * bucket are counted in an overflow bucket, the exact maximum is always kept.
+ */
+
+final class FrameHistogram {
+
+    static final long BUCKET_NANOS = 50000L; //0.05ms
+    static final int BUCKET_COUNT = 2000; //Up to 100ms
+
+    private final int[] mBuckets = new int[BUCKET_COUNT + 1];
+    private int mCount = 0;
+    private long mTotalNanos = 0;
+    private long mMaxNanos = 0;
+
+    /**
+     * Post: The duration is counted in the histogram.
+     * @param nanos A duration in nanoseconds. Negative durations are counted as 0.
+     */
+    final void record(long nanos) {
+        if( nanos < 0 ) {
+            nanos = 0;
+        }
+
+        final long bucket = nanos / BUCKET_NANOS;
+        mBuckets[bucket < BUCKET_COUNT ? (int) bucket : BUCKET_COUNT]++;
+        mCount++;
+        mTotalNanos += nanos;
+        if( nanos > mMaxNanos ) {
+            mMaxNanos = nanos;
+        }
+    }
+
+    /**
+     * Pre: percentile is between 0 and 100.
+     * @return The upper edge of the bucket holding the given percentile, or the maximum
+     *         if it falls in the overflow bucket. 0 if nothing was recorded.
+     */
+    final long getPercentile(double percentile) {
+        assert percentile >= 0 && percentile <= 100;
+
+        if( mCount == 0 ) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * mCount));
+        long seen = 0;
+        for( int i = 0; i < BUCKET_COUNT; i++ ) {
+            seen += mBuckets[i];
+            if( seen >= rank ) {
+                return Math.min((i + 1) * BUCKET_NANOS, mMaxNanos);
+            }
+        }
+        return mMaxNanos;
+    }
+
+    /**
+     * @return The number of durations recorded since the last reset.
+     */
+    final int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return The longest duration recorded since the last reset.
+     */
+    final long getMax() {
+        return mMaxNanos;
+    }
+
+    /**
+     * @return The average duration, 0 if nothing was recorded.
+     */
+    final long getMean() {
+        return mCount == 0 ? 0 : mTotalNanos / mCount;
+    }
+
+    /**
+     * Post: The histogram is empty.
+     */
+    final void reset() {
+        for( int i = 0; i < mBuckets.length; i++ ) {
+            mBuckets[i] = 0;
+        }
+        mCount = 0;
+        mTotalNanos = 0;
+        mMaxNanos = 0;
+    }
+}
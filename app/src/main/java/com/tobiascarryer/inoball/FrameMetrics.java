@@ -0,0 +1,305 @@
+package com.tobiascarryer.inoball;
+
+import android.util.Log;
+
+/**
+ * Frame time statistics for the game loop. Every frame the time spent updating game logic,
+ * drawing, locking and posting the canvas, and the whole frame is recorded in a histogram,
+ * and frames that took longer than the frame budget are counted as jank.
+ *
+ * Recording never allocates. The metrics belong to the thread running the game loop and
+ * must only be read from it.
+ */
+
+final class FrameMetrics {
+
+    static final int UPDATE = 0;
+    static final int DRAW = 1;
+    static final int LOCK_POST = 2;
+    static final int TOTAL = 3;
+    static final int STAGE_COUNT = 4;
+
+    private static final String TAG = "FrameMetrics";
+    private static final String[] STAGE_NAMES = {"update", "draw", "lock/post", "total"};
+
+    private final FrameHistogram[] mHistograms = new FrameHistogram[STAGE_COUNT];
+    private final long[] mFrameNanos = new long[STAGE_COUNT];
+    private final long mBudgetNanos;
+    private int mJankCount = 0;
+
+    //Total frame times since the last mark(), kept apart from the histograms so logging doesn't clear them
+    private int mMarkFrames = 0;
+    private long mMarkTotalNanos = 0;
+    private long mMarkMaxNanos = 0;
+
+    private long mLogIntervalNanos = 0;
+    private long mWindowStartNanos = 0;
+
+    //What produced the frames, for example the render backend. Null if there is nothing to tell apart.
+    private String mLabel = null;
+
+    private FrameListener mFrameListener = null;
+
+    /**
+     * Told the length of every frame as it is recorded, on the game loop's thread.
+     */
+    interface FrameListener {
+        void onFrame(long totalNanos);
+    }
+
+    /**
+     * @param budgetNanos The longest a frame can take without being counted as jank.
+     */
+    FrameMetrics(long budgetNanos) {
+        assert budgetNanos > 0;
+
+        mBudgetNanos = budgetNanos;
+        for( int i = 0; i < STAGE_COUNT; i++ ) {
+            mHistograms[i] = new FrameHistogram();
+        }
+    }
+
+    /**
+     * Post: The metrics are written to the log and reset every intervalNanos. 0 turns logging off.
+     */
+    final void setLogInterval(long intervalNanos) {
+        mLogIntervalNanos = intervalNanos;
+    }
+
+    /**
+     * Post: The label starts the summary and every log line, and the frames recorded so far
+     *       are cleared so no summary mixes frames with two labels. Null removes the label.
+     */
+    final void setLabel(String label) {
+        mLabel = label;
+        reset();
+    }
+
+    /**
+     * Post: listener is told about every frame recorded from now on. Null stops telling anyone.
+     */
+    final void setFrameListener(FrameListener listener) {
+        mFrameListener = listener;
+    }
+
+    /**
+     * @return What produced the frames, or null if the frames aren't labelled.
+     */
+    final String getLabel() {
+        return mLabel;
+    }
+
+    /**
+     * Post: Time added until the next endFrame() counts towards a new frame.
+     */
+    final void beginFrame() {
+        for( int i = 0; i < STAGE_COUNT; i++ ) {
+            mFrameNanos[i] = 0;
+        }
+    }
+
+    /**
+     * Pre: stage is UPDATE, DRAW or LOCK_POST.
+     * Post: nanos is added to the stage's time for the current frame.
+     */
+    final void addTime(int stage, long nanos) {
+        assert stage >= 0 && stage < TOTAL;
+        mFrameNanos[stage] += nanos;
+    }
+
+    /**
+     * Post: The current frame is recorded. The metrics are logged and reset if the log interval has passed.
+     * @param totalNanos How long the whole frame took.
+     * @param now The current System.nanoTime().
+     */
+    final void endFrame(long totalNanos, long now) {
+        mFrameNanos[TOTAL] = totalNanos;
+        for( int i = 0; i < STAGE_COUNT; i++ ) {
+            mHistograms[i].record(mFrameNanos[i]);
+        }
+
+        if( totalNanos > mBudgetNanos ) {
+            mJankCount++;
+        }
+        if( mFrameListener != null ) {
+            mFrameListener.onFrame(totalNanos);
+        }
+
+        mMarkFrames++;
+        mMarkTotalNanos += totalNanos;
+        if( totalNanos > mMarkMaxNanos ) {
+            mMarkMaxNanos = totalNanos;
+        }
+
+        if( mWindowStartNanos == 0 ) {
+            mWindowStartNanos = now;
+        } else if( mLogIntervalNanos > 0 && now - mWindowStartNanos >= mLogIntervalNanos ) {
+            logAndReset(now);
+        }
+    }
+
+    /**
+     * @return The stage's duration at the given percentile in nanoseconds.
+     */
+    final long getPercentile(int stage, double percentile) {
+        return mHistograms[stage].getPercentile(percentile);
+    }
+
+    /**
+     * @return The stage's longest duration in nanoseconds.
+     */
+    final long getMax(int stage) {
+        return mHistograms[stage].getMax();
+    }
+
+    /**
+     * @return The stage's average duration in nanoseconds.
+     */
+    final long getMean(int stage) {
+        return mHistograms[stage].getMean();
+    }
+
+    /**
+     * @return The number of frames recorded since the last reset.
+     */
+    final int getFrameCount() {
+        return mHistograms[TOTAL].getCount();
+    }
+
+    /**
+     * @return The number of frames that went over budget since the last reset.
+     */
+    final int getJankCount() {
+        return mJankCount;
+    }
+
+    /**
+     * @return The longest a frame can take without being counted as jank.
+     */
+    final long getBudgetNanos() {
+        return mBudgetNanos;
+    }
+
+    /**
+     * Post: The frame times since the mark start counting from zero. reset() doesn't affect them.
+     */
+    final void mark() {
+        mMarkFrames = 0;
+        mMarkTotalNanos = 0;
+        mMarkMaxNanos = 0;
+    }
+
+    /**
+     * @return The average total frame time since the last mark(), 0 if no frame has ended since.
+     */
+    final long getMeanSinceMark() {
+        return mMarkFrames == 0 ? 0 : mMarkTotalNanos / mMarkFrames;
+    }
+
+    /**
+     * @return The longest total frame time since the last mark().
+     */
+    final long getMaxSinceMark() {
+        return mMarkMaxNanos;
+    }
+
+    /**
+     * Post: All histograms and the jank count are empty.
+     */
+    final void reset() {
+        for( int i = 0; i < STAGE_COUNT; i++ ) {
+            mHistograms[i].reset();
+        }
+        mJankCount = 0;
+        mWindowStartNanos = 0;
+    }
+
+    /**
+     * Writes a one line summary of the total frame time without allocating, for example
+     * "p50 4.2 p95 8.1 p99 12.0 max 20.3 jank 3", after the label if there is one.
+     * Pre: out can hold at least 64 chars more than the label.
+     * @return The number of chars written to out.
+     */
+    final int formatSummary(char[] out) {
+        int position = 0;
+        if( mLabel != null ) {
+            position = appendText(out, position, mLabel);
+            out[position++] = ' ';
+        }
+        position = appendText(out, position, "p50 ");
+        position = appendMilliseconds(out, position, getPercentile(TOTAL, 50));
+        position = appendText(out, position, " p95 ");
+        position = appendMilliseconds(out, position, getPercentile(TOTAL, 95));
+        position = appendText(out, position, " p99 ");
+        position = appendMilliseconds(out, position, getPercentile(TOTAL, 99));
+        position = appendText(out, position, " max ");
+        position = appendMilliseconds(out, position, getMax(TOTAL));
+        position = appendText(out, position, " jank ");
+        position = appendInt(out, position, mJankCount);
+        return position;
+    }
+
+    /**
+     * Post: Percentiles of every stage have been logged and the metrics are reset.
+     */
+    private void logAndReset(long now) {
+        final int frames = getFrameCount();
+        final double seconds = (now - mWindowStartNanos) / (double) GameLoop.NANOSECONDS_PER_SECOND;
+
+        StringBuilder builder = new StringBuilder();
+        if( mLabel != null ) {
+            builder.append(mLabel).append(": ");
+        }
+        builder.append(frames).append(" frames, ")
+                .append(String.format("%.1f", seconds > 0 ? frames / seconds : 0)).append(" fps, ")
+                .append(mJankCount).append(" over the ")
+                .append(String.format("%.2f", mBudgetNanos / 1e6)).append("ms budget");
+        for( int i = 0; i < STAGE_COUNT; i++ ) {
+            builder.append("\n  ").append(STAGE_NAMES[i]).append(": ")
+                    .append(String.format("p50 %.2f p95 %.2f p99 %.2f max %.2f ms",
+                            getPercentile(i, 50) / 1e6, getPercentile(i, 95) / 1e6,
+                            getPercentile(i, 99) / 1e6, getMax(i) / 1e6));
+        }
+        Log.i(TAG, builder.toString());
+
+        reset();
+        mWindowStartNanos = now;
+    }
+
+    private static int appendText(char[] out, int position, String text) {
+        for( int i = 0; i < text.length(); i++ ) {
+            out[position++] = text.charAt(i);
+        }
+        return position;
+    }
+
+    /**
+     * Post: nanos is written as milliseconds with one decimal place.
+     */
+    private static int appendMilliseconds(char[] out, int position, long nanos) {
+        final long tenths = (nanos + 50000) / 100000;
+        position = appendInt(out, position, tenths / 10);
+        out[position++] = '.';
+        out[position++] = (char) ('0' + tenths % 10);
+        return position;
+    }
+
+    /**
+     * Pre: value is not negative.
+     */
+    private static int appendInt(char[] out, int position, long value) {
+        final int start = position;
+        do {
+            out[position++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while( value != 0 );
+
+        //The digits were written backwards
+        for( int i = start, j = position - 1; i < j; i++, j-- ) {
+            char swap = out[i];
+            out[i] = out[j];
+            out[j] = swap;
+        }
+        return position;
+    }
+}
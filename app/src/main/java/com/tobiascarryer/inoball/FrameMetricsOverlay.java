@@ -0,0 +1,82 @@
+package com.tobiascarryer.inoball;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * A line of text at the bottom of the screen showing the frame time percentiles and
+ * jank count. The text is refreshed once a second so the overlay itself doesn't
+ * cause a redraw every frame.
+ */
+
+final class FrameMetricsOverlay implements DrawableObject {
+
+    private static final long REFRESH_NANOS = GameLoop.NANOSECONDS_PER_SECOND;
+
+    private final FrameMetrics mMetrics;
+    private final char[] mText = new char[96];
+    private int mLength = 0;
+    private long mLastRefresh = 0;
+    private boolean mChanged = false;
+
+    private Paint mPaint;
+    private int mScreenWidth = 0;
+    private int mScreenHeight = 0;
+
+    /**
+     * @param metrics The metrics to show. Cannot be null.
+     */
+    FrameMetricsOverlay(FrameMetrics metrics, int screenWidth, int screenHeight) {
+        mMetrics = metrics;
+        resize(screenWidth, screenHeight);
+    }
+
+    /**
+     * Post: The overlay is laid out for a screen of the given size.
+     */
+    final void resize(int screenWidth, int screenHeight) {
+        mScreenWidth = screenWidth;
+        mScreenHeight = screenHeight;
+        mChanged = true;
+    }
+
+    /**
+     * Pre: Called on the thread running the game loop.
+     * Post: The text shows the latest metrics if a second has passed since it was last refreshed.
+     */
+    final void refresh(long now) {
+        if( now - mLastRefresh >= REFRESH_NANOS ) {
+            mLength = mMetrics.formatSummary(mText);
+            mLastRefresh = now;
+            mChanged = true;
+        }
+    }
+
+    public void draw(Canvas canvas) {
+        assert canvas != null;
+
+        if( mPaint == null ) {
+            mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mPaint.setColor(Color.YELLOW);
+            mPaint.setTextAlign(Paint.Align.LEFT);
+        }
+        mPaint.setTextSize(mScreenHeight / 50);
+
+        canvas.drawText(mText, 0, mLength, mPaint.getTextSize() / 2, getBaseline(), mPaint);
+        mChanged = false;
+    }
+
+    public void reportDirtyRegion(DirtyRegion region) {
+        if( mChanged ) {
+            region.union(0, (int) (getBaseline() - mScreenHeight / 50), mScreenWidth, mScreenHeight);
+        }
+    }
+
+    /**
+     * @return The y position of the text.
+     */
+    private float getBaseline() {
+        return mScreenHeight - mScreenHeight / 100;
+    }
+}
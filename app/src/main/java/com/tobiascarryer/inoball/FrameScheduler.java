@@ -0,0 +1,51 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * Decides when the game is updated and redrawn. The game panel only starts, parks, unparks,
+ * caps the frame rate of and stops a scheduler so the way frames are timed can change without
+ * touching the game itself.
+ *
+ * A scheduler's thread is started once and parked while the game is paused, so resuming is
+ * as quick as waking it up. While the game is idle, such as on the start screen, the thread
+ * also stops producing frames until wake() is called.
+ */
+
+interface FrameScheduler {
+    /**
+     * Pre: The surface has been created. start() has not been called before.
+     * Post: The game is being updated and drawn on a background thread.
+     */
+    void start();
+
+    /**
+     * Post: No more frames will be produced until unpark() is called. A frame that was being
+     *       produced has finished, so the surface can be destroyed. The background thread is
+     *       parked without using the CPU.
+     */
+    void park();
+
+    /**
+     * Pre: start() has been called. The surface exists.
+     * Post: Frames are being produced again. The time spent paused is not caught up on.
+     */
+    void unpark();
+
+    /**
+     * Post: No more frames will be produced and the background thread has finished.
+     */
+    void shutdown();
+
+    /**
+     * Post: From the next frame on at most framesPerSecond frames are produced a second, the
+     *       game still ticks at its own rate. 0 produces frames as often as the scheduler can.
+     *       Can be called from any thread.
+     */
+    void setTargetFrameRate(int framesPerSecond);
+
+    /**
+     * Post: If frames stopped because the game was idle they are being produced again, the
+     *       time spent idle is not caught up on. Does nothing otherwise. Can be called from any
+     *       thread, call it after whatever the game should notice, such as a tap, has happened.
+     */
+    void wake();
+}
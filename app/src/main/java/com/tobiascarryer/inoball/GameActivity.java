@@ -12,6 +12,11 @@ import android.view.WindowManager;
 
 public final class GameActivity extends AppCompatActivity {
 
+    //The number of balls to play with, one unless another activity asks for a multi-ball game
+    static final String EXTRA_BALL_COUNT = "com.tobiascarryer.inoball.BALL_COUNT";
+
+    private GamePanel mGamePanel;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -28,6 +33,26 @@ public final class GameActivity extends AppCompatActivity {
                 Log.e("Unexpected Null", "ActionBar could not be found");
         }
 
-        setContentView(new GamePanel(this));
+        final int ballCount = Math.max(1, getIntent().getIntExtra(EXTRA_BALL_COUNT, 1));
+        mGamePanel = new GamePanel(this, ballCount);
+        setContentView(mGamePanel);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        mGamePanel.onResume();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        mGamePanel.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        mGamePanel.onDestroy();
+        super.onDestroy();
     }
 }
@@ -0,0 +1,248 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * A fixed timestep game loop. Game logic is always advanced in steps of exactly
+ * 1/ticksPerSecond seconds no matter how often frames are rendered, so the physics
+ * behaves the same on 60Hz, 90Hz and 120Hz displays. Time left over after the last
+ * whole tick is carried in an accumulator and handed to the renderer as an
+ * interpolation factor between the previous and the current game state.
+ *
+ * The loop knows nothing about Android so it can be driven by a fake clock in unit tests.
+ */
+
+final class GameLoop {
+
+    /**
+     * The source of time for the loop.
+     */
+    interface Clock {
+        /**
+         * @return A monotonic timestamp in nanoseconds.
+         */
+        long nanoTime();
+
+        /**
+         * Post: The calling thread has been parked until at least deadlineNanos, or it was interrupted.
+         * @param deadlineNanos A timestamp from nanoTime().
+         */
+        void sleepUntil(long deadlineNanos) throws InterruptedException;
+    }
+
+    /**
+     * The game being driven by the loop.
+     */
+    interface Game {
+        /**
+         * Pre: Exactly one tick of game time has passed.
+         * @param tickTime The time on the loop's clock that the game state stands for once
+         *                 this update is done.
+         */
+        void update(long tickTime);
+
+        /**
+         * Pre: The game state is valid.
+         * @param interpolation How far between the previous tick and the current tick
+         *                      the frame is, from 0 inclusive to 1 exclusive.
+         */
+        void render(double interpolation);
+
+        /**
+         * Pre: Called on the loop's thread right after a frame.
+         * @return True if nothing will change on screen until the scheduler is woken: the last
+         *         frame drew nothing new, nothing moves and no input is waiting.
+         */
+        boolean isIdle();
+    }
+
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void sleepUntil(long deadlineNanos) throws InterruptedException {
+            long remaining = deadlineNanos - System.nanoTime();
+            if( remaining > 0 ) {
+                Thread.sleep(remaining / NANOSECONDS_PER_MILLISECOND, (int) (remaining % NANOSECONDS_PER_MILLISECOND));
+            }
+        }
+    };
+
+    static final long NANOSECONDS_PER_SECOND = 1000000000L;
+    private static final long NANOSECONDS_PER_MILLISECOND = 1000000L;
+
+    /* If the device falls far behind (debugger, garbage collection, the app being paused)
+    don't try to catch up by running hundreds of ticks in a row. That would make the
+    next frame even later and the loop would never recover. */
+    static final int MAX_TICKS_PER_FRAME = 5;
+
+    private final Clock mClock;
+    private final Game mGame;
+    private final FrameMetrics mMetrics;
+    private final long mTickNanos;
+
+    private long mFrameNanos;
+    private boolean mFrameRateCapped = false;
+    private long mLastFrameTime = 0;
+    private boolean mRendered = false;
+    private long mAccumulator = 0;
+    private long mPreviousTime = 0;
+    private long mNextFrameDeadline = 0;
+    private long mTickCount = 0;
+    private boolean mStarted = false;
+
+    /**
+     * @param clock The source of time. Cannot be null.
+     * @param game The game to update and render. Cannot be null.
+     * @param ticksPerSecond The number of times game.update() is called in a second.
+     */
+    GameLoop(Clock clock, Game game, int ticksPerSecond) {
+        this(clock, game, ticksPerSecond, new FrameMetrics(NANOSECONDS_PER_SECOND / ticksPerSecond));
+    }
+
+    /**
+     * @param clock The source of time. Cannot be null.
+     * @param game The game to update and render. Cannot be null.
+     * @param ticksPerSecond The number of times game.update() is called in a second.
+     * @param metrics Where the time spent on each frame is recorded. Cannot be null.
+     */
+    GameLoop(Clock clock, Game game, int ticksPerSecond, FrameMetrics metrics) {
+        assert clock != null;
+        assert game != null;
+        assert ticksPerSecond > 0;
+        assert metrics != null;
+
+        mClock = clock;
+        mGame = game;
+        mMetrics = metrics;
+        mTickNanos = NANOSECONDS_PER_SECOND / ticksPerSecond;
+        mFrameNanos = mTickNanos;
+    }
+
+    /**
+     * Post: runFrame() renders at most framesPerSecond times a second and isFrameDue() skips
+     * frames to keep to it. Game logic still ticks at the rate given to the constructor.
+     * 0 removes the cap, runFrame() renders once a tick and every frame is due.
+     */
+    final void setTargetFrameRate(int framesPerSecond) {
+        assert framesPerSecond >= 0;
+        mFrameRateCapped = framesPerSecond > 0;
+        mFrameNanos = mFrameRateCapped ? NANOSECONDS_PER_SECOND / framesPerSecond : mTickNanos;
+    }
+
+    /**
+     * For callers that are told when to render, like a vsync callback, instead of sleeping in runFrame().
+     * @param now The current time from the loop's clock.
+     * @return True if a frame should be rendered now to keep to the target frame rate. A frame
+     *         up to a quarter of a frame early is still due, so jitter doesn't halve the rate.
+     */
+    final boolean isFrameDue(long now) {
+        return !mFrameRateCapped || !mRendered || now - mLastFrameTime >= mFrameNanos - mFrameNanos / 4;
+    }
+
+    /**
+     * Pre: The loop is not being run by another thread.
+     * Post: Game logic has caught up with the clock and the game has been rendered once.
+     *       The thread slept until the next frame is due.
+     */
+    final void runFrame() throws InterruptedException {
+        renderFrame(mClock.nanoTime());
+
+        final long now = mClock.nanoTime();
+        mNextFrameDeadline += mFrameNanos;
+        if( mNextFrameDeadline < now ) {
+            //The frame ran late. Start counting from now instead of rendering a burst of frames.
+            mNextFrameDeadline = now;
+        } else {
+            mClock.sleepUntil(mNextFrameDeadline);
+        }
+    }
+
+    /**
+     * Post: Game logic has caught up with gameTime, the game has been rendered once and the
+     *       time it took has been recorded in the frame metrics.
+     * @param gameTime The time to advance game logic to, from the loop's clock.
+     */
+    final void renderFrame(long gameTime) {
+        final long start = mClock.nanoTime();
+        mMetrics.beginFrame();
+
+        final double interpolation = advance(gameTime);
+        mGame.render(interpolation);
+        mLastFrameTime = gameTime;
+        mRendered = true;
+
+        final long end = mClock.nanoTime();
+        mMetrics.endFrame(end - start, end);
+    }
+
+    /**
+     * Post: game.update() has been called once for every whole tick that passed since the
+     *       last call, up to MAX_TICKS_PER_FRAME.
+     * @param now The current time from the loop's clock.
+     * @return The interpolation factor to render the current frame with.
+     */
+    final double advance(long now) {
+        if( !mStarted ) {
+            mStarted = true;
+            mPreviousTime = now;
+            mNextFrameDeadline = now;
+        }
+
+        long elapsed = now - mPreviousTime;
+        mPreviousTime = now;
+        if( elapsed < 0 ) {
+            elapsed = 0;
+        }
+
+        mAccumulator += elapsed;
+        int ticks = 0;
+        while( mAccumulator >= mTickNanos && ticks < MAX_TICKS_PER_FRAME ) {
+            final long updateStart = mClock.nanoTime();
+            mGame.update(now - mAccumulator + mTickNanos);
+            mMetrics.addTime(FrameMetrics.UPDATE, mClock.nanoTime() - updateStart);
+            mAccumulator -= mTickNanos;
+            mTickCount++;
+            ticks++;
+        }
+
+        if( mAccumulator >= mTickNanos ) {
+            //Drop the time that could not be simulated
+            mAccumulator = mAccumulator % mTickNanos;
+        }
+
+        return (double) mAccumulator / mTickNanos;
+    }
+
+    /**
+     * Post: The next call to advance() or runFrame() will not run any ticks for the
+     *       time that passed before this call.
+     */
+    final void reset() {
+        mStarted = false;
+        mAccumulator = 0;
+        mRendered = false;
+    }
+
+    /**
+     * @return The number of times game.update() has been called.
+     */
+    final long getTickCount() {
+        return mTickCount;
+    }
+
+    /**
+     * @return Where the time spent on each frame is recorded.
+     */
+    final FrameMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * @return The length of a single tick in nanoseconds.
+     */
+    final long getTickNanos() {
+        return mTickNanos;
+    }
+}
@@ -1,115 +1,788 @@
 package com.tobiascarryer.inoball;
 
 import android.app.Activity;
-import android.graphics.BitmapFactory;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.util.Log;
 import android.view.MotionEvent;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * Created by Tobias Carryer on 2017-04-17.
  *
  * The panel holding all game events. It is running a thread which calls
  * the methods necessary to execute game logic and draw objects.
- * The game panel also defines the width and height of the game to be
- * equal to the dimensions of the screen. This may post an issue if the game
- * were to be allowed to run in split screen.
+ * The game is played in a world of the same width on every screen, see Viewport.
+ * Frames are drawn into a render buffer whose size depends on the quality setting
+ * and the compositor scales it up to the screen. While nothing moves, such as before the
+ * first tap or after a game ends, no frames are produced until something wakes the scheduler.
  */
 
-final class GamePanel extends SurfaceView implements SurfaceHolder.Callback {
-    static int WIDTH = 128; //Arbitrary filler value
-    static int HEIGHT = 128; //Arbitrary filler value
+final class GamePanel extends SurfaceView implements SurfaceHolder.Callback, GameLoop.Game, InputQueue.Listener,
+        QualityGovernor.Listener {
+
+    //Time frames to the display's vsync signal when the device supports it
+    static final boolean VSYNC_SCHEDULING = true;
+
+    //Draw on a GPU accelerated canvas when the device supports it, in software otherwise
+    static final boolean HARDWARE_RENDERING = true;
+
+    //Lower the quality in steps when frames take too long, and raise it again once they are quick
+    static final boolean ADAPTIVE_QUALITY = true;
+    private static final String QUALITY_GOVERNOR_TAG = "QualityGovernor";
+
+    //Show frame times on screen and log them every few seconds in debug builds
+    static final boolean SHOW_FRAME_METRICS = BuildConfig.DEBUG;
+    private static final long FRAME_METRICS_LOG_INTERVAL = 5 * GameLoop.NANOSECONDS_PER_SECOND;
+
+    //Taps waiting for the next tick. Far more than anyone can tap between two ticks.
+    private static final int INPUT_QUEUE_CAPACITY = 64;
+    private static final long NANOSECONDS_PER_MILLISECOND = 1000000L;
+    private static final long TICK_NANOS = GameLoop.NANOSECONDS_PER_SECOND / MainThread.FPS;
+
+    //Sparks on every scoring tap and when the game ends. The pool never grows past its capacity.
+    private static final int PARTICLE_CAPACITY = 2048;
+    private static final float PARTICLE_SIZE = 6;
+    private static final int TAP_PARTICLES = 24;
+    private static final int GAME_OVER_PARTICLES = 160;
+    private static final int PARTICLE_LIFE_TICKS = MainThread.FPS * 3/4;
 
-    private MainThread thread;
+    private static final String SESSION_LOG_FILE = "sessions";
+    private static final String RENDER_QUALITY_KEY = "RENDER_QUALITY_KEY";
+
+    //Record the games played in debug builds so they can be replayed with a Replayer
+    static final boolean RECORD_GAMES = BuildConfig.DEBUG;
+    private static final String REPLAY_FILE = "last_games.replay";
+
+    private FrameScheduler mScheduler;
+    //Only used on the UI thread, frames are produced while the activity is resumed and the surface exists
+    private boolean mSchedulerStarted = false;
+    private boolean mResumed = false;
+    private boolean mSurfaceReady = false;
+    //Set when the surface is created again, the new surface holds nothing of the last frame
+    private boolean mFullRedrawNeeded = false;
+    //True if the last frame found nothing to redraw, guarded by the surface holder's lock
+    private boolean mLastFrameUnchanged = false;
+    //Only changed while the game loop is parked, between a surface being destroyed and the next one created
+    private RenderBackend mRenderBackend;
+    //Set when the hardware backend failed, nothing is drawn until the surface has been replaced
+    private boolean mReplacingSurface = false;
     private Background mBg;
     private ScoreManager mScoreManager;
     private Ball mBall;
-    private Activity mActivity;
+    private final int mBallCount;
+    private BallSystem mBalls;
+    private BallSystemRenderer mBallsRenderer;
+    private ParticleSystem mParticles;
+    private ParticleRenderer mParticlesRenderer;
+    private AssetLoader mAssetLoader;
+    private final GameRandom mRandom = new GameRandom();
+    private final InputQueue mInput = new InputQueue(INPUT_QUEUE_CAPACITY);
+    private final FrameMetrics mFrameMetrics = new FrameMetrics(TICK_NANOS);
+    private FrameMetricsOverlay mFrameMetricsOverlay;
+    private final QualityGovernor mQualityGovernor;
+    private final SessionTracker mSessionTracker = new SessionTracker(mFrameMetrics);
+    private final SessionHistory mSessionHistory;
+    private final File mReplayFile;
+    private Recorder mRecorder;
+
+    private Viewport mViewport;
+    private QualityButton mQualityButton;
+    private final String[] mQualityLabels;
+    private final SharedPreferences mPreferences;
+    //Only used on the UI thread. The render buffer is sized for whichever of the two is cheaper.
+    private int mQuality;
+    private int mGovernedQuality = Viewport.QUALITY_HIGH;
+
+    //Reused every frame to find the part of the screen that needs to be redrawn
+    private final DirtyRegion mDirtyRegion = new DirtyRegion();
+    private final Rect mDirtyRect = new Rect();
 
     public GamePanel(Activity activity) {
+        this(activity, 1);
+    }
+
+    /**
+     * @param ballCount The number of balls in play. More than one ball is a multi-ball game
+     *                  where every tap on a ball scores and any ball falling ends the game.
+     */
+    public GamePanel(Activity activity, int ballCount) {
         super(activity);
+        assert ballCount > 0;
+        mBallCount = ballCount;
 
         //Add the callback to the surfaceholder to intercept events
         getHolder().addCallback(this);
 
-        thread = new MainThread(getHolder(), this);
+        if( SHOW_FRAME_METRICS ) {
+            mFrameMetrics.setLogInterval(FRAME_METRICS_LOG_INTERVAL);
+        }
+        mQualityGovernor = new QualityGovernor(QualityGovernor.defaultTiers(),
+                QualityGovernor.Config.forTickRate(MainThread.FPS), this);
+        if( ADAPTIVE_QUALITY ) {
+            mFrameMetrics.setFrameListener(mQualityGovernor);
+        }
+        mScheduler = createFrameScheduler();
+        mRenderBackend = createRenderBackend();
+        //Label the frame times so both backends can be compared on the same device
+        mFrameMetrics.setLabel(mRenderBackend.getName());
         mScoreManager = new ScoreManager(activity);
-        mActivity = activity;
+        //The writer runs in order, so this runs once the high score has been read and can be drawn
+        DiskWriter.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                mScheduler.wake();
+            }
+        });
+        mSessionHistory = new SessionHistory(new File(activity.getFilesDir(), SESSION_LOG_FILE), DiskWriter.get());
+        mReplayFile = new File(activity.getFilesDir(), REPLAY_FILE);
+        mAssetLoader = new AssetLoader(new SpriteCache(getResources(), spriteCacheBytes()));
+
+        mPreferences = activity.getPreferences(Context.MODE_PRIVATE);
+        final int quality = mPreferences.getInt(RENDER_QUALITY_KEY, Viewport.QUALITY_HIGH);
+        mQuality = Viewport.isQuality(quality) ? quality : Viewport.QUALITY_HIGH;
+        mQualityLabels = new String[] {getResources().getString(R.string.quality_high),
+                getResources().getString(R.string.quality_medium), getResources().getString(R.string.quality_low)};
 
         //Make gamePanel focusable so it can handle events
         setFocusable(true);
     }
 
+    /**
+     * Post: Frames are drawn into a render buffer of the new size. The world keeps its size.
+     */
     @Override
-    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height){}
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height){
+        synchronized (holder) {
+            if( mViewport != null ) {
+                mViewport.setViewSize(getWidth(), getHeight());
+                mViewport.setBufferSize(width, height);
+                mFullRedrawNeeded = true;
+            }
+        }
+        //The loop may be idle with nothing drawn at the new size
+        mScheduler.wake();
+    }
 
-    @Override
-    public void surfaceDestroyed(SurfaceHolder holder){
-        boolean retry = true;
-        while(retry) {
-            try {
-                thread.setRunning(false);
-                thread.join();
-            } catch(InterruptedException e) {
-                e.printStackTrace();
+    /**
+     * Pre: The activity holding the panel is being paused.
+     * Post: The game loop is parked with the game kept as it is. The high score is being saved,
+     *       the process may be killed any time after this.
+     */
+    final void onPause() {
+        mResumed = false;
+        updateScheduler();
+        mScoreManager.saveHighScore();
+        saveRecording();
+    }
+
+    /**
+     * Pre: The activity holding the panel is being resumed.
+     * Post: The game loop carries on where it was paused if the surface exists.
+     */
+    final void onResume() {
+        mResumed = true;
+        updateScheduler();
+    }
+
+    /**
+     * Pre: The activity holding the panel is being destroyed.
+     * Post: The game loop's thread has finished.
+     */
+    final void onDestroy() {
+        if( mSchedulerStarted ) {
+            mScheduler.shutdown();
+        }
+    }
+
+    /**
+     * Pre: Called on the UI thread.
+     * Post: Frames are being produced if the activity is resumed and the surface exists,
+     *       otherwise the game loop is parked. Its thread is only started once.
+     */
+    private void updateScheduler() {
+        if( mResumed && mSurfaceReady ) {
+            if( !mSchedulerStarted ) {
+                mSchedulerStarted = true;
+                mScheduler.start();
+            } else {
+                mScheduler.unpark();
             }
+        } else if( mSchedulerStarted ) {
+            mScheduler.park();
+        }
+    }
 
-            retry = false;
+    /**
+     * Post: The games played since the world was created are being written to REPLAY_FILE
+     *       in the background, replacing the last recording.
+     */
+    private void saveRecording() {
+        final byte[] recording;
+        synchronized (getHolder()) {
+            if( mRecorder == null ) {
+                return;
+            }
+            recording = mRecorder.toByteArray();
         }
+        DiskWriter.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                OutputStream out = null;
+                try {
+                    out = new FileOutputStream(mReplayFile);
+                    out.write(recording);
+                } catch (IOException e) {
+                    Log.e("ERROR", "Could not save the recording.", e);
+                } finally {
+                    if( out != null ) {
+                        try {
+                            out.close();
+                        } catch (IOException e) {
+                            Log.e("ERROR", "Could not save the recording.", e);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Post: The game loop is parked and no longer draws on the surface. The game is kept.
+     */
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder){
+        mSurfaceReady = false;
+        updateScheduler();
     }
 
+    /**
+     * Post: The game is drawn on the new surface. It is created the first time, afterwards
+     *       the game, its sprites and the loop's thread are kept from before the surface was destroyed.
+     */
     @Override
     public void surfaceCreated(SurfaceHolder holder){
+        if( mViewport == null ) {
+            createWorld(holder);
+        } else {
+            synchronized (holder) {
+                mViewport.setViewSize(getWidth(), getHeight());
+                setBufferSizeFromSurface(holder);
+                mFullRedrawNeeded = true;
+                if( mReplacingSurface ) {
+                    //The new surface has never been drawn on by the GPU renderer
+                    mReplacingSurface = false;
+                    mRenderBackend = new SoftwareRenderBackend();
+                    mFrameMetrics.setLabel(mRenderBackend.getName());
+                }
+            }
+        }
+
+        mSurfaceReady = true;
+        updateScheduler();
+    }
+
+    /**
+     * Post: The render buffer has the size of the holder's surface.
+     */
+    private void setBufferSizeFromSurface(SurfaceHolder holder) {
+        final Rect surfaceFrame = holder.getSurfaceFrame();
+        mViewport.setBufferSize(Math.max(1, surfaceFrame.width()), Math.max(1, surfaceFrame.height()));
+    }
+
+    /**
+     * Pre: Called on the UI thread before the game loop has started.
+     * Post: The world fits the view, the balls are in their starting positions and the sprites are loading.
+     */
+    private void createWorld(SurfaceHolder holder) {
         //Set the dimensions of the game
-        WIDTH = getWidth();
-        HEIGHT = getHeight();
+        mViewport = new Viewport(getWidth(), getHeight());
+        setBufferSizeFromSurface(holder);
+        final int worldWidth = mViewport.getWorldWidth();
+        final int worldHeight = mViewport.getWorldHeight();
+
+        //Draw fewer pixels than the screen has at lower qualities, surfaceChanged() follows
+        holder.setFixedSize(mViewport.getBufferWidthFor(getBufferQuality()), mViewport.getBufferHeightFor(getBufferQuality()));
 
         //Set the background
-        mBg = new Background(BitmapFactory.decodeResource(getResources(), R.drawable.bg), getWidth(), getHeight());
+        mBg = new Background(worldWidth, worldHeight);
+        mScoreManager.resize(worldWidth, worldHeight);
+        mQualityButton = new QualityButton(mQualityLabels, mQuality, worldWidth, worldHeight);
+
+        //Create the balls
+        final long randomState = mRandom.getState();
+        final int radius = isMultiBall() ? multiBallRadius(worldWidth, mBallCount) : worldWidth/4;
+        if( isMultiBall() ) {
+            mBalls = new BallSystem(worldWidth, worldHeight, radius, MainThread.FPS, mBallCount, mRandom);
+            for( int i = 0; i < mBallCount; i++ ) {
+                mBalls.add();
+            }
+            mBallsRenderer = new BallSystemRenderer(mBalls, mBallCount);
+        } else {
+            mBall = new Ball(new BallPhysics(worldWidth, worldHeight, radius, MainThread.FPS, mRandom));
+            mBall.resetToStartingPosition();
+        }
+        //The particles have their own generator so they don't change how the game plays
+        mParticles = new ParticleSystem(worldWidth, worldHeight, MainThread.FPS, PARTICLE_CAPACITY, new GameRandom());
+        mParticlesRenderer = new ParticleRenderer(mParticles, PARTICLE_SIZE);
+
+        if( RECORD_GAMES ) {
+            mRecorder = new Recorder(randomState, worldWidth, worldHeight, MainThread.FPS, mBallCount, radius);
+        }
+
+        if( SHOW_FRAME_METRICS ) {
+            mFrameMetricsOverlay = new FrameMetricsOverlay(mFrameMetrics, worldWidth, worldHeight);
+        }
+
+        /* Decode the images in the background. The game loop starts right away and draws
+        a placeholder until they are ready. */
+        loadSprite(Background.TILE, mBg);
+        if( isMultiBall() ) {
+            loadSprite(mBallsRenderer.getSpriteKey(), mBallsRenderer);
+        } else {
+            loadSprite(mBall.getSpriteKey(), mBall);
+        }
+    }
 
-        //Create the ball
-        mBall = new Ball(getResources(), WIDTH/4, MainThread.FPS);
-        mBall.resetToStartingPosition();
+    /**
+     * Post: The sprite is being loaded for target. The scheduler is woken once it arrives so an
+     *       idle game loop draws it.
+     */
+    private void loadSprite(SpriteCache.Key key, final AssetLoader.Target target) {
+        mAssetLoader.load(key, new AssetLoader.Target() {
+            @Override
+            public void onSpriteLoaded(Bitmap sprite) {
+                target.onSpriteLoaded(sprite);
+                mScheduler.wake();
+            }
+        });
+    }
 
-        //Start the game loop
-        thread.setRunning(true);
-        thread.start();
+    /**
+     * @return True if the game is played with a BallSystem instead of a single Ball.
+     */
+    private boolean isMultiBall() {
+        return mBallCount > 1;
+    }
+
+    /**
+     * @return A radius that shrinks as more balls share the screen, at least a few pixels.
+     */
+    static int multiBallRadius(int width, int ballCount) {
+        final int perRow = (int) Math.ceil(Math.sqrt(ballCount));
+        return Math.max(width / 4 / perRow, 4);
+    }
+
+    /**
+     * @return The memory budget for decoded sprites, an eighth of what the app may use.
+     */
+    private static int spriteCacheBytes() {
+        return (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return A vsync driven scheduler if it is enabled and supported, otherwise a timed game loop thread.
+     */
+    private FrameScheduler createFrameScheduler() {
+        if( VSYNC_SCHEDULING && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN ) {
+            return new VsyncFrameScheduler(this, MainThread.FPS, mFrameMetrics);
+        }
+        return new MainThread(this, mFrameMetrics);
+    }
+
+    /**
+     * @return A hardware accelerated backend if it is enabled and supported, otherwise a software one.
+     */
+    private static RenderBackend createRenderBackend() {
+        if( HARDWARE_RENDERING && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ) {
+            return new HardwareRenderBackend();
+        }
+        return new SoftwareRenderBackend();
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        //Only perform an action when the tap is first registered
+        /* Only perform an action when the tap is first registered. The game thread handles it
+        at the start of its next tick. The event time uses the same monotonic clock as
+        System.nanoTime(), only in milliseconds. If the queue is full the game thread is stuck
+        and the tap is dropped. */
         if( event.getAction() == MotionEvent.ACTION_DOWN ) {
-            final int tapX = (int) (event.getX() * getWidth()/GamePanel.WIDTH);
-            final int tapY = (int) (event.getY() * getHeight()/GamePanel.HEIGHT);
-            final int a = tapX - mBall.getCenterX();
-            final int b = tapY - mBall.getCenterY();
-            double tapDistanceFromBall = Math.sqrt(a*a + b*b);
-            if( tapDistanceFromBall <= mBall.getRadius() ) {
-                mBall.wasTapped(mScoreManager, MainThread.FPS, mActivity);
-            }
+            mInput.offer(event.getEventTime() * NANOSECONDS_PER_MILLISECOND, event.getX(), event.getY());
+            mScheduler.wake();
         }
 
         return false;
     }
 
+    /**
+     * Pre: Called on the game thread while it holds the surface holder's lock.
+     * Post: The ball under the tap, if any, has jumped and the score went up. A tap on the
+     *       quality button that misses every ball switches to the next quality instead.
+     * @param x Where the view was tapped, in view pixels.
+     * @param y Where the view was tapped, in view pixels.
+     */
+    @Override
+    public void onTap(long timeNanos, float x, float y) {
+        final int tapX = mViewport.toWorldX(x);
+        final int tapY = mViewport.toWorldY(y);
+
+        /* The tap was checked against where the ball was on screen when it happened. Frames
+        are drawn up to a tick behind the game so they can interpolate between ticks. */
+        int tapped = -1;
+        if( isMultiBall() ) {
+            tapped = mBalls.findBallAt(tapX, tapY);
+        } else if( mBall.containedAt(timeNanos - TICK_NANOS, tapX, tapY) ) {
+            tapped = 0;
+        }
+        if( tapped < 0 && mQualityButton.contains(tapX, tapY) ) {
+            //The balls fly over the button, so it only takes taps that missed them
+            setQuality(Viewport.nextQuality(mQualityButton.getQuality()));
+            return;
+        }
+
+        boolean scored = false;
+        if( isMultiBall() ) {
+            if( tapped >= 0 && mBalls.tap(tapped) ) {
+                mScoreManager.increaseScore();
+                scored = true;
+            }
+        } else if( tapped == 0 ) {
+            scored = mBall.wasTapped(mScoreManager);
+        }
+        if( scored ) {
+            mParticles.burst(tapX, tapY, TAP_PARTICLES, mViewport.getWorldWidth() / 2, PARTICLE_LIFE_TICKS);
+        }
+        if( mRecorder != null ) {
+            mRecorder.onTap(tapX, tapY, tapped);
+        }
+        mSessionTracker.onTap(timeNanos, scored);
+    }
+
+    /**
+     * Pre: Called on the game thread while it holds the surface holder's lock.
+     * Post: The button shows the new quality. The setting is saved and the render buffer
+     *       resized on the UI thread.
+     */
+    private void setQuality(final int quality) {
+        mQualityButton.setQuality(quality);
+        post(new Runnable() {
+            @Override
+            public void run() {
+                mQuality = quality;
+                mPreferences.edit().putInt(RENDER_QUALITY_KEY, quality).apply();
+                resizeBuffer();
+            }
+        });
+    }
+
+    /**
+     * Pre: Called on the UI thread.
+     * @return The cheaper of the quality the player chose and the one the governor allows.
+     */
+    private int getBufferQuality() {
+        //Higher QUALITY constants draw fewer pixels
+        return Math.max(mQuality, mGovernedQuality);
+    }
+
+    /**
+     * Pre: Called on the UI thread after the world was created.
+     * Post: The render buffer is being resized for getBufferQuality().
+     */
+    private void resizeBuffer() {
+        final int quality = getBufferQuality();
+        final int bufferWidth;
+        final int bufferHeight;
+        synchronized (getHolder()) {
+            bufferWidth = mViewport.getBufferWidthFor(quality);
+            bufferHeight = mViewport.getBufferHeightFor(quality);
+        }
+        getHolder().setFixedSize(bufferWidth, bufferHeight);
+    }
+
+    /**
+     * Pre: Called on the game loop's thread.
+     * Post: The game is drawn with the tier's settings. The render buffer is resized on the UI thread.
+     */
+    @Override
+    public void onTierChanged(QualityGovernor.Tier from, final QualityGovernor.Tier to, String trigger) {
+        Log.i(QUALITY_GOVERNOR_TAG, "Quality " + from.name + " -> " + to.name + ": " + trigger);
+
+        mBg.setDetailed(to.backgroundDetail);
+        mParticles.setLimit(Math.max(1, (int) (mParticles.getCapacity() * to.particleBudget)));
+        mScheduler.setTargetFrameRate(to.framesPerSecond);
+        post(new Runnable() {
+            @Override
+            public void run() {
+                mGovernedQuality = to.renderQuality;
+                resizeBuffer();
+            }
+        });
+    }
+
+    /**
+     * Post: The ball jumps the same way every time a game is played with this seed.
+     */
+    final void setSeed(long seed) {
+        synchronized (getHolder()) {
+            mRandom.setSeed(seed);
+        }
+    }
+
+    /**
+     * @return The seed of the current game.
+     */
+    final long getSeed() {
+        return mRandom.getSeed();
+    }
+
+    /**
+     * @return The frame time statistics of the game loop. Only read them from the game loop's thread.
+     */
+    final FrameMetrics getFrameMetrics() {
+        return mFrameMetrics;
+    }
+
     /**
      * Pre: A frame has passed in the game.
+     * Post: Taps since the last tick have been handled, then the balls and particles moved.
+     *       The tick has been recorded.
      */
-    public final void update() {
-        mBall.update(mScoreManager);
+    @Override
+    public final void update(long tickTime) {
+        synchronized (getHolder()) {
+            mInput.drain(this);
+            mParticles.update();
+            final int score = mScoreManager.getScore();
+            if( !isMultiBall() ) {
+                //The ball is back at the start once update() says it fell
+                final float ballX = (float) mBall.getPhysics().getCenterX();
+                if( mBall.update(mScoreManager, tickTime) ) {
+                    burstGameOver(ballX);
+                    endSession(tickTime, score);
+                }
+            } else if( mBalls.update() > 0 ) {
+                //Any ball falling ends the game
+                final int radius = mBalls.getRadius();
+                for( int i = 0; i < mBalls.getCount(); i++ ) {
+                    if( mBalls.getY(i) > mViewport.getWorldHeight() ) {
+                        burstGameOver((float) mBalls.getX(i) + radius);
+                    }
+                }
+                mBalls.resetAll();
+                mScoreManager.resetScore();
+                endSession(tickTime, score);
+            }
+            if( mRecorder != null ) {
+                mRecorder.onTick(isMultiBall() ? mBalls.fingerprint() : mBall.getPhysics().fingerprint());
+            }
+        }
+    }
+
+    /**
+     * Post: Sparks fly up from the bottom of the world where a ball fell.
+     */
+    private void burstGameOver(float x) {
+        mParticles.burst(x, mViewport.getWorldHeight() - PARTICLE_SIZE, GAME_OVER_PARTICLES,
+                mViewport.getWorldHeight(), PARTICLE_LIFE_TICKS * 2);
     }
 
+    /**
+     * Post: The game that just ended is being recorded in the background.
+     * @param score The score the game ended with.
+     */
+    private void endSession(long tickTime, int score) {
+        final Session session = mSessionTracker.finish(tickTime, System.currentTimeMillis(), score);
+        if( session != null ) {
+            mSessionHistory.record(session);
+        }
+    }
+
+    /**
+     * @return Every game that has been played. Never wait for its answers on the UI or render thread.
+     */
+    final SessionHistory getSessionHistory() {
+        return mSessionHistory;
+    }
+
+    /**
+     * Pre: The surface has been created.
+     * Post: The parts of the screen that changed have been redrawn and posted to the screen.
+     * @param interpolation How far between the previous and the current tick the frame is.
+     */
     @Override
-    public void draw(Canvas canvas) {
-        super.draw(canvas);
+    public final void render(double interpolation) {
+        final SurfaceHolder surfaceHolder = getHolder();
+        final RenderBackend backend = mRenderBackend;
+        Canvas canvas = null;
+
+        try {
+            synchronized (surfaceHolder) {
+                if( mReplacingSurface ) {
+                    return;
+                }
+                interpolateBalls(interpolation);
+                mParticlesRenderer.interpolate(interpolation);
+                if( mFrameMetricsOverlay != null ) {
+                    mFrameMetricsOverlay.refresh(System.nanoTime());
+                }
 
-        if( canvas != null ) {
-            //The later a draw event is called, the higher it will be layered on the screen
-            mBg.draw(canvas);
-            mScoreManager.draw(canvas, getResources());
+                mDirtyRegion.setEmpty();
+                mBg.reportDirtyRegion(mDirtyRegion);
+                mScoreManager.reportDirtyRegion(mDirtyRegion);
+                if( isMultiBall() ) {
+                    mBallsRenderer.reportDirtyRegion(mDirtyRegion);
+                } else {
+                    mBall.reportDirtyRegion(mDirtyRegion);
+                }
+                mParticlesRenderer.reportDirtyRegion(mDirtyRegion);
+                mQualityButton.reportDirtyRegion(mDirtyRegion);
+                if( mFrameMetricsOverlay != null ) {
+                    mFrameMetricsOverlay.reportDirtyRegion(mDirtyRegion);
+                }
+                mDirtyRegion.clipTo(mViewport.getWorldWidth(), mViewport.getWorldHeight());
+                mLastFrameUnchanged = mDirtyRegion.isEmpty() && !mFullRedrawNeeded;
+                if( mLastFrameUnchanged ) {
+                    //Nothing moved, the last frame is still on screen
+                    return;
+                }
+                if( backend.isFullRedraw() || mFullRedrawNeeded ) {
+                    mDirtyRect.set(0, 0, mViewport.getBufferWidth(), mViewport.getBufferHeight());
+                    mFullRedrawNeeded = false;
+                } else {
+                    //The region is in world units, the surface is locked in render buffer pixels
+                    mDirtyRect.set(mViewport.toBufferLeft(mDirtyRegion.getLeft()),
+                            mViewport.toBufferTop(mDirtyRegion.getTop()),
+                            mViewport.toBufferRight(mDirtyRegion.getRight()),
+                            mViewport.toBufferBottom(mDirtyRegion.getBottom()));
+                }
+
+                /* Start editing the pixels. The backend may grow mDirtyRect if it can't keep the
+                rest of the previous frame, and the canvas is clipped to whatever it returns. */
+                final long lockStart = System.nanoTime();
+                try {
+                    canvas = backend.lockCanvas(surfaceHolder, mDirtyRect);
+                } catch (RuntimeException e) {
+                    if( backend instanceof SoftwareRenderBackend ) {
+                        throw e;
+                    }
+                    fallBackToSoftware(backend, e);
+                    return;
+                }
+                final long drawStart = System.nanoTime();
+                mFrameMetrics.addTime(FrameMetrics.LOCK_POST, drawStart - lockStart);
+
+                //Redraw the pixels, lockCanvas must be called before this
+                if( canvas != null ) {
+                    drawObjects(canvas, mViewport.getBufferScaleX(), mViewport.getBufferScaleY());
+                }
+                mFrameMetrics.addTime(FrameMetrics.DRAW, System.nanoTime() - drawStart);
+            }
+        } finally {
+            if( canvas != null ) {
+                final long postStart = System.nanoTime();
+                try {
+                    backend.unlockCanvasAndPost(surfaceHolder, canvas);
+                } catch (RuntimeException e) {
+                    if( backend instanceof SoftwareRenderBackend ) {
+                        e.printStackTrace();
+                    } else {
+                        synchronized (surfaceHolder) {
+                            fallBackToSoftware(backend, e);
+                        }
+                    }
+                }
+                mFrameMetrics.addTime(FrameMetrics.LOCK_POST, System.nanoTime() - postStart);
+            }
+        }
+    }
+
+    /**
+     * Pre: Called on the game loop's thread right after a frame.
+     * @return True if the last frame drew nothing and nothing will change before the next
+     *         wake: the balls stand still, no sparks are flying and no tap is waiting.
+     */
+    @Override
+    public final boolean isIdle() {
+        synchronized (getHolder()) {
+            if( !mLastFrameUnchanged || mFullRedrawNeeded || mParticles.getCount() > 0 || mInput.hasPending() ) {
+                return false;
+            }
+            if( !isMultiBall() ) {
+                return !mBall.getPhysics().isMoving();
+            }
+            for( int i = 0; i < mBalls.getCount(); i++ ) {
+                if( mBalls.isMoving(i) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Pre: Called on the game loop's thread while it holds the surface holder's lock.
+     * Post: Nothing is drawn until the surface has been replaced on the UI thread, then frames
+     *       are drawn in software starting with the whole screen. The GPU renderer may still be
+     *       connected to the old surface, so software never tries to lock it.
+     * @param failed The backend that couldn't give or post a canvas.
+     */
+    private void fallBackToSoftware(RenderBackend failed, RuntimeException e) {
+        Log.e("ERROR", "The " + failed.getName() + " renderer failed, drawing in software on a new surface.", e);
+        mReplacingSurface = true;
+        post(new Runnable() {
+            @Override
+            public void run() {
+                //Hiding the view destroys its surface and showing it again creates a new one
+                setVisibility(INVISIBLE);
+                setVisibility(VISIBLE);
+            }
+        });
+    }
+
+    /**
+     * @param interpolation How far between the previous and the current tick the frame is.
+     */
+    private void interpolateBalls(double interpolation) {
+        if( isMultiBall() ) {
+            mBallsRenderer.interpolate(interpolation);
+        } else {
+            mBall.interpolate(interpolation);
+        }
+    }
+
+    /**
+     * @param canvas The canvas to draw on. Cannot be null.
+     * @param scaleX How many of the canvas's pixels one unit of the world is across.
+     * @param scaleY How many of the canvas's pixels one unit of the world is down.
+     */
+    private void drawObjects(Canvas canvas, float scaleX, float scaleY) {
+        //Everything draws in world units
+        canvas.save();
+        canvas.scale(scaleX, scaleY);
+
+        //The later a draw event is called, the higher it will be layered on the screen
+        mBg.draw(canvas);
+        mScoreManager.draw(canvas, getResources());
+        if( isMultiBall() ) {
+            mBallsRenderer.draw(canvas);
+        } else {
             mBall.draw(canvas);
         }
+        mParticlesRenderer.draw(canvas);
+        mQualityButton.draw(canvas);
+        if( mFrameMetricsOverlay != null ) {
+            mFrameMetricsOverlay.draw(canvas);
+        }
+        canvas.restore();
     }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * A small, fast and seedable source of random numbers for the game (the SplitMix64 generator).
+ *
+ * Unlike java.util.Random it has no locking or atomic updates and drawing a number never
+ * allocates. Two generators given the same seed produce the same numbers, which makes a
+ * game reproducible. Not thread safe, each game owns its own generator.
+ */
+
+final class GameRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+    private long mSeed;
+    private long mState;
+
+    /**
+     * Create a generator with a seed that is different every time.
+     */
+    GameRandom() {
+        this(mix(System.nanoTime() ^ System.currentTimeMillis()));
+    }
+
+    /**
+     * @param seed The seed to start from.
+     */
+    GameRandom(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * Post: The generator produces the same numbers as a new generator with this seed.
+     */
+    final void setSeed(long seed) {
+        mSeed = seed;
+        mState = seed;
+    }
+
+    /**
+     * @return The seed the generator was last started from.
+     */
+    final long getSeed() {
+        return mSeed;
+    }
+
+    /**
+     * @return Where the generator is in its sequence. A generator seeded with it produces the
+     *         same numbers this one will produce from now on.
+     */
+    final long getState() {
+        return mState;
+    }
+
+    /**
+     * @return A uniformly distributed long.
+     */
+    final long nextLong() {
+        mState += GOLDEN_GAMMA;
+        return mix(mState);
+    }
+
+    /**
+     * @return A uniformly distributed double from 0 inclusive to 1 exclusive.
+     */
+    final double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * @return true or false with equal probability.
+     */
+    final boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /**
+     * @return A well mixed version of z. Different inputs give different outputs.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,43 @@
+package com.tobiascarryer.inoball;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.SurfaceHolder;
+
+/**
+ * Draws on a GPU accelerated canvas of the surface, so bitmaps are drawn by the GPU instead
+ * of being rasterised on the CPU. A hardware canvas doesn't keep the previous frame, so the
+ * whole screen is drawn every frame that anything changed. Once a hardware frame has been
+ * posted the surface belongs to the GPU renderer, so if a lock fails the surface has to be
+ * replaced before it can be drawn on in software, see GamePanel.
+ *
+ * Requires Marshmallow (API 23) or higher.
+ */
+
+final class HardwareRenderBackend implements RenderBackend {
+    static final String NAME = "hardware";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isFullRedraw() {
+        return true;
+    }
+
+    /**
+     * @throws RuntimeException If the surface can't give a hardware canvas. Nothing is locked then.
+     */
+    @Override
+    public Canvas lockCanvas(SurfaceHolder holder, Rect dirty) {
+        //Always an accelerated canvas, the surface throws instead of giving any other kind
+        return holder.getSurface().lockHardwareCanvas();
+    }
+
+    @Override
+    public void unlockCanvasAndPost(SurfaceHolder holder, Canvas canvas) {
+        holder.getSurface().unlockCanvasAndPost(canvas);
+    }
+}
@@ -0,0 +1,187 @@
+package com.tobiascarryer.inoball;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The high score on disk, as a small append-only file of fixed size records.
+ *
+ * Every new high score is appended as its own record of the score and a checksum, and synced
+ * before the write counts as done. A crash in the middle of a write can only leave a torn
+ * record at the end of the file, which fails its checksum and is dropped when the file is
+ * read, so the previous high score survives. Once the file holds enough records it is
+ * compacted into a single record by writing a new file and renaming it over the old one.
+ *
+ * This is plain Java with no Android dependencies. Only use it from one thread at a time.
+ */
+
+final class HighScoreFile {
+    static final int RECORD_BYTES = 8;
+
+    //Compact once the file is a kilobyte
+    static final int COMPACT_AFTER_RECORDS = 128;
+
+    private final File mFile;
+    private final File mCompactFile;
+    private int mRecords = 0;
+
+    /**
+     * @param file Where the high score is stored. The directory must exist.
+     */
+    HighScoreFile(File file) {
+        assert file != null;
+
+        mFile = file;
+        mCompactFile = new File(file.getPath() + ".tmp");
+    }
+
+    /**
+     * @return True if a high score has ever been stored in the file.
+     */
+    final boolean exists() {
+        return mFile.exists();
+    }
+
+    /**
+     * Post: If the file ended with a torn or corrupt record it has been compacted.
+     * @return The highest score stored in the file, 0 if there is none.
+     */
+    final int read() throws IOException {
+        final byte[] bytes = readBytes();
+        final int valid = countValidRecords(bytes);
+        final int highScore = highestScore(bytes, valid);
+
+        if( valid * RECORD_BYTES != bytes.length ) {
+            //Drop everything from the first bad record on so later appends stay aligned
+            compact(highScore);
+        } else {
+            mRecords = valid;
+        }
+        return highScore;
+    }
+
+    /**
+     * Post: The score is the newest record in the file and has been synced to the disk.
+     *       The file was compacted if it had grown too long.
+     */
+    final void append(int score) throws IOException {
+        if( mRecords >= COMPACT_AFTER_RECORDS ) {
+            final byte[] bytes = readBytes();
+            compact(Math.max(score, highestScore(bytes, countValidRecords(bytes))));
+            return;
+        }
+
+        final FileOutputStream out = new FileOutputStream(mFile, true);
+        try {
+            writeRecord(out, score);
+        } finally {
+            out.close();
+        }
+        mRecords++;
+    }
+
+    /**
+     * Post: The file holds exactly one record with the score. If the new file can't replace
+     *       the old one, the old file is left as it was.
+     */
+    final void compact(int score) throws IOException {
+        final FileOutputStream out = new FileOutputStream(mCompactFile, false);
+        try {
+            writeRecord(out, score);
+        } finally {
+            out.close();
+        }
+
+        if( !mCompactFile.renameTo(mFile) ) {
+            throw new IOException("Could not replace " + mFile + " with " + mCompactFile);
+        }
+        mRecords = 1;
+    }
+
+    /**
+     * @return The number of records in the file as of the last read, append or compaction.
+     */
+    final int getRecordCount() {
+        return mRecords;
+    }
+
+    private byte[] readBytes() throws IOException {
+        if( !mFile.exists() ) {
+            return new byte[0];
+        }
+
+        final FileInputStream in = new FileInputStream(mFile);
+        try {
+            final byte[] bytes = new byte[(int) mFile.length()];
+            int read = 0;
+            while( read < bytes.length ) {
+                final int count = in.read(bytes, read, bytes.length - read);
+                if( count < 0 ) {
+                    break;
+                }
+                read += count;
+            }
+            return read == bytes.length ? bytes : Arrays.copyOf(bytes, read);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Post: The record has been written and synced to the disk.
+     */
+    private static void writeRecord(FileOutputStream out, int score) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(score);
+        data.writeInt(checksum(score));
+        data.flush();
+        out.getFD().sync();
+    }
+
+    /**
+     * @return The number of whole, valid records at the start of bytes.
+     */
+    static int countValidRecords(byte[] bytes) {
+        int records = 0;
+        for( int offset = 0; offset + RECORD_BYTES <= bytes.length; offset += RECORD_BYTES ) {
+            if( checksum(readInt(bytes, offset)) != readInt(bytes, offset + 4) ) {
+                break;
+            }
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * @return The highest score in the first records of bytes, 0 if there are none.
+     */
+    private static int highestScore(byte[] bytes, int records) {
+        int highScore = 0;
+        for( int i = 0; i < records; i++ ) {
+            highScore = Math.max(highScore, readInt(bytes, i * RECORD_BYTES));
+        }
+        return highScore;
+    }
+
+    /**
+     * @return The CRC32 of the score's big endian bytes.
+     */
+    static int checksum(int score) {
+        final CRC32 crc = new CRC32();
+        crc.update(score >>> 24);
+        crc.update(score >>> 16);
+        crc.update(score >>> 8);
+        crc.update(score);
+        return (int) crc.getValue();
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+}
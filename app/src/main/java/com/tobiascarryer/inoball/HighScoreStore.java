@@ -0,0 +1,139 @@
+package com.tobiascarryer.inoball;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the high score in memory and saves it in the background.
+ *
+ * Raising the high score only updates memory. The first raise schedules a write on the
+ * writer thread a little later, and every raise before that write runs is folded into it,
+ * so a long streak costs one write instead of one per point. flush() writes right away and
+ * is called when the game ends or the app leaves the screen.
+ */
+
+final class HighScoreStore {
+    //How long a new high score may wait in memory before it is written
+    static final long DEBOUNCE_MILLIS = 2000;
+
+    private final HighScoreFile mFile;
+    private final ScheduledExecutorService mWriter;
+    private final long mDebounceMillis;
+
+    private final AtomicInteger mHighScore = new AtomicInteger();
+    private final AtomicBoolean mWriteScheduled = new AtomicBoolean();
+
+    //The high score in the file, only used on the writer thread
+    private int mWritten = 0;
+
+    private final Runnable mWrite = new Runnable() {
+        @Override
+        public void run() {
+            write();
+        }
+    };
+
+    /**
+     * @param file Where the high score is stored. Only used on the writer thread.
+     * @param writer The thread the file is read and written on. Cannot be null.
+     * @param debounceMillis How long a new high score may wait in memory before it is written.
+     */
+    HighScoreStore(HighScoreFile file, ScheduledExecutorService writer, long debounceMillis) {
+        assert file != null;
+        assert writer != null;
+
+        mFile = file;
+        mWriter = writer;
+        mDebounceMillis = debounceMillis;
+    }
+
+    /**
+     * Post: The file is being read in the background. getHighScore() includes it once it has been read.
+     * @param legacyHighScore The high score saved by an older version of the game. It is moved
+     *                        into the file if the file doesn't exist yet.
+     */
+    final void load(final int legacyHighScore) {
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final boolean existed = mFile.exists();
+                    mWritten = mFile.read();
+                    raise(mWritten);
+                    if( !existed ) {
+                        raise(legacyHighScore);
+                    }
+                } catch (IOException e) {
+                    Log.e("ERROR", "Could not read the high score.", e);
+                }
+
+                //Save a migrated score or any points scored while the file was being read
+                write();
+            }
+        });
+    }
+
+    /**
+     * @return The highest score so far, saved or not.
+     */
+    final int getHighScore() {
+        return mHighScore.get();
+    }
+
+    /**
+     * Post: If score is a new high score it will be saved within the debounce time.
+     *       Doesn't block and doesn't allocate unless it schedules a write.
+     */
+    final void offer(int score) {
+        if( raise(score) && mWriteScheduled.compareAndSet(false, true) ) {
+            mWriter.schedule(mWrite, mDebounceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Post: The high score will be written as soon as the writer thread is free.
+     */
+    final void flush() {
+        mWriter.execute(mWrite);
+    }
+
+    /**
+     * @return True if score was higher than the high score and replaced it.
+     */
+    private boolean raise(int score) {
+        int current;
+        do {
+            current = mHighScore.get();
+            if( score <= current ) {
+                return false;
+            }
+        } while( !mHighScore.compareAndSet(current, score) );
+        return true;
+    }
+
+    /**
+     * Pre: Called on the writer thread.
+     * Post: The high score in memory is in the file.
+     */
+    private void write() {
+        //Raises from here on schedule their own write
+        mWriteScheduled.set(false);
+
+        final int highScore = mHighScore.get();
+        if( highScore <= mWritten ) {
+            return;
+        }
+
+        try {
+            mFile.append(highScore);
+            mWritten = highScore;
+        } catch (IOException e) {
+            Log.e("ERROR", "Could not save the high score.", e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.tobiascarryer.inoball;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands taps from the UI thread to the game thread without a lock.
+ *
+ * The queue is a fixed size ring buffer with exactly one producer, the thread that receives
+ * touch events, and one consumer, the thread that runs game ticks. Each side only ever writes
+ * its own counter, and publishes it with lazySet once the slots it covers are written or
+ * read, so neither thread waits for the other. Events are stored in primitive arrays so
+ * neither side allocates.
+ *
+ * This is plain Java with no Android dependencies.
+ */
+
+final class InputQueue {
+
+    /**
+     * Receives the events taken off the queue.
+     */
+    interface Listener {
+        /**
+         * @param timeNanos When the tap happened, in the System.nanoTime() time base.
+         * @param x The tap's x position on the screen.
+         * @param y The tap's y position on the screen.
+         */
+        void onTap(long timeNanos, float x, float y);
+    }
+
+    private final int mMask;
+    private final long[] mTimes;
+    private final float[] mX;
+    private final float[] mY;
+
+    //The number of events ever taken, only written by the consumer
+    private final AtomicLong mHead = new AtomicLong();
+    //The number of events ever added, only written by the producer
+    private final AtomicLong mTail = new AtomicLong();
+
+    //Each side's last reading of the other side's counter, so it is rarely read across threads
+    private long mProducerHead = 0;
+    private long mConsumerTail = 0;
+
+    /**
+     * @param capacity The most events that can wait in the queue. Must be a power of two.
+     */
+    InputQueue(int capacity) {
+        assert capacity > 0 && (capacity & (capacity - 1)) == 0;
+
+        mMask = capacity - 1;
+        mTimes = new long[capacity];
+        mX = new float[capacity];
+        mY = new float[capacity];
+    }
+
+    /**
+     * Pre: Only ever called from the producer thread.
+     * Post: The tap will be handed to the next drain() unless the queue was full.
+     * @return False if the queue was full and the tap was dropped.
+     */
+    final boolean offer(long timeNanos, float x, float y) {
+        final long tail = mTail.get();
+        if( tail - mProducerHead > mMask ) {
+            mProducerHead = mHead.get();
+            if( tail - mProducerHead > mMask ) {
+                return false;
+            }
+        }
+
+        final int slot = (int) tail & mMask;
+        mTimes[slot] = timeNanos;
+        mX[slot] = x;
+        mY[slot] = y;
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Pre: Only ever called from the consumer thread.
+     * Post: Every event that was in the queue has been passed to the listener, oldest first.
+     * @return The number of events passed to the listener.
+     */
+    final int drain(Listener listener) {
+        long head = mHead.get();
+        if( head == mConsumerTail ) {
+            mConsumerTail = mTail.get();
+            if( head == mConsumerTail ) {
+                return 0;
+            }
+        }
+
+        final long tail = mConsumerTail;
+        final int count = (int) (tail - head);
+        for( ; head < tail; head++ ) {
+            final int slot = (int) head & mMask;
+            listener.onTap(mTimes[slot], mX[slot], mY[slot]);
+        }
+        mHead.lazySet(tail);
+        return count;
+    }
+
+    /**
+     * Pre: Only ever called from the consumer thread.
+     * @return True if the next drain() would pass at least one event to its listener.
+     */
+    final boolean hasPending() {
+        return mHead.get() != mTail.get();
+    }
+
+    /**
+     * @return The most events that can wait in the queue.
+     */
+    final int getCapacity() {
+        return mMask + 1;
+    }
+}
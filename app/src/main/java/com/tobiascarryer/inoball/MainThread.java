@@ -1,9 +1,6 @@
 package com.tobiascarryer.inoball;
 
-import android.graphics.Canvas;
 import android.icu.math.BigDecimal;
-import android.util.Log;
-import android.view.SurfaceHolder;
 
 import java.math.BigInteger;
 
@@ -11,85 +8,212 @@ import java.math.BigInteger;
  * Created by Tobias Carryer on 2017-04-17.
  *
  * This thread endlessly loops while calling game logic and redrawing the screen to make
- * the game interactive.
+ * the game interactive. Game logic runs at a fixed FPS through a GameLoop and the thread
+ * sleeps between frames instead of spinning. Frames are not tied to the display's refresh,
+ * this is the fallback for devices that VsyncFrameScheduler does not support.
+ * While the game is paused, or idle until the next tap, the thread waits on a lock instead
+ * of looping.
  *
  * The FPS is extremely low when the game is run on emulators with the debugger attached
- * but it performs fine on real devices.
+ * but it performs fine on real devices. Frame times are recorded in the game panel's FrameMetrics.
  */
 
-final class MainThread extends Thread {
-    private final int millisecondsPerSecond = 1000;
+final class MainThread extends Thread implements FrameScheduler {
     static final int FPS = 60;
 
-    private double averageFPS;
-    private SurfaceHolder surfaceHolder;
-    private GamePanel gamePanel;
-    private boolean running;
+    private GameLoop.Game game;
+    private FrameMetrics metrics;
+    private GameLoop.Clock clock;
+    private volatile boolean running;
+    private volatile int targetFrameRate = 0;
 
-    private static Canvas canvas;
+    //Guarded by pauseLock
+    private final Object pauseLock = new Object();
+    private boolean paused = false;
+    private boolean parked = false;
+    private boolean resumed = false;
+    private boolean woken = false;
 
-    MainThread( SurfaceHolder surfaceHolder, GamePanel gamePanel ) {
+    /**
+     * @param game The game to update and render.
+     * @param metrics Where the time spent on each frame is recorded.
+     */
+    MainThread( GameLoop.Game game, FrameMetrics metrics ) {
+        this(game, metrics, GameLoop.SYSTEM_CLOCK);
+    }
+
+    MainThread( GameLoop.Game game, FrameMetrics metrics, GameLoop.Clock clock ) {
         super();
-        this.surfaceHolder = surfaceHolder;
-        this.gamePanel = gamePanel;
+        this.game = game;
+        this.metrics = metrics;
+        this.clock = clock;
+    }
+
+    @Override
+    public void start() {
+        setRunning(true);
+        super.start();
     }
 
     @Override
     public void run() {
-        long startTime;
-        long totalTime = 0;
-        int frameCount = 0;
+        final GameLoop loop = new GameLoop(clock, game, FPS, metrics);
+        int frameRate = 0;
 
         while(running) {
-            startTime = System.nanoTime();
-            canvas = null;
-
             try {
-                //Start editing the pixels
-                canvas = this.surfaceHolder.lockCanvas();
-                synchronized (surfaceHolder) {
-                    //Call any game logic
-                    gamePanel.update();
-
-                    //Redraw the pixels, lockCanvas must be called before this
-                    gamePanel.draw(canvas);
+                if( targetFrameRate != frameRate ) {
+                    frameRate = targetFrameRate;
+                    loop.setTargetFrameRate(frameRate);
                 }
+
+                if( waitWhilePaused() ) {
+                    //Don't run the ticks for the time spent paused
+                    loop.reset();
+                }
+                if( !running ) {
+                    break;
+                }
+
+                //Catch up on game logic, redraw the screen and sleep until the next frame is due
+                loop.runFrame();
+
+                if( waitWhileIdle() ) {
+                    //Nothing moved while idle, don't run the ticks for that time
+                    loop.reset();
+                }
+            } catch (InterruptedException e) {
+                //Interrupted while waiting for the next frame, check if the game is still running
             } catch (Exception e) {
                 e.printStackTrace();
-            } finally {
-                if( canvas != null ) {
-                    try {
-                        surfaceHolder.unlockCanvasAndPost(canvas);
-                    }
-                    catch(Exception e){e.printStackTrace();}
-                }
             }
+        }
+    }
+
+    /**
+     * Post: The thread has waited until the game isn't paused or isn't running anymore.
+     * @return True if the game was resumed since the last call.
+     */
+    private boolean waitWhilePaused() throws InterruptedException {
+        synchronized (pauseLock) {
+            while( paused && running ) {
+                parked = true;
+                pauseLock.notifyAll();
+                pauseLock.wait();
+            }
+            parked = false;
 
-            totalTime += System.nanoTime()-startTime;
-            frameCount++;
+            final boolean wasResumed = resumed;
+            resumed = false;
+            return wasResumed;
+        }
+    }
+
+    /**
+     * Post: If the game was idle after the last frame the thread has waited until wake(), a
+     *       pause or the end of the game.
+     * @return True if the thread waited.
+     */
+    private boolean waitWhileIdle() throws InterruptedException {
+        //Forget older wakes first, a tap after this is either seen by isIdle() or wakes the wait
+        synchronized (pauseLock) {
+            woken = false;
+        }
+        if( !game.isIdle() ) {
+            return false;
+        }
+
+        synchronized (pauseLock) {
+            if( woken ) {
+                return false;
+            }
+            while( !woken && !paused && running ) {
+                pauseLock.wait();
+            }
+            return true;
+        }
+    }
 
-            //If a whole second worth of frames has passed
-            if( frameCount == FPS ) {
-                //Output the game's average FPS if the game is being debuged
-                if( BuildConfig.DEBUG ) {
-                    long millisecondsSpentPerFrame = nanosecondsToMilliseconds(totalTime) / frameCount;
-                    averageFPS = millisecondsPerSecond/millisecondsSpentPerFrame;
-                    Log.i("Average FPS", String.valueOf(averageFPS));
+    @Override
+    public void park() {
+        synchronized (pauseLock) {
+            paused = true;
+            //Wake the thread up if it is idle so it can park
+            pauseLock.notifyAll();
+            //Wait for the frame being produced, at most a frame and a sleep
+            while( !parked && isAlive() && running ) {
+                try {
+                    pauseLock.wait(GameLoop.NANOSECONDS_PER_SECOND / FPS / 1000000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
                 }
+            }
+        }
+    }
 
-                //Reset values
-                frameCount = 0;
-                totalTime = 0;
+    @Override
+    public void unpark() {
+        synchronized (pauseLock) {
+            if( paused ) {
+                paused = false;
+                resumed = true;
+                pauseLock.notifyAll();
             }
         }
     }
 
+    @Override
+    public void setTargetFrameRate(int framesPerSecond) {
+        assert framesPerSecond >= 0;
+        targetFrameRate = framesPerSecond;
+    }
+
+    @Override
+    public void wake() {
+        synchronized (pauseLock) {
+            woken = true;
+            pauseLock.notifyAll();
+        }
+    }
+
+    /**
+     * @return True if the thread is parked until unpark() is called.
+     */
+    final boolean isParked() {
+        synchronized (pauseLock) {
+            return parked;
+        }
+    }
+
     /**
      * Post: The game is running or the game has paused.
      * @param isRunning A boolean
      */
     final void setRunning(boolean isRunning) {
         running = isRunning;
+        if( !isRunning ) {
+            //Wake the thread up if it is sleeping until the next frame or parked
+            interrupt();
+            synchronized (pauseLock) {
+                pauseLock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        boolean retry = true;
+        while(retry) {
+            try {
+                setRunning(false);
+                join();
+            } catch(InterruptedException e) {
+                e.printStackTrace();
+            }
+
+            retry = false;
+        }
     }
 
     /**
@@ -0,0 +1,106 @@
+package com.tobiascarryer.inoball;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * Draws every particle of a ParticleSystem as a round dot with a single drawPoints() call.
+ * Positions are written into one reused array so a frame doesn't allocate no matter how many
+ * particles there are.
+ */
+
+final class ParticleRenderer implements DrawableObject {
+    private final ParticleSystem mSystem;
+    private final float mSize;
+
+    //The x and y of every particle this frame, one after the other
+    private final float[] mPoints;
+    private int mPointCount = 0;
+
+    //The box around the particles this frame and around the ones drawn last frame, in world units
+    private float mLeft, mTop, mRight, mBottom;
+    private float mDrawnLeft, mDrawnTop, mDrawnRight, mDrawnBottom;
+    private boolean mDrawn = false;
+
+    private Paint mPaint;
+
+    /**
+     * @param system The particles to draw. Cannot be null.
+     * @param size The diameter of every particle in world units.
+     */
+    ParticleRenderer(ParticleSystem system, float size) {
+        assert system != null;
+
+        mSystem = system;
+        mSize = size;
+        mPoints = new float[system.getCapacity() * 2];
+    }
+
+    /**
+     * Post: The next call to draw() draws every particle between its previous and its current position.
+     * @param interpolation How far between the previous and the current tick the frame is.
+     */
+    final void interpolate(double interpolation) {
+        final float[] points = mPoints;
+        final int count = mSystem.writePoints(points, interpolation);
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+        for( int i = 0; i < count; i += 2 ) {
+            left = Math.min(left, points[i]);
+            right = Math.max(right, points[i]);
+            top = Math.min(top, points[i + 1]);
+            bottom = Math.max(bottom, points[i + 1]);
+        }
+        mPointCount = count;
+        mLeft = left;
+        mTop = top;
+        mRight = right;
+        mBottom = bottom;
+    }
+
+    /**
+     * Post: region covers every particle drawn last frame and every particle drawn this frame.
+     */
+    public void reportDirtyRegion(DirtyRegion region) {
+        if( mDrawn ) {
+            unionBox(region, mDrawnLeft, mDrawnTop, mDrawnRight, mDrawnBottom);
+        }
+        if( mPointCount > 0 ) {
+            unionBox(region, mLeft, mTop, mRight, mBottom);
+        }
+    }
+
+    /**
+     * Post: region covers the box around the particles' centers, grown by their size.
+     */
+    private void unionBox(DirtyRegion region, float left, float top, float right, float bottom) {
+        region.union((int) Math.floor(left - mSize), (int) Math.floor(top - mSize),
+                (int) Math.ceil(right + mSize), (int) Math.ceil(bottom + mSize));
+    }
+
+    /**
+     * Pre: Canvas is being displayed. interpolate() has been called for this frame.
+     * @param canvas The game's canvas. Cannot be null.
+     */
+    public void draw(Canvas canvas) {
+        assert canvas != null;
+
+        mDrawn = mPointCount > 0;
+        if( !mDrawn ) {
+            return;
+        }
+
+        if( mPaint == null ) {
+            mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mPaint.setColor(Color.WHITE);
+            mPaint.setStrokeCap(Paint.Cap.ROUND);
+            mPaint.setStrokeWidth(mSize);
+        }
+        canvas.drawPoints(mPoints, 0, mPointCount, mPaint);
+        mDrawnLeft = mLeft;
+        mDrawnTop = mTop;
+        mDrawnRight = mRight;
+        mDrawnBottom = mBottom;
+    }
+}
@@ -0,0 +1,205 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * Short lived sparks that burst out of a point, fall and fade away, for feedback on taps and
+ * when the game ends. Particles are stored as parallel arrays of primitives with a fixed capacity.
+ * Dead particles go back to a free list and their slots are handed out again by the next burst,
+ * so once the system is created it never allocates.
+ *
+ * When the pool is filling up bursts get smaller, and particles that don't fit are dropped, so a
+ * flurry of taps costs no more than a full pool does. The pool can be limited to less than its
+ * capacity on devices that can't afford that many.
+ *
+ * Particles are only decoration and use their own GameRandom, so the game plays and replays the
+ * same with or without them. Like BallSystem this is plain Java and can run headless.
+ */
+
+final class ParticleSystem {
+    private final int mWorldWidth;
+    private final int mWorldHeight;
+    private final int mTicksPerSecond;
+    private final int mCapacity;
+    private int mLimit;
+    private final GameRandom mRandom;
+
+    //Measured in world units per tick per tick
+    private final float mGravity;
+
+    //Position of every slot now and before the last update
+    private final float[] mX, mY;
+    private final float[] mPreviousX, mPreviousY;
+
+    //Measured in world units per tick
+    private final float[] mXVelocity, mYVelocity;
+    private final int[] mTicksLeft;
+
+    //Slots nobody is using, used as a stack
+    private final int[] mFree;
+    private int mFreeCount;
+
+    //Slots holding a live particle, in no particular order
+    private final int[] mLive;
+    private int mLiveCount = 0;
+
+    private long mDroppedCount = 0;
+
+    /**
+     * @param worldWidth The width of the world, particles that leave it die.
+     * @param worldHeight The height of the world, particles that fall below it die.
+     * @param ticksPerSecond The number of times update() is called in a second.
+     * @param capacity The most particles alive at once.
+     * @param random Decides where particles fly. Cannot be null, don't share it with the game.
+     */
+    ParticleSystem(int worldWidth, int worldHeight, int ticksPerSecond, int capacity, GameRandom random) {
+        assert capacity > 0 && ticksPerSecond > 0;
+        assert random != null;
+
+        mWorldWidth = worldWidth;
+        mWorldHeight = worldHeight;
+        mTicksPerSecond = ticksPerSecond;
+        mCapacity = capacity;
+        mLimit = capacity;
+        mRandom = random;
+        //Half the world's height per second per second
+        mGravity = (float) worldHeight / 2 / ticksPerSecond / ticksPerSecond;
+
+        mX = new float[capacity];
+        mY = new float[capacity];
+        mPreviousX = new float[capacity];
+        mPreviousY = new float[capacity];
+        mXVelocity = new float[capacity];
+        mYVelocity = new float[capacity];
+        mTicksLeft = new int[capacity];
+        mLive = new int[capacity];
+        mFree = new int[capacity];
+        for( int i = 0; i < capacity; i++ ) {
+            mFree[i] = capacity - 1 - i;
+        }
+        mFreeCount = capacity;
+    }
+
+    /**
+     * Post: Up to count particles fly out of x, y in random directions. Fewer are added once
+     *       more than half the limit is in use, none once it is reached.
+     * @param speed The fastest a particle starts moving, in world units per second.
+     * @param lifeTicks The longest a particle lives. Each one lives between half of it and all of it.
+     * @return The number of particles added.
+     */
+    final int burst(float x, float y, int count, float speed, int lifeTicks) {
+        assert count >= 0 && lifeTicks > 0;
+
+        final int room = Math.max(0, Math.min(mFreeCount, mLimit - mLiveCount));
+        int added = count;
+        if( room * 2 < mLimit ) {
+            //Shrink bursts in proportion to the room left, but keep at least one spark if it fits
+            added = Math.max(Math.min(1, room), (int) ((long) count * room * 2 / mLimit));
+        }
+        added = Math.min(added, room);
+        mDroppedCount += count - added;
+
+        final float speedPerTick = speed / mTicksPerSecond;
+        for( int i = 0; i < added; i++ ) {
+            final int slot = mFree[--mFreeCount];
+            mLive[mLiveCount++] = slot;
+
+            final double angle = mRandom.nextDouble() * 2 * Math.PI;
+            final double particleSpeed = speedPerTick * (0.25 + 0.75 * mRandom.nextDouble());
+            mX[slot] = x;
+            mY[slot] = y;
+            mPreviousX[slot] = x;
+            mPreviousY[slot] = y;
+            mXVelocity[slot] = (float) (Math.cos(angle) * particleSpeed);
+            mYVelocity[slot] = (float) (Math.sin(angle) * particleSpeed);
+            mTicksLeft[slot] = Math.max(1, (int) (lifeTicks * (0.5 + 0.5 * mRandom.nextDouble())));
+        }
+        return added;
+    }
+
+    /**
+     * Pre: A tick has passed in the game.
+     * Post: Every particle has moved and fallen a little. Particles that ran out of time or left
+     *       the world are dead and their slots are free again.
+     */
+    final void update() {
+        final float[] x = mX, y = mY, xVelocity = mXVelocity, yVelocity = mYVelocity;
+        final float gravity = mGravity;
+        int i = 0;
+        while( i < mLiveCount ) {
+            final int slot = mLive[i];
+            mPreviousX[slot] = x[slot];
+            mPreviousY[slot] = y[slot];
+            yVelocity[slot] += gravity;
+            x[slot] += xVelocity[slot];
+            y[slot] += yVelocity[slot];
+
+            if( --mTicksLeft[slot] <= 0 || y[slot] > mWorldHeight || x[slot] < 0 || x[slot] > mWorldWidth ) {
+                //Move the last live particle into this place and look at it next
+                mFree[mFreeCount++] = slot;
+                mLive[i] = mLive[--mLiveCount];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Post: Every particle is gone and every slot is free.
+     */
+    final void clear() {
+        while( mLiveCount > 0 ) {
+            mFree[mFreeCount++] = mLive[--mLiveCount];
+        }
+    }
+
+    /**
+     * Post: points holds the x and y of every live particle one after the other, ready for
+     *       Canvas.drawPoints().
+     * @param points Has room for two floats per particle the system can hold.
+     * @param interpolation How far between the previous and the current tick the frame is.
+     * @return The number of floats written, twice the number of live particles.
+     */
+    final int writePoints(float[] points, double interpolation) {
+        assert points.length >= mCapacity * 2;
+
+        final float t = (float) interpolation;
+        int written = 0;
+        for( int i = 0; i < mLiveCount; i++ ) {
+            final int slot = mLive[i];
+            points[written++] = mPreviousX[slot] + (mX[slot] - mPreviousX[slot]) * t;
+            points[written++] = mPreviousY[slot] + (mY[slot] - mPreviousY[slot]) * t;
+        }
+        return written;
+    }
+
+    /**
+     * @return The number of live particles.
+     */
+    final int getCount() {
+        return mLiveCount;
+    }
+
+    final int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Post: Bursts add no more particles once limit are alive. Particles already alive above
+     *       the limit live out their time.
+     * @param limit From 1 to the capacity.
+     */
+    final void setLimit(int limit) {
+        assert limit > 0 && limit <= mCapacity;
+        mLimit = limit;
+    }
+
+    final int getLimit() {
+        return mLimit;
+    }
+
+    /**
+     * @return The number of particles bursts asked for but didn't add because the pool was filling up.
+     */
+    final long getDroppedCount() {
+        return mDroppedCount;
+    }
+}
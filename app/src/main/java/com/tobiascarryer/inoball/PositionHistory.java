@@ -0,0 +1,95 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * Where something was over the last few ticks, so an event can be checked against the
+ * position that was on screen when it happened instead of the position it has now.
+ *
+ * Positions are kept in a ring of primitive arrays that is overwritten once it is full.
+ * This is plain Java with no Android dependencies.
+ */
+
+final class PositionHistory {
+    private final long[] mTimes;
+    private final double[] mX;
+    private final double[] mY;
+    private int mNewest = -1;
+    private int mSize = 0;
+
+    /**
+     * @param capacity The number of positions to remember.
+     */
+    PositionHistory(int capacity) {
+        assert capacity > 0;
+
+        mTimes = new long[capacity];
+        mX = new double[capacity];
+        mY = new double[capacity];
+    }
+
+    /**
+     * Pre: timeNanos is not earlier than the last recorded time.
+     * Post: The position is the newest in the history. The oldest was dropped if it was full.
+     */
+    final void record(long timeNanos, double x, double y) {
+        mNewest = (mNewest + 1) % mTimes.length;
+        mTimes[mNewest] = timeNanos;
+        mX[mNewest] = x;
+        mY[mNewest] = y;
+        if( mSize < mTimes.length ) {
+            mSize++;
+        }
+    }
+
+    /**
+     * Post: The history is empty.
+     */
+    final void clear() {
+        mNewest = -1;
+        mSize = 0;
+    }
+
+    /**
+     * @return The number of positions remembered.
+     */
+    final int size() {
+        return mSize;
+    }
+
+    /**
+     * Pre: size() is greater than zero.
+     * @return The x position at the time, between the two positions recorded around it. Times
+     *         outside the history use the oldest or the newest position.
+     */
+    final double getXAt(long timeNanos) {
+        return valueAt(mX, timeNanos);
+    }
+
+    /**
+     * Pre: size() is greater than zero.
+     * @return The y position at the time, see getXAt().
+     */
+    final double getYAt(long timeNanos) {
+        return valueAt(mY, timeNanos);
+    }
+
+    private double valueAt(double[] values, long timeNanos) {
+        assert mSize > 0;
+
+        final int capacity = mTimes.length;
+        int later = mNewest;
+        if( timeNanos >= mTimes[later] ) {
+            return values[later];
+        }
+
+        //Walk back from the newest position to the first one at or before the time
+        for( int i = 1; i < mSize; i++ ) {
+            final int earlier = (mNewest - i + capacity) % capacity;
+            if( mTimes[earlier] <= timeNanos ) {
+                final double fraction = (double) (timeNanos - mTimes[earlier]) / (mTimes[later] - mTimes[earlier]);
+                return values[earlier] + (values[later] - values[earlier]) * fraction;
+            }
+            later = earlier;
+        }
+        return values[later];
+    }
+}
@@ -0,0 +1,90 @@
+package com.tobiascarryer.inoball;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * The render quality setting in the top left corner of the screen. Tapping it switches to the
+ * next quality, lower qualities draw fewer pixels and are scaled up to fill the screen. A ball
+ * in the corner takes the tap instead, so the button never costs the player a jump.
+ */
+
+final class QualityButton implements DrawableObject {
+
+    private final String[] mLabels;
+    private int mQuality;
+    private boolean mChanged = true;
+
+    private Paint mPaint;
+    private final int mScreenWidth;
+    private final int mScreenHeight;
+
+    /**
+     * @param labels The name of every quality setting, indexed by the Viewport QUALITY constants.
+     * @param quality The quality that is shown first.
+     */
+    QualityButton(String[] labels, int quality, int screenWidth, int screenHeight) {
+        assert labels.length == Viewport.QUALITY_COUNT;
+        assert Viewport.isQuality(quality);
+
+        mLabels = labels;
+        mQuality = quality;
+        mScreenWidth = screenWidth;
+        mScreenHeight = screenHeight;
+    }
+
+    /**
+     * Post: The button shows the given quality.
+     */
+    final void setQuality(int quality) {
+        assert Viewport.isQuality(quality);
+        if( quality != mQuality ) {
+            mQuality = quality;
+            mChanged = true;
+        }
+    }
+
+    final int getQuality() {
+        return mQuality;
+    }
+
+    /**
+     * @return True if the point is on the button. The button is larger than its text so it is easy to hit.
+     */
+    final boolean contains(int x, int y) {
+        return x >= 0 && x < getRight() && y >= 0 && y < getBottom();
+    }
+
+    public void draw(Canvas canvas) {
+        assert canvas != null;
+
+        if( mPaint == null ) {
+            mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mPaint.setColor(Color.WHITE);
+            mPaint.setTextAlign(Paint.Align.LEFT);
+        }
+        mPaint.setTextSize(getTextSize());
+
+        canvas.drawText(mLabels[mQuality], getTextSize() / 2, getTextSize() * 3 / 2, mPaint);
+        mChanged = false;
+    }
+
+    public void reportDirtyRegion(DirtyRegion region) {
+        if( mChanged ) {
+            region.union(0, 0, getRight(), getBottom());
+        }
+    }
+
+    private int getTextSize() {
+        return mScreenHeight / 40;
+    }
+
+    private int getRight() {
+        return mScreenWidth / 3;
+    }
+
+    private int getBottom() {
+        return getTextSize() * 2;
+    }
+}
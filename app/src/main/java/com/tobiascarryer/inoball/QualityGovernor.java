@@ -0,0 +1,244 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * Steps the game's quality down when frames take too long and back up once there is room again,
+ * so a device that throttles or can't keep up still plays smoothly.
+ *
+ * Each tier is a set of settings, from the best looking first to the cheapest last. The governor
+ * watches a rolling window of frame times. When enough frames in the window miss the current
+ * tier's budget it steps down one tier. It only steps back up after a long run of frames that
+ * would have fit well within the better tier's budget, so it doesn't bounce between two tiers on
+ * a device that is just on the edge. Frames right after a change are ignored while the game
+ * settles at the new settings.
+ *
+ * The governor is fed frame times by FrameMetrics and only decides, the listener applies the
+ * tiers. It belongs to the game loop's thread and never allocates except when the tier changes.
+ */
+
+final class QualityGovernor implements FrameMetrics.FrameListener {
+
+    /**
+     * Settings the game can be played at.
+     */
+    static final class Tier {
+        final String name;
+        //One of the Viewport QUALITY constants
+        final int renderQuality;
+        //False draws a plain background instead of the tiles
+        final boolean backgroundDetail;
+        //The most particles alive at once, as a fraction of the particle system's capacity
+        final float particleBudget;
+        //0 renders as often as the scheduler can
+        final int framesPerSecond;
+
+        Tier(String name, int renderQuality, boolean backgroundDetail, float particleBudget, int framesPerSecond) {
+            assert Viewport.isQuality(renderQuality);
+            assert particleBudget >= 0 && particleBudget <= 1;
+            assert framesPerSecond >= 0;
+
+            this.name = name;
+            this.renderQuality = renderQuality;
+            this.backgroundDetail = backgroundDetail;
+            this.particleBudget = particleBudget;
+            this.framesPerSecond = framesPerSecond;
+        }
+    }
+
+    /**
+     * When the governor steps down and back up.
+     */
+    static final class Config {
+        //The budget of a tier that renders as often as it can
+        final long budgetNanos;
+        //The number of recent frames that are looked at
+        final int windowFrames;
+        //Step down once at least this fraction of the window missed the tier's budget
+        final double missRatio;
+        //A frame has room to step up if it took at most this fraction of the better tier's budget
+        final double headroomRatio;
+        //Step up after this many frames in a row had room
+        final int headroomFrames;
+        //Frames ignored after a change
+        final int settleFrames;
+
+        Config(long budgetNanos, int windowFrames, double missRatio, double headroomRatio,
+               int headroomFrames, int settleFrames) {
+            assert budgetNanos > 0 && windowFrames > 0;
+            assert missRatio > 0 && missRatio <= 1;
+            assert headroomRatio > 0 && headroomRatio < 1;
+            assert headroomFrames > 0 && settleFrames >= 0;
+
+            this.budgetNanos = budgetNanos;
+            this.windowFrames = windowFrames;
+            this.missRatio = missRatio;
+            this.headroomRatio = headroomRatio;
+            this.headroomFrames = headroomFrames;
+            this.settleFrames = settleFrames;
+        }
+
+        /**
+         * @return Step down when a quarter of the last second of frames missed, step up after
+         *         five seconds of frames under 60% of the better tier's budget.
+         */
+        static Config forTickRate(int ticksPerSecond) {
+            return new Config(GameLoop.NANOSECONDS_PER_SECOND / ticksPerSecond, ticksPerSecond,
+                    0.25, 0.6, 5 * ticksPerSecond, ticksPerSecond / 2);
+        }
+    }
+
+    /**
+     * Applies the tier the governor settled on.
+     */
+    interface Listener {
+        /**
+         * Pre: Called on the game loop's thread.
+         * @param trigger Why the tier changed, for the log.
+         */
+        void onTierChanged(Tier from, Tier to, String trigger);
+    }
+
+    /**
+     * @return Full quality, then a smaller render buffer and fewer particles, then the lowest
+     *         resolution with a plain background, then all of that at 30 frames a second.
+     */
+    static Tier[] defaultTiers() {
+        return new Tier[] {
+                new Tier("full", Viewport.QUALITY_HIGH, true, 1, 0),
+                new Tier("reduced", Viewport.QUALITY_MEDIUM, true, 0.5f, 0),
+                new Tier("low", Viewport.QUALITY_LOW, false, 0.25f, 0),
+                new Tier("minimal", Viewport.QUALITY_LOW, false, 0.1f, 30)};
+    }
+
+    private static final long NANOSECONDS_PER_TENTH_OF_A_MILLISECOND = 100000L;
+
+    private final Tier[] mTiers;
+    private final Config mConfig;
+    private final Listener mListener;
+    private int mTier = 0;
+
+    //The most recent frame times, oldest first from mWindowStart
+    private final long[] mWindow;
+    private int mWindowStart = 0;
+    private int mWindowSize = 0;
+    private int mMissCount = 0;
+
+    private int mHeadroomStreak = 0;
+    private int mSettleFramesLeft = 0;
+    private int mChangeCount = 0;
+    private String mLastTrigger = null;
+
+    /**
+     * @param tiers The settings to choose from, the best looking first. Cannot be empty.
+     * @param config When to step down and up. Cannot be null.
+     * @param listener Applies the tiers. Cannot be null.
+     */
+    QualityGovernor(Tier[] tiers, Config config, Listener listener) {
+        assert tiers.length > 0;
+        assert config != null && listener != null;
+
+        mTiers = tiers;
+        mConfig = config;
+        mListener = listener;
+        mWindow = new long[config.windowFrames];
+    }
+
+    /**
+     * Post: The frame is added to the window. The tier has changed if the window calls for it.
+     */
+    @Override
+    public void onFrame(long totalNanos) {
+        if( mSettleFramesLeft > 0 ) {
+            mSettleFramesLeft--;
+            return;
+        }
+
+        //Slide the window along
+        final long budget = getBudgetNanos(mTier);
+        if( mWindowSize == mWindow.length ) {
+            if( mWindow[mWindowStart] > budget ) {
+                mMissCount--;
+            }
+            mWindow[mWindowStart] = totalNanos;
+            mWindowStart = (mWindowStart + 1) % mWindow.length;
+        } else {
+            mWindow[(mWindowStart + mWindowSize) % mWindow.length] = totalNanos;
+            mWindowSize++;
+        }
+        if( totalNanos > budget ) {
+            mMissCount++;
+        }
+
+        if( mTier > 0 && totalNanos <= getBudgetNanos(mTier - 1) * mConfig.headroomRatio ) {
+            mHeadroomStreak++;
+        } else {
+            mHeadroomStreak = 0;
+        }
+
+        if( mWindowSize == mWindow.length && mTier < mTiers.length - 1
+                && mMissCount >= mConfig.missRatio * mWindowSize ) {
+            changeTier(mTier + 1, mMissCount + " of " + mWindowSize + " frames over "
+                    + formatMilliseconds(budget) + "ms");
+        } else if( mTier > 0 && mHeadroomStreak >= mConfig.headroomFrames ) {
+            changeTier(mTier - 1, mHeadroomStreak + " frames in a row under "
+                    + formatMilliseconds((long) (getBudgetNanos(mTier - 1) * mConfig.headroomRatio)) + "ms");
+        }
+    }
+
+    /**
+     * Post: The listener was told about the new tier. The window starts over and the next few
+     *       frames are ignored.
+     */
+    private void changeTier(int tier, String trigger) {
+        final Tier from = mTiers[mTier];
+        mTier = tier;
+        mWindowStart = 0;
+        mWindowSize = 0;
+        mMissCount = 0;
+        mHeadroomStreak = 0;
+        mSettleFramesLeft = mConfig.settleFrames;
+        mChangeCount++;
+        mLastTrigger = trigger;
+        mListener.onTierChanged(from, mTiers[tier], trigger);
+    }
+
+    /**
+     * @return The longest a frame at the tier may take.
+     */
+    private long getBudgetNanos(int tier) {
+        final int framesPerSecond = mTiers[tier].framesPerSecond;
+        return framesPerSecond > 0 ? GameLoop.NANOSECONDS_PER_SECOND / framesPerSecond : mConfig.budgetNanos;
+    }
+
+    /**
+     * @return The index of the current tier, 0 is the best looking.
+     */
+    final int getTierIndex() {
+        return mTier;
+    }
+
+    final Tier getTier() {
+        return mTiers[mTier];
+    }
+
+    /**
+     * @return The number of times the tier changed.
+     */
+    final int getChangeCount() {
+        return mChangeCount;
+    }
+
+    /**
+     * @return Why the tier last changed, or null if it never has.
+     */
+    final String getLastTrigger() {
+        return mLastTrigger;
+    }
+
+    /**
+     * @return nanos in milliseconds with one decimal, for example 16.7.
+     */
+    private static String formatMilliseconds(long nanos) {
+        final long tenths = (nanos + NANOSECONDS_PER_TENTH_OF_A_MILLISECOND / 2) / NANOSECONDS_PER_TENTH_OF_A_MILLISECOND;
+        return (tenths / 10) + "." + (tenths % 10);
+    }
+}
@@ -0,0 +1,146 @@
+package com.tobiascarryer.inoball;
+
+import java.util.Arrays;
+
+/**
+ * Records a game compactly enough to keep in memory while it is played, so Replayer can play
+ * it again exactly the same way without a screen.
+ *
+ * The physics only depend on the random number generator, the world and the taps that landed,
+ * so that is all that is recorded: the generator's state, the world size, the tick rate and the
+ * balls, then every tap with the tick it was handled on and the ball it hit. Each tick's
+ * physics state is folded into a fingerprint that is written at the end, so a replay can check
+ * it ended up bit for bit where the game did.
+ *
+ * The stream starts with MAGIC, VERSION and the state of the generator as a big endian long,
+ * then the world width, world height, ticks per second, ball count and radius as varints.
+ * Each entry after that is a varint of the ticks since the previous entry shifted left once,
+ * with the low bit set for the end entry. A tap is followed by zigzag varints of its x and y
+ * and a varint of the index of the ball it hit plus one. The end entry is followed by the
+ * fingerprint as a big endian long.
+ *
+ * This is plain Java with no Android dependencies. Only use it from the game loop's thread.
+ */
+
+final class Recorder {
+    static final int MAGIC = 0x494E4F52; //"INOR"
+    //Version 1 recorded games whose positions were whole numbers and hashed them that way
+    static final int VERSION = 2;
+
+    static final int KIND_TAP = 0;
+    static final int KIND_END = 1;
+
+    private byte[] mBytes = new byte[256];
+    private int mSize = 0;
+
+    private long mTicks = 0;
+    private long mLastEntryTick = 0;
+    private long mFingerprint = 0;
+
+    /**
+     * @param randomState The state of the game's generator before the world was created, see GameRandom.getState().
+     * @param worldWidth The width of the world.
+     * @param worldHeight The height of the world.
+     * @param ticksPerSecond The number of ticks in a second of game time.
+     * @param ballCount The number of balls. One ball is played with BallPhysics, more with a BallSystem.
+     * @param radius The radius of every ball.
+     */
+    Recorder(long randomState, int worldWidth, int worldHeight, int ticksPerSecond, int ballCount, int radius) {
+        for( int shift = 24; shift >= 0; shift -= 8 ) {
+            writeByte(MAGIC >>> shift);
+        }
+        writeByte(VERSION);
+        writeLong(randomState);
+        writeVarint(worldWidth);
+        writeVarint(worldHeight);
+        writeVarint(ticksPerSecond);
+        writeVarint(ballCount);
+        writeVarint(radius);
+    }
+
+    /**
+     * Post: The tap is recorded as handled before the next tick's update.
+     * @param hit The index of the ball the tap landed on, -1 if it missed.
+     */
+    final void onTap(int x, int y, int hit) {
+        writeVarint((mTicks - mLastEntryTick) << 1 | KIND_TAP);
+        writeVarint(zigzag(x));
+        writeVarint(zigzag(y));
+        writeVarint(hit + 1);
+        mLastEntryTick = mTicks;
+    }
+
+    /**
+     * Post: A tick has passed. Taps recorded from now on belong to the next tick.
+     * @param stateFingerprint The fingerprint of the physics right after the tick's update.
+     */
+    final void onTick(long stateFingerprint) {
+        mFingerprint = combine(mFingerprint, stateFingerprint);
+        mTicks++;
+    }
+
+    /**
+     * @return The number of ticks recorded.
+     */
+    final long getTickCount() {
+        return mTicks;
+    }
+
+    /**
+     * @return The fingerprint of every tick recorded so far.
+     */
+    final long getFingerprint() {
+        return mFingerprint;
+    }
+
+    /**
+     * Recording can carry on afterwards.
+     * @return The recording so far, ended at the current tick.
+     */
+    final byte[] toByteArray() {
+        final int size = mSize;
+        final long lastEntryTick = mLastEntryTick;
+        writeVarint((mTicks - mLastEntryTick) << 1 | KIND_END);
+        writeLong(mFingerprint);
+
+        final byte[] recording = Arrays.copyOf(mBytes, mSize);
+        mSize = size;
+        mLastEntryTick = lastEntryTick;
+        return recording;
+    }
+
+    /**
+     * @return The fingerprint after one more tick with the given state.
+     */
+    static long combine(long fingerprint, long stateFingerprint) {
+        return GameRandom.mix(fingerprint * 31 + stateFingerprint);
+    }
+
+    /**
+     * @return value with its sign moved to the lowest bit, so small negative numbers stay short.
+     */
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void writeVarint(long value) {
+        while( (value & ~0x7FL) != 0 ) {
+            writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    private void writeLong(long value) {
+        for( int shift = 56; shift >= 0; shift -= 8 ) {
+            writeByte((int) (value >>> shift));
+        }
+    }
+
+    private void writeByte(int value) {
+        if( mSize == mBytes.length ) {
+            mBytes = Arrays.copyOf(mBytes, mBytes.length * 2);
+        }
+        mBytes[mSize++] = (byte) value;
+    }
+}
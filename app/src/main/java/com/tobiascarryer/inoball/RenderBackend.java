@@ -0,0 +1,37 @@
+package com.tobiascarryer.inoball;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.SurfaceHolder;
+
+/**
+ * Where a frame's canvas comes from. The drawable objects draw the same way on any canvas,
+ * so the game can switch between a software and a GPU accelerated canvas without them knowing.
+ */
+
+interface RenderBackend {
+    /**
+     * @return A short name for the backend, used to label frame metrics.
+     */
+    String getName();
+
+    /**
+     * @return True if the canvas starts every frame empty, so the whole screen has to be drawn.
+     */
+    boolean isFullRedraw();
+
+    /**
+     * Pre: The surface has been created.
+     * @param dirty The part of the screen that will be drawn. The backend may grow it to
+     *              what actually has to be drawn. It is the whole screen if isFullRedraw().
+     * @return The canvas to draw the frame on, or null if the surface can't be drawn on right now.
+     * @throws RuntimeException If the backend doesn't work on this device.
+     */
+    Canvas lockCanvas(SurfaceHolder holder, Rect dirty);
+
+    /**
+     * Pre: canvas was returned by lockCanvas().
+     * Post: The frame is shown on the screen.
+     */
+    void unlockCanvasAndPost(SurfaceHolder holder, Canvas canvas);
+}
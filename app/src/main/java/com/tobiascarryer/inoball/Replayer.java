@@ -0,0 +1,263 @@
+package com.tobiascarryer.inoball;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Plays a game recorded by a Recorder again, as fast as the physics can run, and checks it
+ * ends up exactly where the recorded game did.
+ *
+ * The rules are the ones GamePanel.update() plays by: the taps of a tick are handled before
+ * the balls move, a tap that hits a ball makes it jump and scores, and a ball falling ends
+ * the game. A replay that doesn't match its recording means the physics are not deterministic,
+ * or have changed since the game was recorded. Recordings of an older version are rejected
+ * instead of being played against the new physics.
+ *
+ * This is plain Java with no Android dependencies.
+ */
+
+final class Replayer {
+    private final long mRandomState;
+    private final int mWorldWidth;
+    private final int mWorldHeight;
+    private final int mTicksPerSecond;
+    private final int mBallCount;
+    private final int mRadius;
+
+    private int mTapCount = 0;
+    private long[] mTapTicks = new long[16];
+    private int[] mTapX = new int[16];
+    private int[] mTapY = new int[16];
+    private int[] mTapHit = new int[16];
+
+    private final long mTickCount;
+    private final long mRecordedFingerprint;
+
+    /**
+     * Post: The recording has been read. The stream is not closed.
+     */
+    Replayer(InputStream in) throws IOException {
+        if( readInt(in) != Recorder.MAGIC ) {
+            throw new IOException("Not a recording.");
+        }
+        final int version = readByte(in);
+        if( version != Recorder.VERSION ) {
+            throw new IOException("Recording version " + version + " can't be replayed, only version "
+                    + Recorder.VERSION + ". The physics it was recorded with have changed since.");
+        }
+        mRandomState = readLong(in);
+        mWorldWidth = (int) readVarint(in);
+        mWorldHeight = (int) readVarint(in);
+        mTicksPerSecond = (int) readVarint(in);
+        mBallCount = (int) readVarint(in);
+        mRadius = (int) readVarint(in);
+        if( mBallCount < 1 ) {
+            throw new IOException("A recording needs at least one ball.");
+        }
+
+        long tick = 0;
+        while( true ) {
+            final long entry = readVarint(in);
+            tick += entry >>> 1;
+            if( (entry & 1) == Recorder.KIND_END ) {
+                break;
+            }
+            addTap(tick, (int) unzigzag(readVarint(in)), (int) unzigzag(readVarint(in)), (int) readVarint(in) - 1);
+        }
+        mTickCount = tick;
+        mRecordedFingerprint = readLong(in);
+    }
+
+    /**
+     * Post: The recording has been read.
+     */
+    Replayer(byte[] recording) throws IOException {
+        this(new ByteArrayInputStream(recording));
+    }
+
+    /**
+     * @return The number of ticks in the recording.
+     */
+    final long getTickCount() {
+        return mTickCount;
+    }
+
+    /**
+     * @return The number of taps in the recording, including the ones that missed.
+     */
+    final int getTapCount() {
+        return mTapCount;
+    }
+
+    /**
+     * Pre: index is from 0 to getTapCount() - 1, taps are in the order they were handled.
+     * @return The tick the tap was handled before.
+     */
+    final long getTapTick(int index) {
+        return mTapTicks[index];
+    }
+
+    /**
+     * Pre: index is from 0 to getTapCount() - 1.
+     */
+    final int getTapX(int index) {
+        return mTapX[index];
+    }
+
+    /**
+     * Pre: index is from 0 to getTapCount() - 1.
+     */
+    final int getTapY(int index) {
+        return mTapY[index];
+    }
+
+    /**
+     * Pre: index is from 0 to getTapCount() - 1.
+     * @return The index of the ball the tap landed on, -1 if it missed.
+     */
+    final int getTapHit(int index) {
+        return mTapHit[index];
+    }
+
+    /**
+     * @return The fingerprint the recorded game ended with.
+     */
+    final long getRecordedFingerprint() {
+        return mRecordedFingerprint;
+    }
+
+    /**
+     * Post: The recording has been played from its first tick to its last. It can be played again.
+     * @return How the replay went.
+     */
+    final Result run() {
+        final GameRandom random = new GameRandom(mRandomState);
+        BallPhysics ball = null;
+        BallSystem balls = null;
+        if( mBallCount == 1 ) {
+            ball = new BallPhysics(mWorldWidth, mWorldHeight, mRadius, mTicksPerSecond, random);
+            ball.resetToStartingPosition();
+        } else {
+            balls = new BallSystem(mWorldWidth, mWorldHeight, mRadius, mTicksPerSecond, mBallCount, random);
+            for( int i = 0; i < mBallCount; i++ ) {
+                balls.add();
+            }
+        }
+
+        long fingerprint = 0;
+        int score = 0;
+        int bestScore = 0;
+        int gamesEnded = 0;
+        int nextTap = 0;
+        for( long tick = 0; tick < mTickCount; tick++ ) {
+            while( nextTap < mTapCount && mTapTicks[nextTap] == tick ) {
+                final int hit = mTapHit[nextTap++];
+                if( hit >= 0 && (ball != null ? ball.tap() : balls.tap(hit)) ) {
+                    score++;
+                    bestScore = Math.max(bestScore, score);
+                }
+            }
+
+            final boolean ended;
+            if( ball != null ) {
+                ended = ball.update();
+                if( ended ) {
+                    ball.resetToStartingPosition();
+                }
+            } else {
+                ended = balls.update() > 0;
+                if( ended ) {
+                    balls.resetAll();
+                }
+            }
+            if( ended ) {
+                score = 0;
+                gamesEnded++;
+            }
+
+            fingerprint = Recorder.combine(fingerprint, ball != null ? ball.fingerprint() : balls.fingerprint());
+        }
+
+        return new Result(fingerprint, mRecordedFingerprint, mTickCount, gamesEnded, bestScore);
+    }
+
+    /**
+     * The outcome of one replay.
+     */
+    static final class Result {
+        final long fingerprint;
+        final long recordedFingerprint;
+        final long ticks;
+        final int gamesEnded;
+        final int bestScore;
+
+        Result(long fingerprint, long recordedFingerprint, long ticks, int gamesEnded, int bestScore) {
+            this.fingerprint = fingerprint;
+            this.recordedFingerprint = recordedFingerprint;
+            this.ticks = ticks;
+            this.gamesEnded = gamesEnded;
+            this.bestScore = bestScore;
+        }
+
+        /**
+         * @return True if the replay ended exactly where the recorded game did.
+         */
+        final boolean matches() {
+            return fingerprint == recordedFingerprint;
+        }
+    }
+
+    private void addTap(long tick, int x, int y, int hit) {
+        if( mTapCount == mTapTicks.length ) {
+            final int capacity = mTapCount * 2;
+            mTapTicks = Arrays.copyOf(mTapTicks, capacity);
+            mTapX = Arrays.copyOf(mTapX, capacity);
+            mTapY = Arrays.copyOf(mTapY, capacity);
+            mTapHit = Arrays.copyOf(mTapHit, capacity);
+        }
+        mTapTicks[mTapCount] = tick;
+        mTapX[mTapCount] = x;
+        mTapY[mTapCount] = y;
+        mTapHit[mTapCount] = hit;
+        mTapCount++;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for( int shift = 0; shift < 64; shift += 7 ) {
+            final int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if( (b & 0x80) == 0 ) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        return ((long) readInt(in) << 32) | (readInt(in) & 0xFFFFFFFFL);
+    }
+
+    private static int readInt(InputStream in) throws IOException {
+        int value = 0;
+        for( int i = 0; i < 4; i++ ) {
+            value = (value << 8) | readByte(in);
+        }
+        return value;
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        final int b = in.read();
+        if( b < 0 ) {
+            throw new EOFException("The recording ends early.");
+        }
+        return b;
+    }
+}
@@ -8,58 +8,89 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 
+import java.io.File;
+
 /**
  * Created by TobiasC on 2017-04-17.
  */
 
 final class ScoreManager {
 
+    //Where older versions of the game saved the high score, it is moved into the file once
     private final String highScoreKey = "HIGH_SCORE_KEY";
+    private static final String HIGH_SCORE_FILE = "high_score";
 
     private int score = 0;
-    private int highScore = 0;
+    private final HighScoreStore mHighScoreStore;
+
+    //Drawing state, created on the first frame and reused afterwards
+    private final ScoreText mScoreText = new ScoreText();
+    private final ScoreText mHighScoreText = new ScoreText();
+    private Paint mPaint, mSmallPaint, mXsPaint;
+    private int mScreenWidth = 0;
+    private int mScreenHeight = 0;
+    private String mHighScoreLabel;
+    private int mDrawnScore = 0;
+    private int mDrawnHighScore = 0;
 
     /**
      * Pre: Activity is not null and it can access the user's private app preferences.
-     * Post: The score manager contains the high score saved to the user's device.
+     * Post: The high score saved to the user's device is being loaded in the background.
      */
     ScoreManager(Activity activity) {
         SharedPreferences sharedPref = activity.getPreferences(Context.MODE_PRIVATE);
-        highScore = sharedPref.getInt(highScoreKey, 0); //Default high score of 0
+        final int legacyHighScore = sharedPref.getInt(highScoreKey, 0); //Default high score of 0
+
+        mHighScoreStore = new HighScoreStore(new HighScoreFile(new File(activity.getFilesDir(), HIGH_SCORE_FILE)),
+                DiskWriter.get(), HighScoreStore.DEBOUNCE_MILLIS);
+        mHighScoreStore.load(legacyHighScore);
     }
 
     /**
-     * Pre: Activity is not null and it can access the user's private app preferences.
-     * Post: Internally stored score is higher by one.
+     * Post: Internally stored score is higher by one. A new high score is saved in the background.
      */
-    final void increaseScore(Activity activity) {
+    final void increaseScore() {
         score++;
-        if( score > highScore ) {
-            highScore = score;
-            saveHighScore(activity);
-        }
+        mHighScoreStore.offer(score);
     }
 
     /**
-     * Pre: Activity is not null and it can access the user's private app preferences.
-     * Post: The high score is committed to the device's memory in the background.
+     * @return The score of the game being played.
      */
-    private void saveHighScore(Activity activity) {
-        SharedPreferences sharedPref = activity.getPreferences(Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = sharedPref.edit();
-        editor.putInt(highScoreKey, highScore);
-        editor.apply();
+    final int getScore() {
+        return score;
+    }
+
+    /**
+     * Post: The high score is being written to the device's memory in the background.
+     */
+    final void saveHighScore() {
+        mHighScoreStore.flush();
     }
 
     /**
-     * Post: The internally stored score is back to its default value.
+     * Post: The internally stored score is back to its default value and the high score is being saved.
      */
     final void resetScore() {
         score = 0;
+        saveHighScore();
     }
 
     /**
-     * Pre: canvas is being displayed. Resources is not null.
+     * Pre: screenWidth and screenHeight are positive, in the same units the canvas is drawn in.
+     * Post: The score is laid out for a screen of the given size.
+     */
+    final void resize(int screenWidth, int screenHeight) {
+        if( screenWidth != mScreenWidth || screenHeight != mScreenHeight ) {
+            mScreenWidth = screenWidth;
+            mScreenHeight = screenHeight;
+            mPaint = null;
+        }
+    }
+
+    /**
+     * Pre: canvas is being displayed. Resources is not null. resize() has been called.
+     * Post: Nothing is allocated once the paints and the label have been created for this screen size.
      * @param canvas The game's canvas. Cannot be null.
      * @param resources The app's resources.
      */
@@ -67,27 +98,74 @@ final class ScoreManager {
         assert canvas != null;
         assert resources != null;
 
-        Paint paint = new Paint();
-        paint.setColor(Color.WHITE);
-        paint.setStyle(Paint.Style.FILL);
-        paint.setTextSize(canvas.getHeight()/4);
-        paint.setTextAlign(Paint.Align.CENTER);
+        final int width = mScreenWidth;
+        final int height = mScreenHeight;
+        if( mPaint == null ) {
+            createPaints(width, height);
+        }
+
+        if( mHighScoreLabel == null ) {
+            mHighScoreLabel = resources.getString(R.string.high_score);
+        }
+
+        final int highScore = mHighScoreStore.getHighScore();
+        mScoreText.setValue(score);
+        mHighScoreText.setValue(highScore);
+
+        canvas.drawText(mScoreText.getChars(), mScoreText.getStart(), mScoreText.getLength(),
+                width/2, height/2+(mPaint.getTextSize()/3), mPaint);
+        canvas.drawText(mHighScoreText.getChars(), mHighScoreText.getStart(), mHighScoreText.getLength(),
+                width/2, mSmallPaint.getTextSize()*2, mSmallPaint);
+        canvas.drawText(mHighScoreLabel, width/2, mSmallPaint.getTextSize()*2+mXsPaint.getTextSize()*2, mXsPaint);
+
+        mDrawnScore = score;
+        mDrawnHighScore = highScore;
+    }
+
+    /**
+     * Post: region covers the lines of text whose numbers changed since they were last drawn.
+     *       Nothing is reported before the first draw because the whole screen is redrawn then.
+     * @param region The area of the screen to redraw this frame. Cannot be null.
+     */
+    void reportDirtyRegion(DirtyRegion region) {
+        if( mPaint == null ) {
+            return;
+        }
+
+        if( score != mDrawnScore ) {
+            final float baseline = mScreenHeight/2+(mPaint.getTextSize()/3);
+            region.union(0, (int) Math.floor(baseline+mPaint.ascent()),
+                    mScreenWidth, (int) Math.ceil(baseline+mPaint.descent()));
+        }
 
-        canvas.drawText(String.valueOf(score), canvas.getWidth()/2, canvas.getHeight()/2+(paint.getTextSize()/3), paint);
+        if( mHighScoreStore.getHighScore() != mDrawnHighScore ) {
+            final float baseline = mSmallPaint.getTextSize()*2;
+            region.union(0, (int) Math.floor(baseline+mSmallPaint.ascent()),
+                    mScreenWidth, (int) Math.ceil(baseline+mSmallPaint.descent()));
+        }
+    }
 
-        Paint smallPaint = new Paint();
-        smallPaint.setColor(Color.WHITE);
-        smallPaint.setStyle(Paint.Style.FILL);
-        smallPaint.setTextSize(paint.getTextSize()/4);
-        smallPaint.setTextAlign(Paint.Align.CENTER);
+    /**
+     * Post: The paints are sized for a screen of the given dimensions.
+     */
+    private void createPaints(int screenWidth, int screenHeight) {
+        mPaint = createTextPaint();
+        mSmallPaint = createTextPaint();
+        mXsPaint = createTextPaint();
 
-        canvas.drawText(String.valueOf(highScore), canvas.getWidth()/2, smallPaint.getTextSize()*2, smallPaint);
+        mPaint.setTextSize(screenHeight/4);
+        mSmallPaint.setTextSize(mPaint.getTextSize()/4);
+        mXsPaint.setTextSize(mSmallPaint.getTextSize()/2);
+    }
 
-        Paint xsPaint = new Paint();
-        xsPaint.setColor(Color.WHITE);
-        xsPaint.setStyle(Paint.Style.FILL);
-        xsPaint.setTextSize(smallPaint.getTextSize()/2);
-        xsPaint.setTextAlign(Paint.Align.CENTER);
-        canvas.drawText(resources.getString(R.string.high_score), canvas.getWidth()/2, smallPaint.getTextSize()*2+xsPaint.getTextSize()*2, xsPaint);
+    /**
+     * @return A white, centered text paint.
+     */
+    private static Paint createTextPaint() {
+        Paint paint = new Paint();
+        paint.setColor(Color.WHITE);
+        paint.setStyle(Paint.Style.FILL);
+        paint.setTextAlign(Paint.Align.CENTER);
+        return paint;
     }
 }
@@ -0,0 +1,66 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * The decimal digits of a number kept in a reusable char buffer so the score can be
+ * drawn every frame without building a new String. The digits are only rewritten
+ * when the number changes.
+ */
+
+final class ScoreText {
+
+    //Enough room for the sign and all ten digits of Integer.MIN_VALUE
+    private static final int MAX_LENGTH = 11;
+
+    private final char[] mChars = new char[MAX_LENGTH];
+    private int mStart = MAX_LENGTH;
+    private int mValue = 0;
+    private boolean mFormatted = false;
+
+    /**
+     * Post: getChars() holds the decimal digits of value starting at getStart().
+     * @param value The number to display.
+     */
+    final void setValue(int value) {
+        if( mFormatted && value == mValue ) {
+            return;
+        }
+
+        mValue = value;
+        mFormatted = true;
+
+        //Work with a negative number so Integer.MIN_VALUE does not overflow
+        int remaining = value > 0 ? -value : value;
+        int position = MAX_LENGTH;
+        do {
+            mChars[--position] = (char) ('0' - (remaining % 10));
+            remaining /= 10;
+        } while( remaining != 0 );
+
+        if( value < 0 ) {
+            mChars[--position] = '-';
+        }
+        mStart = position;
+    }
+
+    /**
+     * Pre: setValue() has been called.
+     * @return The buffer holding the digits. Must not be modified.
+     */
+    final char[] getChars() {
+        return mChars;
+    }
+
+    /**
+     * @return The index of the first digit in getChars().
+     */
+    final int getStart() {
+        return mStart;
+    }
+
+    /**
+     * @return The number of chars that make up the number.
+     */
+    final int getLength() {
+        return MAX_LENGTH - mStart;
+    }
+}
@@ -0,0 +1,45 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * One game from the first jump of the ball until it fell off the screen.
+ */
+
+final class Session {
+    //When the game ended, in milliseconds since the epoch
+    final long endTimeMillis;
+    final int durationMillis;
+    final int score;
+    final int taps;
+    final int meanFrameMicros;
+    final int worstFrameMicros;
+
+    Session(long endTimeMillis, int durationMillis, int score, int taps, int meanFrameMicros, int worstFrameMicros) {
+        this.endTimeMillis = endTimeMillis;
+        this.durationMillis = durationMillis;
+        this.score = score;
+        this.taps = taps;
+        this.meanFrameMicros = meanFrameMicros;
+        this.worstFrameMicros = worstFrameMicros;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if( !(o instanceof Session) ) {
+            return false;
+        }
+        Session other = (Session) o;
+        return endTimeMillis == other.endTimeMillis && durationMillis == other.durationMillis
+                && score == other.score && taps == other.taps
+                && meanFrameMicros == other.meanFrameMicros && worstFrameMicros == other.worstFrameMicros;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = (int) (endTimeMillis ^ (endTimeMillis >>> 32));
+        hash = 31 * hash + durationMillis;
+        hash = 31 * hash + score;
+        hash = 31 * hash + taps;
+        hash = 31 * hash + meanFrameMicros;
+        return 31 * hash + worstFrameMicros;
+    }
+}
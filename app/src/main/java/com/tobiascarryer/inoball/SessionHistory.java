@@ -0,0 +1,109 @@
+package com.tobiascarryer.inoball;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Records finished games in a SessionLog and answers questions about them, all on the writer
+ * thread so the game loop never waits for the disk. The log is opened the first time it is used.
+ */
+
+final class SessionHistory {
+    private final File mFile;
+    private final Executor mWriter;
+
+    //Only used on the writer thread
+    private SessionLog mLog;
+    private boolean mFailed = false;
+
+    /**
+     * @param file Where the sessions are stored.
+     * @param writer The thread the log is read and written on. Cannot be null.
+     */
+    SessionHistory(File file, Executor writer) {
+        assert file != null;
+        assert writer != null;
+
+        mFile = file;
+        mWriter = writer;
+    }
+
+    /**
+     * Post: The session will be appended to the log in the background.
+     */
+    final void record(final Session session) {
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                final SessionLog log = open();
+                if( log == null ) {
+                    return;
+                }
+                try {
+                    log.append(session);
+                } catch (IOException e) {
+                    Log.e("ERROR", "Could not record the session.", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Never wait for the result on the UI or render thread.
+     * @return Up to count sessions with the highest scores, best first.
+     */
+    final Future<List<Session>> topScores(final int count) {
+        return query(new Callable<List<Session>>() {
+            @Override
+            public List<Session> call() throws Exception {
+                final SessionLog log = open();
+                return log == null ? Collections.<Session>emptyList() : log.topScores(count);
+            }
+        });
+    }
+
+    /**
+     * Never wait for the result on the UI or render thread.
+     * @return Up to count of the most recent sessions, newest first.
+     */
+    final Future<List<Session>> lastSessions(final int count) {
+        return query(new Callable<List<Session>>() {
+            @Override
+            public List<Session> call() throws Exception {
+                final SessionLog log = open();
+                return log == null ? Collections.<Session>emptyList() : log.lastSessions(count);
+            }
+        });
+    }
+
+    private Future<List<Session>> query(Callable<List<Session>> callable) {
+        final FutureTask<List<Session>> task = new FutureTask<>(callable);
+        mWriter.execute(task);
+        return task;
+    }
+
+    /**
+     * Pre: Called on the writer thread.
+     * @return The open log, or null if it can't be opened.
+     */
+    private SessionLog open() {
+        if( mLog == null && !mFailed ) {
+            try {
+                mLog = new SessionLog(mFile);
+            } catch (IOException e) {
+                //Don't try again every game
+                mFailed = true;
+                Log.e("ERROR", "Could not open the session log.", e);
+            }
+        }
+        return mLog;
+    }
+}
@@ -0,0 +1,232 @@
+package com.tobiascarryer.inoball;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Every game played, in an append-only file of fixed size binary records.
+ *
+ * Records are read through a memory map of the file, so looking a session up is a read from
+ * memory at a known offset. A map can't be released before the garbage collector gets to it,
+ * so the map only grows MAP_CHUNK_RECORDS records at a time and the few records appended
+ * since are read from the file. The last sessions are simply the last records. The best scores
+ * are kept in a sorted index of score and record number that is built when the file is
+ * opened. The index only holds the best TOP_INDEX_SIZE sessions so it stays small no matter
+ * how many games have been played, and adding to it or asking it for the top scores is
+ * O(log n) in its size.
+ *
+ * A record that was torn by a crash fails its checksum and is cut off when the file is opened.
+ *
+ * This is plain Java with no Android dependencies. Only use it from one thread at a time.
+ */
+
+final class SessionLog implements Closeable {
+    static final int RECORD_BYTES = 32;
+
+    //The most sessions topScores() can return
+    static final int TOP_INDEX_SIZE = 1000;
+
+    //The map is grown once this many records past it have been appended
+    static final int MAP_CHUNK_RECORDS = 256;
+
+    //Bytes of a record covered by its checksum, the checksum follows them
+    private static final int PAYLOAD_BYTES = RECORD_BYTES - 4;
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private final ByteBuffer mWriteBuffer = ByteBuffer.allocate(RECORD_BYTES);
+    private final ByteBuffer mReadBuffer = ByteBuffer.allocate(RECORD_BYTES);
+    private final byte[] mPayload = new byte[PAYLOAD_BYTES];
+    private final CRC32 mCrc = new CRC32();
+
+    private MappedByteBuffer mMapped;
+    private int mMappedRecords = 0;
+    private int mMapCount = 0;
+    private int mCount = 0;
+
+    //Score in the high 32 bits, record number in the low 32 bits, so ties list the newest first
+    private final TreeSet<Long> mTopScores = new TreeSet<>();
+
+    /**
+     * Post: The file is open and indexed. A torn record at its end has been cut off.
+     * @param file Where the sessions are stored. It is created if it doesn't exist.
+     */
+    SessionLog(File file) throws IOException {
+        mFile = new RandomAccessFile(file, "rw");
+        mChannel = mFile.getChannel();
+
+        remap((int) (mChannel.size() / RECORD_BYTES));
+        int valid = 0;
+        while( valid < mMappedRecords && isValid(valid) ) {
+            index(valid, mMapped.getInt(valid * RECORD_BYTES + 12));
+            valid++;
+        }
+        mCount = valid;
+
+        if( mChannel.size() != (long) valid * RECORD_BYTES ) {
+            //Later records would be misaligned after a torn one
+            mChannel.truncate((long) valid * RECORD_BYTES);
+            remap(valid);
+        }
+    }
+
+    /**
+     * Post: The session is the newest record in the file and has been synced to the disk.
+     */
+    final void append(Session session) throws IOException {
+        final ByteBuffer buffer = mWriteBuffer;
+        buffer.clear();
+        buffer.putLong(session.endTimeMillis);
+        buffer.putInt(session.durationMillis);
+        buffer.putInt(session.score);
+        buffer.putInt(session.taps);
+        buffer.putInt(session.meanFrameMicros);
+        buffer.putInt(session.worstFrameMicros);
+
+        buffer.position(0);
+        buffer.get(mPayload);
+        buffer.putInt(checksum(mPayload));
+        buffer.flip();
+
+        /* Append at the end of the file rather than after the last record this log knows of,
+        so a second log open on the same file can't overwrite what the first one wrote. */
+        final int record = (int) (mChannel.size() / RECORD_BYTES);
+        long position = (long) record * RECORD_BYTES;
+        while( buffer.hasRemaining() ) {
+            position += mChannel.write(buffer, position);
+        }
+        mChannel.force(false);
+
+        index(record, session.score);
+        mCount = record + 1;
+    }
+
+    /**
+     * @return The number of sessions in the log.
+     */
+    final int size() {
+        return mCount;
+    }
+
+    /**
+     * Pre: index is from 0 to size() - 1, 0 is the oldest session.
+     */
+    final Session get(int index) throws IOException {
+        assert index >= 0 && index < mCount;
+
+        if( index >= mMappedRecords && mCount - mMappedRecords >= MAP_CHUNK_RECORDS ) {
+            //Only whole chunks are mapped, the file never grows to fit the map
+            remap(mCount - mCount % MAP_CHUNK_RECORDS);
+        }
+
+        final ByteBuffer record;
+        final int offset;
+        if( index < mMappedRecords ) {
+            record = mMapped;
+            offset = index * RECORD_BYTES;
+        } else {
+            record = read(index);
+            offset = 0;
+        }
+        return new Session(record.getLong(offset), record.getInt(offset + 8), record.getInt(offset + 12),
+                record.getInt(offset + 16), record.getInt(offset + 20), record.getInt(offset + 24));
+    }
+
+    /**
+     * @return Up to count sessions with the highest scores, best first. Equal scores list the newest first.
+     */
+    final List<Session> topScores(int count) throws IOException {
+        final List<Session> sessions = new ArrayList<>(Math.min(count, mTopScores.size()));
+        final Iterator<Long> best = mTopScores.descendingIterator();
+        while( best.hasNext() && sessions.size() < count ) {
+            sessions.add(get((int) (long) best.next()));
+        }
+        return sessions;
+    }
+
+    /**
+     * @return Up to count of the most recent sessions, newest first.
+     */
+    final List<Session> lastSessions(int count) throws IOException {
+        final int first = Math.max(0, mCount - count);
+        final List<Session> sessions = new ArrayList<>(mCount - first);
+        for( int i = mCount - 1; i >= first; i-- ) {
+            sessions.add(get(i));
+        }
+        return sessions;
+    }
+
+    /**
+     * @return How many times the file has been mapped since it was opened.
+     */
+    final int getMapCount() {
+        return mMapCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mFile.close();
+    }
+
+    /**
+     * Post: The session is in the top score index if it is one of the best TOP_INDEX_SIZE.
+     */
+    private void index(int record, int score) {
+        mTopScores.add(((long) score << 32) | (record & 0xFFFFFFFFL));
+        if( mTopScores.size() > TOP_INDEX_SIZE ) {
+            mTopScores.pollFirst();
+        }
+    }
+
+    /**
+     * Post: The first records of the file can be read through mMapped.
+     */
+    private void remap(int records) throws IOException {
+        mMapped = mChannel.map(FileChannel.MapMode.READ_ONLY, 0, (long) records * RECORD_BYTES);
+        mMappedRecords = records;
+        mMapCount++;
+    }
+
+    /**
+     * Post: mReadBuffer holds the record, read from the file instead of the map.
+     * @return mReadBuffer.
+     */
+    private ByteBuffer read(int record) throws IOException {
+        final ByteBuffer buffer = mReadBuffer;
+        buffer.clear();
+        long position = (long) record * RECORD_BYTES;
+        while( buffer.hasRemaining() ) {
+            final int read = mChannel.read(buffer, position);
+            if( read < 0 ) {
+                throw new EOFException("Session " + record + " is past the end of the file.");
+            }
+            position += read;
+        }
+        return buffer;
+    }
+
+    private boolean isValid(int record) {
+        final int offset = record * RECORD_BYTES;
+        for( int i = 0; i < PAYLOAD_BYTES; i++ ) {
+            mPayload[i] = mMapped.get(offset + i);
+        }
+        return checksum(mPayload) == mMapped.getInt(offset + PAYLOAD_BYTES);
+    }
+
+    private int checksum(byte[] payload) {
+        mCrc.reset();
+        mCrc.update(payload, 0, payload.length);
+        return (int) mCrc.getValue();
+    }
+}
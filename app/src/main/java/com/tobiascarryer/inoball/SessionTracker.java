@@ -0,0 +1,69 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * Follows the game that is being played so it can be recorded as a Session when it ends.
+ * A game starts with the first tap that makes a ball jump. Only use it from the game loop's thread.
+ */
+
+final class SessionTracker {
+    private static final long NANOSECONDS_PER_MILLISECOND = 1000000L;
+    private static final long NANOSECONDS_PER_MICROSECOND = 1000L;
+
+    private final FrameMetrics mFrameMetrics;
+    private boolean mStarted = false;
+    private long mStartNanos = 0;
+    private int mTaps = 0;
+
+    /**
+     * @param frameMetrics The frame times of the game loop. Cannot be null.
+     */
+    SessionTracker(FrameMetrics frameMetrics) {
+        assert frameMetrics != null;
+        mFrameMetrics = frameMetrics;
+    }
+
+    /**
+     * Post: The tap is counted. A game starts if none was being played and the tap scored.
+     * @param timeNanos When the tap happened, on the game loop's clock.
+     * @param scored True if the tap made a ball jump.
+     */
+    final void onTap(long timeNanos, boolean scored) {
+        if( !mStarted ) {
+            if( !scored ) {
+                return;
+            }
+            mStarted = true;
+            mStartNanos = timeNanos;
+            mTaps = 0;
+            mFrameMetrics.mark();
+        }
+        mTaps++;
+    }
+
+    /**
+     * @return True if a game is being played.
+     */
+    final boolean isStarted() {
+        return mStarted;
+    }
+
+    /**
+     * Post: No game is being played.
+     * @param timeNanos When the game ended, on the game loop's clock.
+     * @param endTimeMillis When the game ended, in milliseconds since the epoch.
+     * @param score The score the game ended with.
+     * @return The game that ended, or null if no game was being played.
+     */
+    final Session finish(long timeNanos, long endTimeMillis, int score) {
+        if( !mStarted ) {
+            return null;
+        }
+        mStarted = false;
+
+        return new Session(endTimeMillis,
+                (int) ((timeNanos - mStartNanos) / NANOSECONDS_PER_MILLISECOND),
+                score, mTaps,
+                (int) (mFrameMetrics.getMeanSinceMark() / NANOSECONDS_PER_MICROSECOND),
+                (int) (mFrameMetrics.getMaxSinceMark() / NANOSECONDS_PER_MICROSECOND));
+    }
+}
@@ -0,0 +1,36 @@
+package com.tobiascarryer.inoball;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.SurfaceHolder;
+
+/**
+ * Draws on the surface's software canvas, rasterised on the CPU. The surface keeps the
+ * previous frame so only the part of the screen that changed has to be drawn. Works on
+ * every device.
+ */
+
+final class SoftwareRenderBackend implements RenderBackend {
+    static final String NAME = "software";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isFullRedraw() {
+        return false;
+    }
+
+    @Override
+    public Canvas lockCanvas(SurfaceHolder holder, Rect dirty) {
+        //The surface may grow dirty if it can't keep the rest of the previous frame
+        return holder.lockCanvas(dirty);
+    }
+
+    @Override
+    public void unlockCanvasAndPost(SurfaceHolder holder, Canvas canvas) {
+        holder.unlockCanvasAndPost(canvas);
+    }
+}
@@ -0,0 +1,221 @@
+package com.tobiascarryer.inoball;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over circles of the same radius that answers which circle is under a point
+ * and which circles overlap, without comparing every circle against every other one.
+ *
+ * Cells are as wide as a circle, so a circle can only touch circles whose corner is in the
+ * same cell or one of the eight cells around it. The grid is rebuilt from the positions with
+ * a counting sort every tick, which is linear in the number of circles and never allocates.
+ * All distance tests compare squared distances, no square roots are taken.
+ *
+ * This is plain Java with no Android dependencies.
+ */
+
+final class SpatialGrid {
+    private final int mRadius;
+    private final double mCellSize;
+    private final int mColumns;
+    private final int mRows;
+
+    //Circles sorted by cell. The circles in cell c are mItems[mCellStart[c]] to mItems[mCellStart[c+1]-1]
+    private final int[] mCellStart;
+    private final int[] mItems;
+    private final int[] mCellOf;
+
+    //Top left corners of the circles from the last rebuild
+    private double[] mX, mY;
+
+    //Overlapping pairs from the last call to findOverlappingPairs(), grown when needed
+    private int[] mPairs = new int[64];
+    private int mPairCount = 0;
+
+    /**
+     * @param worldWidth The width of the area the circles are usually in.
+     * @param worldHeight The height of the area the circles are usually in.
+     * @param radius The radius of every circle.
+     * @param capacity The most circles the grid can hold.
+     */
+    SpatialGrid(int worldWidth, int worldHeight, int radius, int capacity) {
+        assert radius > 0;
+        assert capacity > 0;
+
+        mRadius = radius;
+        mCellSize = 2 * radius;
+        mColumns = Math.max(1, (int) Math.ceil(worldWidth / mCellSize));
+        mRows = Math.max(1, (int) Math.ceil(worldHeight / mCellSize));
+        mCellStart = new int[mColumns * mRows + 1];
+        mItems = new int[capacity];
+        mCellOf = new int[capacity];
+    }
+
+    /**
+     * Pre: count is at most the capacity.
+     * Post: Queries answer for the circles whose top left corners are in x and y. The arrays
+     *       are kept, not copied, so they must not change until the next rebuild.
+     * @param x The left edge of each circle.
+     * @param y The top edge of each circle.
+     * @param count The number of circles.
+     */
+    final void rebuild(double[] x, double[] y, int count) {
+        assert count <= mItems.length;
+
+        mX = x;
+        mY = y;
+
+        final int[] cellStart = mCellStart;
+        Arrays.fill(cellStart, 0);
+
+        //Count the circles in every cell
+        for( int i = 0; i < count; i++ ) {
+            final int cell = column(x[i]) + row(y[i]) * mColumns;
+            mCellOf[i] = cell;
+            cellStart[cell + 1]++;
+        }
+
+        //Turn the counts into the index each cell starts at
+        for( int c = 1; c < cellStart.length; c++ ) {
+            cellStart[c] += cellStart[c - 1];
+        }
+
+        /* Place every circle, filling each cell from its end so the sums above can be reused
+        as cursors. A cell ends up with its circles in the order they were added. */
+        for( int i = count - 1; i >= 0; i-- ) {
+            final int cell = mCellOf[i];
+            mItems[--cellStart[cell + 1]] = i;
+        }
+
+        //Each cursor now points at the start of the cell before it, shift them into place
+        System.arraycopy(cellStart, 1, cellStart, 0, cellStart.length - 1);
+        cellStart[cellStart.length - 1] = count;
+    }
+
+    /**
+     * @return The highest index of a circle that contains the point, which is the one drawn on
+     *         top, or -1 if there is none.
+     */
+    final int findAt(double pointX, double pointY) {
+        final double radius = mRadius;
+        final double radiusSquared = radius * radius;
+        final int column = column(pointX - radius);
+        final int row = row(pointY - radius);
+
+        int found = -1;
+        for( int r = Math.max(0, row - 1); r <= Math.min(mRows - 1, row + 1); r++ ) {
+            for( int c = Math.max(0, column - 1); c <= Math.min(mColumns - 1, column + 1); c++ ) {
+                final int cell = c + r * mColumns;
+                for( int k = mCellStart[cell]; k < mCellStart[cell + 1]; k++ ) {
+                    final int i = mItems[k];
+                    final double a = pointX - (mX[i] + radius);
+                    final double b = pointY - (mY[i] + radius);
+                    if( i > found && a*a + b*b <= radiusSquared ) {
+                        found = i;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Post: getPairCount(), getFirst() and getSecond() describe every pair of circles that overlap.
+     * @return The number of overlapping pairs.
+     */
+    final int findOverlappingPairs() {
+        mPairCount = 0;
+        final int columns = mColumns;
+        for( int r = 0; r < mRows; r++ ) {
+            for( int c = 0; c < columns; c++ ) {
+                final int cell = c + r * columns;
+                for( int k = mCellStart[cell]; k < mCellStart[cell + 1]; k++ ) {
+                    final int i = mItems[k];
+
+                    //The rest of this cell, then the neighbours that haven't been visited yet
+                    collideWithCell(i, k + 1, mCellStart[cell + 1]);
+                    if( c + 1 < columns ) {
+                        collideWithCell(i, cell + 1);
+                    }
+                    if( r + 1 < mRows ) {
+                        if( c > 0 ) {
+                            collideWithCell(i, cell + columns - 1);
+                        }
+                        collideWithCell(i, cell + columns);
+                        if( c + 1 < columns ) {
+                            collideWithCell(i, cell + columns + 1);
+                        }
+                    }
+                }
+            }
+        }
+        return mPairCount / 2;
+    }
+
+    /**
+     * @return The number of pairs found by the last call to findOverlappingPairs().
+     */
+    final int getPairCount() {
+        return mPairCount / 2;
+    }
+
+    /**
+     * @return The smaller index of the pair.
+     */
+    final int getFirst(int pair) {
+        return mPairs[pair * 2];
+    }
+
+    /**
+     * @return The larger index of the pair.
+     */
+    final int getSecond(int pair) {
+        return mPairs[pair * 2 + 1];
+    }
+
+    private void collideWithCell(int i, int cell) {
+        collideWithCell(i, mCellStart[cell], mCellStart[cell + 1]);
+    }
+
+    /**
+     * Post: Every circle in mItems[from] to mItems[to-1] that overlaps circle i was added as a pair.
+     */
+    private void collideWithCell(int i, int from, int to) {
+        final double diameter = mCellSize;
+        final double diameterSquared = diameter * diameter;
+        final double x = mX[i];
+        final double y = mY[i];
+        for( int k = from; k < to; k++ ) {
+            final int j = mItems[k];
+            final double a = mX[j] - x;
+            final double b = mY[j] - y;
+            if( a*a + b*b < diameterSquared ) {
+                addPair(Math.min(i, j), Math.max(i, j));
+            }
+        }
+    }
+
+    private void addPair(int first, int second) {
+        if( mPairCount + 2 > mPairs.length ) {
+            mPairs = Arrays.copyOf(mPairs, mPairs.length * 2);
+        }
+        mPairs[mPairCount++] = first;
+        mPairs[mPairCount++] = second;
+    }
+
+    /**
+     * @return The column of the cell x is in. Positions off the grid use the closest column.
+     */
+    private int column(double x) {
+        final int column = (int) Math.floor(x / mCellSize);
+        return Math.min(Math.max(column, 0), mColumns - 1);
+    }
+
+    /**
+     * @return The row of the cell y is in. Positions off the grid use the closest row.
+     */
+    private int row(double y) {
+        final int row = (int) Math.floor(y / mCellSize);
+        return Math.min(Math.max(row, 0), mRows - 1);
+    }
+}
@@ -0,0 +1,245 @@
+package com.tobiascarryer.inoball;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+
+/**
+ * Decoded and scaled sprites, keyed by drawable resource and target size.
+ *
+ * The cache holds at most a fixed number of bytes and evicts the least recently used
+ * sprite when it is full. Sprites are decoded with inSampleSize so a large drawable is
+ * never decoded at full size just to be scaled down, and the temporary bitmaps that are
+ * decoded before scaling are kept in a small pool and reused through inBitmap.
+ *
+ * All methods are thread safe.
+ */
+
+final class SpriteCache {
+
+    /**
+     * Identifies a sprite. Create keys once and reuse them so looking a sprite up doesn't allocate.
+     */
+    static final class Key {
+        final int resId;
+        final int width;
+        final int height;
+
+        private Key(int resId, int width, int height) {
+            this.resId = resId;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * @return True if the sprite is kept at the drawable's own size.
+         */
+        final boolean isOriginalSize() {
+            return width == 0 && height == 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if( !(o instanceof Key) ) {
+                return false;
+            }
+            Key other = (Key) o;
+            return resId == other.resId && width == other.width && height == other.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * resId + width) + height;
+        }
+    }
+
+    private final Resources mResources;
+    private final LruCache<Key, Bitmap> mSprites;
+
+    //Bitmaps that were only needed while decoding, ready to be decoded into again
+    private final ArrayList<Bitmap> mReusable = new ArrayList<>();
+    private final int mMaxReusableBytes;
+    private int mReusableBytes = 0;
+
+    /**
+     * @param resources The app's resources. Cannot be null.
+     * @param maxBytes The most memory the cached sprites may use.
+     */
+    SpriteCache(Resources resources, int maxBytes) {
+        assert resources != null;
+        assert maxBytes > 0;
+
+        mResources = resources;
+        mMaxReusableBytes = maxBytes / 2;
+        mSprites = new LruCache<Key, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * @return A key for the drawable scaled to exactly width by height pixels.
+     */
+    static Key key(int resId, int width, int height) {
+        assert width > 0 && height > 0;
+        return new Key(resId, width, height);
+    }
+
+    /**
+     * @return A key for the drawable at the size Android would normally load it for the screen's density.
+     */
+    static Key key(int resId) {
+        return new Key(resId, 0, 0);
+    }
+
+    /**
+     * Post: The sprite is in the cache, it was decoded if it wasn't already.
+     * @param key The sprite to get. Cannot be null.
+     * @return The decoded sprite. Must not be recycled by the caller.
+     */
+    final Bitmap obtain(Key key) {
+        Bitmap sprite = mSprites.get(key);
+        if( sprite == null ) {
+            sprite = decode(key);
+            mSprites.put(key, sprite);
+        }
+        return sprite;
+    }
+
+    /**
+     * @return The cached sprite, or null if it has not been decoded or it was evicted.
+     */
+    final Bitmap get(Key key) {
+        return mSprites.get(key);
+    }
+
+    /**
+     * Post: The cache and the pool of reusable bitmaps are empty.
+     */
+    final void clear() {
+        mSprites.evictAll();
+        synchronized (mReusable) {
+            mReusable.clear();
+            mReusableBytes = 0;
+        }
+    }
+
+    /**
+     * @return A newly decoded bitmap for the key.
+     */
+    private Bitmap decode(Key key) {
+        if( key.isOriginalSize() ) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inMutable = true;
+            return BitmapFactory.decodeResource(mResources, key.resId, options);
+        }
+
+        //Read the dimensions without decoding any pixels
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(mResources, key.resId, options);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, key.width, key.height);
+        options.inMutable = true;
+        options.inBitmap = takeReusable(options.outWidth, options.outHeight, options.inSampleSize);
+
+        Bitmap decoded;
+        try {
+            decoded = BitmapFactory.decodeResource(mResources, key.resId, options);
+        } catch (IllegalArgumentException e) {
+            //The bitmap could not be reused after all, decode into new memory
+            options.inBitmap = null;
+            decoded = BitmapFactory.decodeResource(mResources, key.resId, options);
+        }
+
+        if( decoded.getWidth() == key.width && decoded.getHeight() == key.height ) {
+            return decoded;
+        }
+
+        Bitmap scaled = Bitmap.createScaledBitmap(decoded, key.width, key.height, true);
+        if( scaled != decoded ) {
+            giveReusable(decoded);
+        }
+        return scaled;
+    }
+
+    /**
+     * @return A pooled bitmap that a decode of the given size can reuse, or null if there is none.
+     */
+    private Bitmap takeReusable(int sourceWidth, int sourceHeight, int inSampleSize) {
+        if( Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB ) {
+            return null;
+        }
+
+        final int width = (sourceWidth + inSampleSize - 1) / inSampleSize;
+        final int height = (sourceHeight + inSampleSize - 1) / inSampleSize;
+
+        synchronized (mReusable) {
+            for( int i = 0; i < mReusable.size(); i++ ) {
+                Bitmap candidate = mReusable.get(i);
+                if( canReuse(candidate, width, height, inSampleSize) ) {
+                    mReusable.remove(i);
+                    mReusableBytes -= candidate.getByteCount();
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return True if a decode of width by height pixels can be written into the candidate.
+     */
+    private static boolean canReuse(Bitmap candidate, int width, int height, int inSampleSize) {
+        if( candidate.isRecycled() || !candidate.isMutable() ) {
+            return false;
+        }
+
+        if( Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT ) {
+            //Any bitmap with enough memory can be reused
+            return candidate.getAllocationByteCount() >= width * height * 4;
+        }
+
+        //Before KitKat the sizes must match exactly and the image can't be sampled
+        return inSampleSize == 1 && candidate.getWidth() == width && candidate.getHeight() == height;
+    }
+
+    /**
+     * Post: The bitmap can be reused by a later decode, or it was dropped if the pool is full.
+     */
+    private void giveReusable(Bitmap bitmap) {
+        if( Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB || !bitmap.isMutable() ) {
+            return;
+        }
+
+        synchronized (mReusable) {
+            final int bytes = bitmap.getByteCount();
+            if( mReusableBytes + bytes <= mMaxReusableBytes ) {
+                mReusable.add(bitmap);
+                mReusableBytes += bytes;
+            }
+        }
+    }
+
+    /**
+     * Pre: All dimensions are positive.
+     * @return The largest power of two that can divide the source size while the decoded image
+     *         stays at least as large as the requested size.
+     */
+    static int calculateInSampleSize(int sourceWidth, int sourceHeight, int requestedWidth, int requestedHeight) {
+        int inSampleSize = 1;
+        while( sourceWidth / (inSampleSize * 2) >= requestedWidth
+                && sourceHeight / (inSampleSize * 2) >= requestedHeight ) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+}
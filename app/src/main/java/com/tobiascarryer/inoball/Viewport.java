@@ -0,0 +1,171 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * Maps between the three sizes the game deals with. The world is what the game is played in,
+ * it is always WORLD_WIDTH wide and as tall as the view's aspect ratio makes it, so the game
+ * plays the same on every screen. The render buffer is what frames are drawn into, its size
+ * depends on the quality setting. The view is the part of the screen the game covers, the
+ * compositor scales the render buffer up to it.
+ *
+ * This is plain Java with no Android dependencies.
+ */
+
+final class Viewport {
+    static final int WORLD_WIDTH = 720;
+
+    static final int QUALITY_HIGH = 0;
+    static final int QUALITY_MEDIUM = 1;
+    static final int QUALITY_LOW = 2;
+    static final int QUALITY_COUNT = 3;
+
+    //The width of the render buffer as a fraction of the world's width at each quality
+    private static final double[] QUALITY_SCALES = {1, 0.75, 0.5};
+
+    private final int mWorldWidth;
+    private final int mWorldHeight;
+    private int mViewWidth;
+    private int mViewHeight;
+    private int mBufferWidth;
+    private int mBufferHeight;
+
+    /**
+     * Post: The world has the view's aspect ratio. The render buffer is the size of the view
+     *       until setBufferSize() is called.
+     * @param viewWidth The width of the view in pixels. Must be positive.
+     * @param viewHeight The height of the view in pixels. Must be positive.
+     */
+    Viewport(int viewWidth, int viewHeight) {
+        assert viewWidth > 0 && viewHeight > 0;
+
+        mWorldWidth = WORLD_WIDTH;
+        mWorldHeight = Math.max(1, (int) Math.round((double) WORLD_WIDTH * viewHeight / viewWidth));
+        setViewSize(viewWidth, viewHeight);
+        setBufferSize(viewWidth, viewHeight);
+    }
+
+    /**
+     * @return The next quality setting, the highest one comes after the lowest.
+     */
+    static int nextQuality(int quality) {
+        return (quality + 1) % QUALITY_COUNT;
+    }
+
+    /**
+     * @return True if quality is one of the QUALITY constants.
+     */
+    static boolean isQuality(int quality) {
+        return quality >= 0 && quality < QUALITY_COUNT;
+    }
+
+    /**
+     * Post: Taps are mapped from a view of the given size. The world keeps its size.
+     */
+    final void setViewSize(int viewWidth, int viewHeight) {
+        assert viewWidth > 0 && viewHeight > 0;
+        mViewWidth = viewWidth;
+        mViewHeight = viewHeight;
+    }
+
+    /**
+     * Post: Frames are drawn into a render buffer of the given size.
+     */
+    final void setBufferSize(int bufferWidth, int bufferHeight) {
+        assert bufferWidth > 0 && bufferHeight > 0;
+        mBufferWidth = bufferWidth;
+        mBufferHeight = bufferHeight;
+    }
+
+    /**
+     * Pre: quality is one of the QUALITY constants.
+     * @return The width of the render buffer at that quality. It is never wider than the view,
+     *         there is no point drawing more pixels than the screen shows.
+     */
+    final int getBufferWidthFor(int quality) {
+        assert isQuality(quality);
+        return Math.max(1, Math.min(mViewWidth, (int) Math.round(mWorldWidth * QUALITY_SCALES[quality])));
+    }
+
+    /**
+     * Pre: quality is one of the QUALITY constants.
+     * @return The height of the render buffer at that quality, keeping the view's aspect ratio.
+     */
+    final int getBufferHeightFor(int quality) {
+        return Math.max(1, (int) Math.round((double) getBufferWidthFor(quality) * mViewHeight / mViewWidth));
+    }
+
+    final int getWorldWidth() {
+        return mWorldWidth;
+    }
+
+    final int getWorldHeight() {
+        return mWorldHeight;
+    }
+
+    final int getBufferWidth() {
+        return mBufferWidth;
+    }
+
+    final int getBufferHeight() {
+        return mBufferHeight;
+    }
+
+    /**
+     * @return How many render buffer pixels one unit of the world is across.
+     */
+    final float getBufferScaleX() {
+        return (float) mBufferWidth / mWorldWidth;
+    }
+
+    /**
+     * @return How many render buffer pixels one unit of the world is down.
+     */
+    final float getBufferScaleY() {
+        return (float) mBufferHeight / mWorldHeight;
+    }
+
+    /**
+     * @param viewX A distance from the left of the view in pixels, for example where it was touched.
+     * @return The same point in the world.
+     */
+    final int toWorldX(float viewX) {
+        return (int) Math.floor(viewX * mWorldWidth / mViewWidth);
+    }
+
+    /**
+     * @param viewY A distance from the top of the view in pixels, for example where it was touched.
+     * @return The same point in the world.
+     */
+    final int toWorldY(float viewY) {
+        return (int) Math.floor(viewY * mWorldHeight / mViewHeight);
+    }
+
+    /**
+     * @return The render buffer column a left edge at worldX falls in, so nothing
+     *         right of worldX is cut off.
+     */
+    final int toBufferLeft(int worldX) {
+        return (int) Math.floor((double) worldX * mBufferWidth / mWorldWidth);
+    }
+
+    /**
+     * @return The first render buffer column after a right edge at worldX, so nothing left
+     *         of worldX is cut off.
+     */
+    final int toBufferRight(int worldX) {
+        return (int) Math.ceil((double) worldX * mBufferWidth / mWorldWidth);
+    }
+
+    /**
+     * @return The render buffer row a top edge at worldY falls in.
+     */
+    final int toBufferTop(int worldY) {
+        return (int) Math.floor((double) worldY * mBufferHeight / mWorldHeight);
+    }
+
+    /**
+     * @return The first render buffer row after a bottom edge at worldY.
+     */
+    final int toBufferBottom(int worldY) {
+        return (int) Math.ceil((double) worldY * mBufferHeight / mWorldHeight);
+    }
+}
@@ -0,0 +1,207 @@
+package com.tobiascarryer.inoball;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.view.Choreographer;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Produces a frame every time the display refreshes instead of on a timer. Frames are
+ * timed by the Choreographer's vsync signal so every frame that is drawn is also shown,
+ * and game logic still ticks at a fixed rate through a GameLoop. While the game is paused no
+ * frame callback is posted, so the thread sleeps in its looper until it is resumed. The same
+ * goes for while the game is idle, until wake() posts a callback again.
+ *
+ * Requires Jelly Bean (API 16) or higher.
+ */
+
+final class VsyncFrameScheduler implements FrameScheduler, Choreographer.FrameCallback {
+
+    private final HandlerThread mThread;
+    private final GameLoop.Game mGame;
+    private final GameLoop mLoop;
+    private Handler mHandler;
+    private Choreographer mChoreographer;
+    private volatile boolean mRunning = false;
+    private volatile int mTargetFrameRate = 0;
+    //Only used on the scheduler's thread
+    private int mFrameRate = 0;
+    //True while no frame callback is posted because the game is idle
+    private boolean mIdle = false;
+
+    //Messages run in order, so this runs after the frame that found the game idle
+    private final Runnable mWakeUp = new Runnable() {
+        @Override
+        public void run() {
+            if( mIdle && mRunning ) {
+                mIdle = false;
+                //Nothing moved while idle, don't run the ticks for that time
+                mLoop.reset();
+                mChoreographer.postFrameCallback(VsyncFrameScheduler.this);
+            }
+        }
+    };
+
+    /**
+     * @param game The game to update and render. Cannot be null.
+     * @param ticksPerSecond The number of times game.update() is called in a second.
+     * @param metrics Where the time spent on each frame is recorded. Cannot be null.
+     */
+    VsyncFrameScheduler(GameLoop.Game game, int ticksPerSecond, FrameMetrics metrics) {
+        mGame = game;
+        mLoop = new GameLoop(GameLoop.SYSTEM_CLOCK, game, ticksPerSecond, metrics);
+        mThread = new HandlerThread("VsyncFrameScheduler", Process.THREAD_PRIORITY_DISPLAY);
+    }
+
+    @Override
+    public void start() {
+        mRunning = true;
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                //Choreographer.getInstance() belongs to the thread that calls it
+                mChoreographer = Choreographer.getInstance();
+                mChoreographer.postFrameCallback(VsyncFrameScheduler.this);
+            }
+        });
+    }
+
+    @Override
+    public void park() {
+        mRunning = false;
+        if( mHandler == null ) {
+            return;
+        }
+
+        //Messages run in order, so once this one has run no frame is being produced
+        final CountDownLatch stopped = new CountDownLatch(1);
+        final boolean posted = mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if( mChoreographer != null ) {
+                    mChoreographer.removeFrameCallback(VsyncFrameScheduler.this);
+                }
+                stopped.countDown();
+            }
+        });
+        if( !posted ) {
+            //The thread has already quit
+            return;
+        }
+
+        boolean interrupted = false;
+        while( true ) {
+            try {
+                stopped.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void unpark() {
+        if( mRunning || mHandler == null ) {
+            return;
+        }
+        mRunning = true;
+
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                //Don't run the ticks for the time spent paused
+                mIdle = false;
+                mLoop.reset();
+                if( mChoreographer != null ) {
+                    //A callback may already be waiting if the game was paused and resumed quickly
+                    mChoreographer.removeFrameCallback(VsyncFrameScheduler.this);
+                    mChoreographer.postFrameCallback(VsyncFrameScheduler.this);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        mRunning = false;
+        if( mHandler == null ) {
+            return;
+        }
+
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if( mChoreographer != null ) {
+                    mChoreographer.removeFrameCallback(VsyncFrameScheduler.this);
+                }
+                mThread.quit();
+            }
+        });
+
+        boolean retry = true;
+        while(retry) {
+            try {
+                mThread.join();
+                retry = false;
+            } catch(InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void setTargetFrameRate(int framesPerSecond) {
+        assert framesPerSecond >= 0;
+        mTargetFrameRate = framesPerSecond;
+    }
+
+    @Override
+    public void wake() {
+        //Only the scheduler's thread knows if it is idle, if it isn't the message does nothing
+        if( mHandler != null ) {
+            mHandler.post(mWakeUp);
+        }
+    }
+
+    /**
+     * Pre: Called by the Choreographer on the scheduler's thread.
+     * @param frameTimeNanos The time the vsync signal arrived, in the System.nanoTime() time base.
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if( !mRunning ) {
+            return;
+        }
+
+        if( mTargetFrameRate != mFrameRate ) {
+            mFrameRate = mTargetFrameRate;
+            mLoop.setTargetFrameRate(mFrameRate);
+        }
+
+        try {
+            //Below the display's refresh rate some vsyncs are skipped
+            if( mLoop.isFrameDue(frameTimeNanos) ) {
+                mLoop.renderFrame(frameTimeNanos);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        //Stop asking for vsyncs while the game is idle, wake() asks again
+        if( mGame.isIdle() ) {
+            mIdle = true;
+            return;
+        }
+
+        //Ask for the next vsync
+        mChoreographer.postFrameCallback(this);
+    }
+}
@@ -0,0 +1,65 @@
+package com.tobiascarryer.inoball;
+
+import java.lang.reflect.Method;
+
+/**
+ * Reads how many bytes the current thread has allocated from the JVM running the unit tests.
+ * The management classes are not part of android.jar so they are looked up by reflection.
+ */
+
+final class AllocationCounter {
+
+    private final Object mThreadBean;
+    private final Method mGetAllocatedBytes;
+
+    AllocationCounter() {
+        Object bean = null;
+        Method method = null;
+        try {
+            Class<?> factory = Class.forName("java.lang.management.ManagementFactory");
+            bean = factory.getMethod("getThreadMXBean").invoke(null);
+            Class<?> beanType = Class.forName("com.sun.management.ThreadMXBean");
+            if( beanType.isInstance(bean) ) {
+                method = beanType.getMethod("getThreadAllocatedBytes", long.class);
+                method.invoke(bean, Thread.currentThread().getId());
+            }
+        } catch (Exception e) {
+            method = null;
+        }
+        mThreadBean = bean;
+        mGetAllocatedBytes = method;
+    }
+
+    /**
+     * @return True if the JVM can count allocations.
+     */
+    boolean isSupported() {
+        return mGetAllocatedBytes != null;
+    }
+
+    /**
+     * Pre: isSupported() is true.
+     * @return The total number of bytes allocated by the calling thread so far.
+     */
+    long allocatedBytes() {
+        try {
+            return (Long) mGetAllocatedBytes.invoke(mThreadBean, Thread.currentThread().getId());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Pre: isSupported() is true.
+     * @return The bytes allocated by the counter itself between two back to back readings.
+     */
+    long overhead() {
+        long min = Long.MAX_VALUE;
+        for( int i = 0; i < 100; i++ ) {
+            long before = allocatedBytes();
+            long after = allocatedBytes();
+            min = Math.min(min, after - before);
+        }
+        return min;
+    }
+}
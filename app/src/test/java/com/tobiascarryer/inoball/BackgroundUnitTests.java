@@ -0,0 +1,45 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BackgroundUnitTests {
+    @Test
+    public void isDirtyUntilTheFirstFrame() throws Exception {
+        Background bg = new Background(720, 1280);
+        DirtyRegion region = new DirtyRegion();
+
+        bg.reportDirtyRegion(region);
+        assertEquals(0, region.getLeft());
+        assertEquals(0, region.getTop());
+        assertEquals(720, region.getRight());
+        assertEquals(1280, region.getBottom());
+    }
+
+    @Test
+    public void staysCleanWhenTheTileNeverArrives() throws Exception {
+        Background bg = new Background(720, 1280);
+        DirtyRegion region = new DirtyRegion();
+
+        //The plain color is drawn once, as draw() records it
+        bg.reportDirtyRegion(region);
+        assertFalse(region.isEmpty());
+        bg.setDrawn(null);
+
+        //Without the tile nothing would change on screen, so the game can go idle
+        for( int frame = 0; frame < 100; frame++ ) {
+            region.setEmpty();
+            bg.reportDirtyRegion(region);
+            assertTrue(region.isEmpty());
+        }
+
+        //Neither does dropping detail while only the plain color is shown
+        bg.setDetailed(false);
+        bg.reportDirtyRegion(region);
+        assertTrue(region.isEmpty());
+        bg.setDetailed(true);
+        bg.reportDirtyRegion(region);
+        assertTrue(region.isEmpty());
+    }
+}
@@ -0,0 +1,106 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class BallSystemUnitTests {
+    @Test
+    public void startsBallsStillAlongTheBottom() throws Exception {
+        BallSystem system = new BallSystem(720, 1280, 20, 60, 4, new GameRandom(1));
+        for( int i = 0; i < 4; i++ ) {
+            assertEquals(i, system.add());
+        }
+
+        assertEquals(4, system.getCount());
+        for( int i = 0; i < 4; i++ ) {
+            assertEquals(1280 - 40, system.getY(i), 0);
+            assertTrue(!system.isMoving(i));
+            if( i > 0 ) {
+                assertTrue(system.getX(i) > system.getX(i - 1));
+            }
+        }
+        assertEquals(0, system.update());
+    }
+
+    @Test
+    public void movesLikeBallPhysics() throws Exception {
+        //The same seed gives the same jump, so a ball in the system follows a single ball's path
+        BallSystem system = new BallSystem(720, 1280, 180, 60, 1, new GameRandom(7));
+        BallPhysics ball = new BallPhysics(720, 1280, 180, 60, new GameRandom(7));
+        system.add();
+        ball.resetToStartingPosition();
+        ball.setGameX(system.getX(0));
+
+        system.tap(0);
+        ball.tap();
+        for( int tick = 0; tick < 30; tick++ ) {
+            system.update();
+            ball.update();
+            //Both keep positions in doubles, so they stay exactly together
+            assertEquals(ball.getGameY(), system.getY(0), 0);
+            assertEquals(ball.getGameX(), system.getX(0), 0);
+        }
+    }
+
+    @Test
+    public void countsBallsThatFell() throws Exception {
+        BallSystem system = new BallSystem(720, 1280, 20, 60, 3, new GameRandom(3));
+        system.add();
+        system.add();
+        system.add();
+        system.tap(0);
+        system.tap(2);
+        assertTrue(!system.tap(0)); //Can't be tapped while moving up
+
+        int fallen = 0;
+        int ticks = 0;
+        while( fallen == 0 ) {
+            fallen = system.update();
+            assertTrue(++ticks < 60 * 60);
+            for( int i = 0; i < 3; i++ ) {
+                assertTrue(system.getX(i) >= 0);
+                assertTrue(system.getX(i) + 40 <= 720);
+            }
+        }
+        assertTrue(fallen >= 1 && fallen <= 2);
+        assertTrue(!system.isMoving(1)); //Never tapped
+
+        system.resetAll();
+        for( int i = 0; i < 3; i++ ) {
+            assertTrue(!system.isMoving(i));
+        }
+    }
+
+    @Test
+    public void findsTappedBall() throws Exception {
+        BallSystem system = new BallSystem(400, 400, 10, 60, 2, new GameRandom(5));
+        system.add();
+        system.add();
+
+        final double centerX = system.getX(1) + 10;
+        final double centerY = system.getY(1) + 10;
+        assertEquals(1, system.findBallAt(centerX, centerY));
+        assertEquals(1, system.findBallAt(centerX + 10, centerY));
+        assertEquals(-1, system.findBallAt(centerX + 8, centerY + 8));
+        assertEquals(-1, system.findBallAt(0, 0));
+    }
+
+    @Test
+    public void findsBallsWhereTheyMovedTo() throws Exception {
+        BallSystem system = new BallSystem(400, 400, 10, 60, 2, new GameRandom(5));
+        system.add();
+        system.randomizeVelocity(system.add());
+        final double startX = system.getX(1) + 10;
+        final double startY = system.getY(1) + 10;
+        assertEquals(1, system.findBallAt(startX, startY));
+
+        //The grid is only rebuilt when it is asked, it still has to follow the ticks before that
+        for( int tick = 0; tick < 5; tick++ ) {
+            system.update();
+        }
+        assertEquals(-1, system.findBallAt(startX, startY));
+        assertEquals(1, system.findBallAt(system.getX(1) + 10, system.getY(1) + 10));
+    }
+}
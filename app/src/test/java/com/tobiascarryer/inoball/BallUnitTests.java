@@ -1,7 +1,5 @@
 package com.tobiascarryer.inoball;
 
-import android.graphics.Bitmap;
-
 import org.junit.Test;
 
 import static junit.framework.Assert.assertEquals;
@@ -10,84 +8,156 @@ import static junit.framework.Assert.assertTrue;
 public class BallUnitTests {
     @Test
     public void canChangeX() throws Exception {
-        Ball ball = new Ball(null, 20, 2) {
-            @Override
-            Bitmap createScaledBall() {
-                return null;
-            }
-        };
+        BallPhysics ball = new BallPhysics(128, 128, 20, 2);
 
-        assertEquals(0, ball.getGameX());
+        assertEquals(0, ball.getGameX(), 0);
         ball.setGameX(999999);
-        assertEquals(999999, ball.getGameX());
+        assertEquals(999999, ball.getGameX(), 0);
         ball.setGameX(-1);
-        assertEquals(-1, ball.getGameX());
+        assertEquals(-1, ball.getGameX(), 0);
         ball.setGameX(100);
-        assertEquals(100, ball.getGameX());
-        assertEquals(120, ball.getCenterX());
+        assertEquals(100, ball.getGameX(), 0);
+        assertEquals(120, ball.getCenterX(), 0);
     }
 
     @Test
     public void canChangeY() throws Exception {
-        Ball ball = new Ball(null, 20, 2) {
-            @Override
-            Bitmap createScaledBall() {
-                return null;
-            }
-        };
+        BallPhysics ball = new BallPhysics(128, 128, 20, 2);
 
-        assertEquals(0, ball.getGameY());
+        assertEquals(0, ball.getGameY(), 0);
         ball.setGameY(999999);
-        assertEquals(999999, ball.getGameY());
+        assertEquals(999999, ball.getGameY(), 0);
         ball.setGameY(-1);
-        assertEquals(-1, ball.getGameY());
+        assertEquals(-1, ball.getGameY(), 0);
         ball.setGameY(100);
-        assertEquals(100, ball.getGameY());
-        assertEquals(120, ball.getCenterY());
+        assertEquals(100, ball.getGameY(), 0);
+        assertEquals(120, ball.getCenterY(), 0);
     }
 
     @Test
     public void canSetRadius() throws Exception {
-        Ball ball = new Ball(null, 10, 2) {
-            @Override
-            Bitmap createScaledBall() {
-                return null;
-            }
-        };
+        BallPhysics ball = new BallPhysics(128, 128, 10, 2);
         assertEquals(10, ball.getRadius());
 
-        Ball otherBall = new Ball(null, 1000000, 2) {
-            @Override
-            Bitmap createScaledBall() {
-                return null;
-            }
-        };
+        BallPhysics otherBall = new BallPhysics(4000000, 4000000, 1000000, 2);
         assertEquals(1000000, otherBall.getRadius());
     }
 
     @Test
     public void canRandomizeVelocity() throws Exception {
-        Ball ball = new Ball(null, 1, 4) {
-            @Override
-            Bitmap createScaledBall() {
-                return null;
-            }
-        };
+        BallPhysics ball = new BallPhysics(128, 128, 1, 4);
 
         ball.resetToStartingPosition();
-        int oldX = ball.getGameX();
-        int oldY = ball.getGameY();
-        ball.randomizeVelocity(4); //Actual FPS will be higher. This just proves whether the ball moves any amount.
-        ball.update(null);
+        double oldX = ball.getGameX();
+        double oldY = ball.getGameY();
+        ball.randomizeVelocity(); //Actual FPS will be higher. This just proves whether the ball moves any amount.
+        ball.update();
         assertTrue(oldX!=ball.getGameX());
         assertTrue(oldY!=ball.getGameY());
 
         ball.resetToStartingPosition();
         oldX = ball.getGameX();
         oldY = ball.getGameY();
-        ball.randomizeVelocity(4); //Actual FPS will be higher. This just proves whether the ball moves any amount.
-        ball.update(null);
+        ball.randomizeVelocity(); //Actual FPS will be higher. This just proves whether the ball moves any amount.
+        ball.update();
         assertTrue(oldX!=ball.getGameX());
         assertTrue(oldY!=ball.getGameY());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void reportsPreviousAndCurrentBounds() throws Exception {
+        BallPhysics physics = new BallPhysics(128, 128, 10, 2);
+        Ball ball = new Ball(physics);
+
+        physics.setGameX(100);
+        physics.setGameY(50);
+        ball.interpolate(1);
+        DirtyRegion region = new DirtyRegion();
+        ball.reportDirtyRegion(region);
+        assertEquals(100, region.getLeft());
+        assertEquals(50, region.getTop());
+        assertEquals(120, region.getRight());
+        assertEquals(70, region.getBottom());
+    }
+
+    @Test
+    public void reportsSubPixelPositionsRoundedOutwards() throws Exception {
+        BallPhysics physics = new BallPhysics(128, 128, 10, 2);
+        Ball ball = new Ball(physics);
+
+        physics.setGameX(100.25);
+        physics.setGameY(50.75);
+        ball.interpolate(1);
+        DirtyRegion region = new DirtyRegion();
+        ball.reportDirtyRegion(region);
+        assertEquals(100, region.getLeft());
+        assertEquals(50, region.getTop());
+        assertEquals(121, region.getRight());
+        assertEquals(71, region.getBottom());
+    }
+
+    @Test
+    public void keepsSlowMovementThatIsLessThanAPixelPerTick() throws Exception {
+        BallPhysics ball = new BallPhysics(720, 1280, 180, 60, new GameRandom(5));
+        ball.resetToStartingPosition();
+        ball.tap();
+
+        //Follow the ball through the top of its jump, where it moves less than a pixel per tick
+        double lowestY = ball.getGameY();
+        double slowestMove = Double.MAX_VALUE;
+        for( int tick = 0; tick < 600 && !ball.update(); tick++ ) {
+            final double moved = Math.abs(ball.getGameY() - ball.getPreviousGameY());
+            if( moved > 0 ) {
+                slowestMove = Math.min(slowestMove, moved);
+            }
+            lowestY = Math.min(lowestY, ball.getGameY());
+        }
+        assertTrue(slowestMove < 1);
+        assertTrue(lowestY < 1280 - 360);
+    }
+
+    @Test
+    public void fallsOffBottomAfterJumping() throws Exception {
+        BallPhysics ball = new BallPhysics(720, 1280, 180, 60);
+        ball.resetToStartingPosition();
+        assertTrue(ball.tap());
+        assertTrue(!ball.tap()); //Can't be tapped while moving up
+
+        int ticks = 0;
+        while( !ball.update() ) {
+            ticks++;
+            assertTrue(ball.getGameX() >= 0);
+            assertTrue(ball.getGameX() + 2 * ball.getRadius() <= 720);
+            assertTrue(ticks < 60 * 60);
+        }
+        assertTrue(ball.getGameY() > 1280);
+    }
+
+    @Test
+    public void playsByTheTuningItIsGiven() throws Exception {
+        final BallLimits.Tuning defaults = BallLimits.Tuning.DEFAULT;
+        final BallLimits.Tuning heavier = new BallLimits.Tuning(defaults.secondsToReachEdge,
+                defaults.secondsToReachTop, defaults.minVelocityFactor, defaults.secondsToFall, 1.1);
+        BallPhysics ball = new BallPhysics(720, 1280, 180, 60, new GameRandom(5));
+        BallPhysics tuned = new BallPhysics(720, 1280, 180, 60, new GameRandom(5), defaults);
+        BallPhysics heavy = new BallPhysics(720, 1280, 180, 60, new GameRandom(5), heavier);
+
+        int ticks = 0;
+        int heavyTicks = 0;
+        ball.resetToStartingPosition();
+        tuned.resetToStartingPosition();
+        heavy.resetToStartingPosition();
+        ball.tap();
+        tuned.tap();
+        heavy.tap();
+        while( !ball.update() ) {
+            ticks++;
+            assertTrue(!tuned.update());
+            assertEquals(ball.fingerprint(), tuned.fingerprint());
+        }
+        while( !heavy.update() ) {
+            heavyTicks++;
+        }
+        assertTrue(heavyTicks < ticks);
+    }
+}
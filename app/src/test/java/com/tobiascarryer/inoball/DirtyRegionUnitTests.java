@@ -0,0 +1,54 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DirtyRegionUnitTests {
+    @Test
+    public void startsEmpty() throws Exception {
+        DirtyRegion region = new DirtyRegion();
+        assertTrue(region.isEmpty());
+        region.clipTo(100, 100);
+        assertTrue(region.isEmpty());
+    }
+
+    @Test
+    public void unionCoversAllRectangles() throws Exception {
+        DirtyRegion region = new DirtyRegion();
+        region.union(10, 20, 30, 40);
+        region.union(50, 5, 60, 25);
+        assertFalse(region.isEmpty());
+        assertEquals(10, region.getLeft());
+        assertEquals(5, region.getTop());
+        assertEquals(60, region.getRight());
+        assertEquals(40, region.getBottom());
+
+        region.setEmpty();
+        assertTrue(region.isEmpty());
+    }
+
+    @Test
+    public void ignoresEmptyRectangles() throws Exception {
+        DirtyRegion region = new DirtyRegion();
+        region.union(10, 10, 10, 20);
+        region.union(10, 10, 20, 5);
+        assertTrue(region.isEmpty());
+    }
+
+    @Test
+    public void clipsToScreen() throws Exception {
+        DirtyRegion region = new DirtyRegion();
+        region.union(-10, -20, 150, 90);
+        region.clipTo(100, 80);
+        assertEquals(0, region.getLeft());
+        assertEquals(0, region.getTop());
+        assertEquals(100, region.getRight());
+        assertEquals(80, region.getBottom());
+
+        region.setEmpty();
+        region.union(120, 10, 150, 20);
+        region.clipTo(100, 80);
+        assertTrue(region.isEmpty());
+    }
+}
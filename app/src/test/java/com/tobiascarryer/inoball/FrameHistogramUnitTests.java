@@ -0,0 +1,60 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameHistogramUnitTests {
+    private static final long MS = 1000000L;
+
+    @Test
+    public void emptyHistogramReportsZero() throws Exception {
+        FrameHistogram histogram = new FrameHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    public void percentilesFollowTheDistribution() throws Exception {
+        FrameHistogram histogram = new FrameHistogram();
+        //1ms to 100ms, one sample each
+        for( int i = 1; i <= 100; i++ ) {
+            histogram.record(i * MS - 1);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50 * MS, histogram.getPercentile(50), FrameHistogram.BUCKET_NANOS);
+        assertEquals(95 * MS, histogram.getPercentile(95), FrameHistogram.BUCKET_NANOS);
+        assertEquals(99 * MS, histogram.getPercentile(99), FrameHistogram.BUCKET_NANOS);
+        assertEquals(100 * MS - 1, histogram.getMax());
+    }
+
+    @Test
+    public void overflowReportsExactMaximum() throws Exception {
+        FrameHistogram histogram = new FrameHistogram();
+        histogram.record(2 * MS);
+        histogram.record(500 * MS);
+        assertEquals(500 * MS, histogram.getPercentile(100));
+        assertEquals(500 * MS, histogram.getMax());
+        assertEquals(251 * MS, histogram.getMean());
+    }
+
+    @Test
+    public void percentileNeverExceedsMaximum() throws Exception {
+        FrameHistogram histogram = new FrameHistogram();
+        histogram.record(10);
+        assertEquals(10, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void resetEmptiesHistogram() throws Exception {
+        FrameHistogram histogram = new FrameHistogram();
+        histogram.record(5 * MS);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(0, histogram.getMax());
+    }
+}
@@ -0,0 +1,111 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameMetricsUnitTests {
+    private static final long MS = 1000000L;
+
+    private static void recordFrame(FrameMetrics metrics, long update, long draw, long lockPost, long total) {
+        metrics.beginFrame();
+        metrics.addTime(FrameMetrics.UPDATE, update);
+        metrics.addTime(FrameMetrics.DRAW, draw);
+        metrics.addTime(FrameMetrics.LOCK_POST, lockPost);
+        metrics.endFrame(total, 1);
+    }
+
+    @Test
+    public void recordsEachStage() throws Exception {
+        FrameMetrics metrics = new FrameMetrics(16 * MS);
+        recordFrame(metrics, 1 * MS, 2 * MS, 3 * MS, 7 * MS);
+
+        assertEquals(1, metrics.getFrameCount());
+        assertEquals(1 * MS, metrics.getMax(FrameMetrics.UPDATE));
+        assertEquals(2 * MS, metrics.getMax(FrameMetrics.DRAW));
+        assertEquals(3 * MS, metrics.getMax(FrameMetrics.LOCK_POST));
+        assertEquals(7 * MS, metrics.getMax(FrameMetrics.TOTAL));
+    }
+
+    @Test
+    public void stageTimesDoNotLeakIntoTheNextFrame() throws Exception {
+        FrameMetrics metrics = new FrameMetrics(16 * MS);
+        recordFrame(metrics, 5 * MS, 0, 0, 5 * MS);
+        recordFrame(metrics, 1 * MS, 0, 0, 1 * MS);
+        assertEquals(3 * MS, metrics.getMean(FrameMetrics.UPDATE));
+    }
+
+    @Test
+    public void countsJankAgainstBudget() throws Exception {
+        FrameMetrics metrics = new FrameMetrics(16 * MS);
+        recordFrame(metrics, 0, 0, 0, 16 * MS);
+        recordFrame(metrics, 0, 0, 0, 17 * MS);
+        recordFrame(metrics, 0, 0, 0, 40 * MS);
+        assertEquals(2, metrics.getJankCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getJankCount());
+        assertEquals(0, metrics.getFrameCount());
+    }
+
+    @Test
+    public void keepsTotalsSinceMarkAcrossResets() throws Exception {
+        FrameMetrics metrics = new FrameMetrics(16 * MS);
+        recordFrame(metrics, 0, 0, 0, 30 * MS);
+        metrics.mark();
+        recordFrame(metrics, 0, 0, 0, 2 * MS);
+        metrics.reset();
+        recordFrame(metrics, 0, 0, 0, 6 * MS);
+
+        assertEquals(4 * MS, metrics.getMeanSinceMark());
+        assertEquals(6 * MS, metrics.getMaxSinceMark());
+    }
+
+    @Test
+    public void formatsSummary() throws Exception {
+        FrameMetrics metrics = new FrameMetrics(16 * MS);
+        recordFrame(metrics, 0, 0, 0, 4 * MS - 1);
+        recordFrame(metrics, 0, 0, 0, 20 * MS + 340000);
+
+        char[] text = new char[64];
+        int length = metrics.formatSummary(text);
+        assertEquals("p50 4.0 p95 20.3 p99 20.3 max 20.3 jank 1", new String(text, 0, length));
+    }
+
+    @Test
+    public void labelsSummaryAndStartsOver() throws Exception {
+        FrameMetrics metrics = new FrameMetrics(16 * MS);
+        recordFrame(metrics, 0, 0, 0, 30 * MS);
+        metrics.setLabel("hardware");
+        assertEquals("hardware", metrics.getLabel());
+        assertEquals(0, metrics.getFrameCount());
+        assertEquals(0, metrics.getJankCount());
+
+        recordFrame(metrics, 0, 0, 0, 4 * MS);
+        char[] text = new char[96];
+        int length = metrics.formatSummary(text);
+        assertEquals("hardware p50 4.0 p95 4.0 p99 4.0 max 4.0 jank 0", new String(text, 0, length));
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() throws Exception {
+        AllocationCounter counter = new AllocationCounter();
+        Assume.assumeTrue(counter.isSupported());
+
+        FrameMetrics metrics = new FrameMetrics(16 * MS);
+        char[] text = new char[64];
+        for( int i = 0; i < 20000; i++ ) {
+            recordFrame(metrics, i, i * 2, i * 3, i * 7);
+            metrics.formatSummary(text);
+        }
+
+        final long overhead = counter.overhead();
+        final long before = counter.allocatedBytes();
+        for( int i = 0; i < 20000; i++ ) {
+            recordFrame(metrics, i, i * 2, i * 3, i * 7);
+            metrics.formatSummary(text);
+        }
+        assertEquals(0, counter.allocatedBytes() - before - overhead);
+    }
+}
@@ -0,0 +1,197 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GameLoopUnitTests {
+
+    private static final long TICK = GameLoop.NANOSECONDS_PER_SECOND / 60;
+
+    /**
+     * A clock that only moves when the loop sleeps or the test advances it.
+     */
+    private static class FakeClock implements GameLoop.Clock {
+        long now = 1000;
+        int sleeps = 0;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public void sleepUntil(long deadlineNanos) {
+            sleeps++;
+            if( deadlineNanos > now ) {
+                now = deadlineNanos;
+            }
+        }
+    }
+
+    private static class CountingGame implements GameLoop.Game {
+        int updates = 0;
+        int renders = 0;
+        double lastInterpolation = -1;
+        long lastTickTime = 0;
+        FakeClock clock;
+        long renderCost = 0;
+
+        @Override
+        public void update(long tickTime) {
+            updates++;
+            lastTickTime = tickTime;
+        }
+
+        @Override
+        public void render(double interpolation) {
+            renders++;
+            lastInterpolation = interpolation;
+            if( clock != null ) {
+                clock.now += renderCost;
+            }
+        }
+
+        @Override
+        public boolean isIdle() {
+            return false;
+        }
+    }
+
+    @Test
+    public void ticksAtFixedRate() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountingGame game = new CountingGame();
+        GameLoop loop = new GameLoop(clock, game, 60);
+
+        //The first frame only starts the clock
+        for( int i = 0; i < 61; i++ ) {
+            loop.runFrame();
+        }
+
+        assertEquals(61, game.renders);
+        assertEquals(60, game.updates);
+        assertEquals(60, loop.getTickCount());
+        assertEquals(61, clock.sleeps);
+    }
+
+    @Test
+    public void renderingIsDecoupledFromTicks() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountingGame game = new CountingGame();
+        GameLoop loop = new GameLoop(clock, game, 60);
+        loop.setTargetFrameRate(120);
+
+        for( int i = 0; i < 241; i++ ) {
+            loop.runFrame();
+        }
+
+        //Two seconds of frames at 120Hz only run two seconds of ticks at 60Hz
+        assertEquals(241, game.renders);
+        assertEquals(120, game.updates);
+    }
+
+    @Test
+    public void skipsVsyncFramesToKeepToTheTargetRate() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountingGame game = new CountingGame();
+        GameLoop loop = new GameLoop(clock, game, 60);
+
+        //Without a cap every vsync of a 120Hz display is rendered
+        final long vsync = TICK / 2;
+        for( int i = 0; i < 120; i++ ) {
+            clock.now += vsync;
+            if( loop.isFrameDue(clock.now) ) {
+                loop.renderFrame(clock.now);
+            }
+        }
+        assertEquals(120, game.renders);
+
+        //A slightly early vsync still counts, so a 30Hz cap renders every fourth one
+        loop.setTargetFrameRate(30);
+        for( int i = 0; i < 120; i++ ) {
+            clock.now += vsync - (i % 2 == 0 ? 100000 : -100000);
+            if( loop.isFrameDue(clock.now) ) {
+                loop.renderFrame(clock.now);
+            }
+        }
+        assertEquals(120 + 30, game.renders);
+    }
+
+    @Test
+    public void interpolatesBetweenTicks() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountingGame game = new CountingGame();
+        GameLoop loop = new GameLoop(clock, game, 60);
+
+        assertEquals(0, loop.advance(clock.now), 0.0001);
+        clock.now += TICK + TICK/2;
+        assertEquals(0.5, loop.advance(clock.now), 0.0001);
+        assertEquals(1, game.updates);
+        clock.now += TICK/2;
+        assertEquals(0, loop.advance(clock.now), 0.0001);
+        assertEquals(2, game.updates);
+    }
+
+    @Test
+    public void passesTheTimeEachTickStandsFor() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountingGame game = new CountingGame();
+        GameLoop loop = new GameLoop(clock, game, 60);
+
+        final long start = clock.now;
+        loop.advance(start);
+        clock.now += TICK * 2 + TICK/2;
+        loop.advance(clock.now);
+        assertEquals(2, game.updates);
+        //The half tick that is left over hasn't been simulated yet
+        assertEquals(start + TICK * 2, game.lastTickTime);
+    }
+
+    @Test
+    public void doesNotSpiralAfterStall() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountingGame game = new CountingGame();
+        GameLoop loop = new GameLoop(clock, game, 60);
+
+        loop.advance(clock.now);
+        clock.now += GameLoop.NANOSECONDS_PER_SECOND * 5;
+        loop.advance(clock.now);
+        assertEquals(GameLoop.MAX_TICKS_PER_FRAME, game.updates);
+
+        //The dropped time is not simulated on the next frame
+        clock.now += TICK;
+        loop.advance(clock.now);
+        assertEquals(GameLoop.MAX_TICKS_PER_FRAME + 1, game.updates);
+    }
+
+    @Test
+    public void slowFramesDoNotSleep() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountingGame game = new CountingGame();
+        game.clock = clock;
+        game.renderCost = TICK * 2;
+        GameLoop loop = new GameLoop(clock, game, 60);
+
+        for( int i = 0; i < 10; i++ ) {
+            loop.runFrame();
+        }
+
+        assertEquals(0, clock.sleeps);
+        //Each slow frame still catches up on the two ticks it took to render
+        assertEquals(18, game.updates);
+    }
+
+    @Test
+    public void resetSkipsTimeSpentPaused() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountingGame game = new CountingGame();
+        GameLoop loop = new GameLoop(clock, game, 60);
+
+        loop.advance(clock.now);
+        loop.reset();
+        clock.now += GameLoop.NANOSECONDS_PER_SECOND;
+        loop.advance(clock.now);
+        assertEquals(0, game.updates);
+    }
+}
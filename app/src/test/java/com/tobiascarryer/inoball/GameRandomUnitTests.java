@@ -0,0 +1,87 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GameRandomUnitTests {
+    @Test
+    public void sameSeedGivesSameNumbers() throws Exception {
+        GameRandom a = new GameRandom(1234);
+        GameRandom b = new GameRandom(1234);
+        for( int i = 0; i < 1000; i++ ) {
+            assertEquals(a.nextLong(), b.nextLong());
+        }
+
+        a.setSeed(99);
+        b.setSeed(99);
+        assertEquals(99, a.getSeed());
+        for( int i = 0; i < 1000; i++ ) {
+            assertEquals(a.nextDouble(), b.nextDouble(), 0);
+        }
+    }
+
+    @Test
+    public void differentSeedsGiveDifferentNumbers() throws Exception {
+        assertNotEquals(new GameRandom(1).nextLong(), new GameRandom(2).nextLong());
+    }
+
+    @Test
+    public void doublesAreInRange() throws Exception {
+        GameRandom random = new GameRandom(7);
+        double sum = 0;
+        int trues = 0;
+        for( int i = 0; i < 100000; i++ ) {
+            double value = random.nextDouble();
+            assertTrue(value >= 0 && value < 1);
+            sum += value;
+            if( random.nextBoolean() ) {
+                trues++;
+            }
+        }
+        assertEquals(0.5, sum / 100000, 0.01);
+        assertEquals(50000, trues, 1000);
+    }
+
+    @Test
+    public void sameSeedGivesSameTrajectory() throws Exception {
+        BallPhysics a = new BallPhysics(720, 1280, 180, 60, new GameRandom(42));
+        BallPhysics b = new BallPhysics(720, 1280, 180, 60, new GameRandom(42));
+        a.resetToStartingPosition();
+        b.resetToStartingPosition();
+
+        for( int tick = 0; tick < 10000; tick++ ) {
+            if( a.canBeTapped() ) {
+                assertTrue(a.tap());
+                assertTrue(b.tap());
+            }
+            if( a.update() ) {
+                a.resetToStartingPosition();
+            }
+            if( b.update() ) {
+                b.resetToStartingPosition();
+            }
+            assertEquals(a.getGameX(), b.getGameX());
+            assertEquals(a.getGameY(), b.getGameY());
+        }
+    }
+
+    @Test
+    public void doesNotAllocate() throws Exception {
+        AllocationCounter counter = new AllocationCounter();
+        Assume.assumeTrue(counter.isSupported());
+
+        BallPhysics ball = new BallPhysics(720, 1280, 180, 60, new GameRandom(3));
+        for( int i = 0; i < 20000; i++ ) {
+            ball.randomizeVelocity();
+        }
+
+        final long overhead = counter.overhead();
+        final long before = counter.allocatedBytes();
+        for( int i = 0; i < 20000; i++ ) {
+            ball.randomizeVelocity();
+        }
+        assertEquals(0, counter.allocatedBytes() - before - overhead);
+    }
+}
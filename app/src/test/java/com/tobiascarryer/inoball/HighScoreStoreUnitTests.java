@@ -0,0 +1,213 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class HighScoreStoreUnitTests {
+    private File mFile;
+
+    @Before
+    public void createFile() throws Exception {
+        mFile = File.createTempFile("high_score", null);
+        assertTrue(mFile.delete());
+    }
+
+    @After
+    public void deleteFile() throws Exception {
+        mFile.delete();
+        new File(mFile.getPath() + ".tmp").delete();
+    }
+
+    /**
+     * A writer that runs tasks on the test's thread, delayed ones once advance() has passed
+     * their delay, so the debounce doesn't depend on how fast the machine is.
+     */
+    private static final class ManualWriter extends ScheduledThreadPoolExecutor {
+        private final List<Runnable> mTasks = new ArrayList<Runnable>();
+        private final List<Long> mDueMillis = new ArrayList<Long>();
+        private long mNowMillis = 0;
+
+        ManualWriter() {
+            super(1);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            if( delay <= 0 ) {
+                command.run();
+            } else {
+                mTasks.add(command);
+                mDueMillis.add(mNowMillis + unit.toMillis(delay));
+            }
+            return null;
+        }
+
+        /**
+         * Post: Every task that is due by the new time has run, oldest first.
+         */
+        void advance(long millis) {
+            mNowMillis += millis;
+            for( int i = 0; i < mTasks.size(); ) {
+                if( mDueMillis.get(i) <= mNowMillis ) {
+                    final Runnable task = mTasks.remove(i);
+                    mDueMillis.remove(i);
+                    task.run();
+                } else {
+                    i++;
+                }
+            }
+        }
+
+        int getPendingCount() {
+            return mTasks.size();
+        }
+    }
+
+    private static void finish(ScheduledExecutorService writer) throws Exception {
+        //Delayed writes still run after shutdown
+        writer.shutdown();
+        assertTrue(writer.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void readsTheHighestScoreAppended() throws Exception {
+        HighScoreFile file = new HighScoreFile(mFile);
+        assertTrue(!file.exists());
+        assertEquals(0, file.read());
+
+        file.append(3);
+        file.append(10);
+        file.append(7);
+        assertEquals(3 * HighScoreFile.RECORD_BYTES, mFile.length());
+        assertEquals(10, new HighScoreFile(mFile).read());
+    }
+
+    @Test
+    public void dropsATornRecord() throws Exception {
+        HighScoreFile file = new HighScoreFile(mFile);
+        file.append(5);
+        file.append(8);
+
+        //A crash halfway through the next append
+        FileOutputStream out = new FileOutputStream(mFile, true);
+        out.write(new byte[] {0, 0, 0, 9, 1});
+        out.close();
+
+        HighScoreFile reopened = new HighScoreFile(mFile);
+        assertEquals(8, reopened.read());
+        assertEquals(1, reopened.getRecordCount());
+        assertEquals(HighScoreFile.RECORD_BYTES, mFile.length());
+
+        reopened.append(12);
+        assertEquals(12, new HighScoreFile(mFile).read());
+    }
+
+    @Test
+    public void ignoresRecordsAfterACorruptOne() throws Exception {
+        HighScoreFile file = new HighScoreFile(mFile);
+        file.append(5);
+        file.append(50);
+
+        RandomAccessFile raw = new RandomAccessFile(mFile, "rw");
+        raw.seek(HighScoreFile.RECORD_BYTES + 3);
+        raw.write(99);
+        raw.close();
+
+        assertEquals(5, new HighScoreFile(mFile).read());
+    }
+
+    @Test
+    public void compactsLongFiles() throws Exception {
+        HighScoreFile file = new HighScoreFile(mFile);
+        for( int score = 1; score <= HighScoreFile.COMPACT_AFTER_RECORDS + 1; score++ ) {
+            file.append(score);
+        }
+
+        assertEquals(1, file.getRecordCount());
+        assertEquals(HighScoreFile.RECORD_BYTES, mFile.length());
+        assertEquals(HighScoreFile.COMPACT_AFTER_RECORDS + 1, new HighScoreFile(mFile).read());
+    }
+
+    @Test
+    public void coalescesAStreakIntoFewWrites() throws Exception {
+        ManualWriter writer = new ManualWriter();
+        HighScoreStore store = new HighScoreStore(new HighScoreFile(mFile), writer, 1000);
+        store.load(0);
+        for( int score = 1; score <= 100; score++ ) {
+            store.offer(score);
+        }
+        assertEquals(100, store.getHighScore());
+
+        //One write waits for the whole streak, nothing is written before the delay
+        assertEquals(1, writer.getPendingCount());
+        writer.advance(999);
+        assertEquals(0, mFile.length());
+        writer.advance(1);
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(HighScoreFile.RECORD_BYTES, mFile.length());
+        assertEquals(100, new HighScoreFile(mFile).read());
+
+        //A raise after the write schedules one of its own
+        store.offer(100);
+        assertEquals(0, writer.getPendingCount());
+        store.offer(101);
+        assertEquals(1, writer.getPendingCount());
+        writer.advance(1000);
+        assertEquals(2 * HighScoreFile.RECORD_BYTES, mFile.length());
+        assertEquals(101, new HighScoreFile(mFile).read());
+    }
+
+    @Test
+    public void flushWritesRightAway() throws Exception {
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+        HighScoreStore store = new HighScoreStore(new HighScoreFile(mFile), writer, 60 * 60 * 1000);
+        store.load(0);
+        store.offer(4);
+        store.flush();
+        store.offer(3); //Not a high score
+        writer.submit(new Runnable() {
+            @Override
+            public void run() {}
+        }).get();
+
+        assertEquals(4, new HighScoreFile(mFile).read());
+        writer.shutdownNow();
+    }
+
+    @Test
+    public void migratesTheLegacyHighScoreOnce() throws Exception {
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+        HighScoreStore store = new HighScoreStore(new HighScoreFile(mFile), writer, 0);
+        store.load(42);
+        finish(writer);
+        assertEquals(42, store.getHighScore());
+        assertEquals(42, new HighScoreFile(mFile).read());
+
+        //Once the file exists the old preference is ignored
+        writer = Executors.newSingleThreadScheduledExecutor();
+        store = new HighScoreStore(new HighScoreFile(mFile), writer, 0);
+        store.load(99);
+        finish(writer);
+        assertEquals(42, store.getHighScore());
+    }
+}
@@ -0,0 +1,123 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class InputQueueUnitTests {
+
+    /**
+     * Checks that taps arrive in the order they were offered.
+     */
+    private static class OrderedListener implements InputQueue.Listener {
+        long expected = 0;
+        boolean inOrder = true;
+
+        @Override
+        public void onTap(long timeNanos, float x, float y) {
+            if( timeNanos != expected || x != (float) (expected % 1000) || y != -x ) {
+                inOrder = false;
+            }
+            expected++;
+        }
+    }
+
+    private static boolean offer(InputQueue queue, long n) {
+        final float x = (float) (n % 1000);
+        return queue.offer(n, x, -x);
+    }
+
+    @Test
+    public void handsOverTapsInOrder() throws Exception {
+        InputQueue queue = new InputQueue(4);
+        OrderedListener listener = new OrderedListener();
+
+        assertEquals(0, queue.drain(listener));
+        assertTrue(!queue.hasPending());
+        for( long n = 0; n < 3; n++ ) {
+            assertTrue(offer(queue, n));
+        }
+        assertTrue(queue.hasPending());
+        assertEquals(3, queue.drain(listener));
+        assertTrue(!queue.hasPending());
+        assertEquals(0, queue.drain(listener));
+
+        //Wraps around the end of the buffer
+        for( long n = 3; n < 7; n++ ) {
+            assertTrue(offer(queue, n));
+        }
+        assertEquals(4, queue.drain(listener));
+        assertEquals(7, listener.expected);
+        assertTrue(listener.inOrder);
+    }
+
+    @Test
+    public void dropsTapsWhenFull() throws Exception {
+        InputQueue queue = new InputQueue(2);
+        OrderedListener listener = new OrderedListener();
+
+        assertTrue(offer(queue, 0));
+        assertTrue(offer(queue, 1));
+        assertTrue(!offer(queue, 2));
+        assertEquals(2, queue.drain(listener));
+        assertTrue(offer(queue, 2));
+        assertEquals(1, queue.drain(listener));
+        assertTrue(listener.inOrder);
+    }
+
+    @Test
+    public void handsOverBetweenThreads() throws Exception {
+        final InputQueue queue = new InputQueue(16);
+        final long taps = 20000;
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                for( long n = 0; n < taps; n++ ) {
+                    while( !offer(queue, n) ) {
+                        Thread.yield();
+                    }
+                }
+            }
+        };
+
+        OrderedListener listener = new OrderedListener();
+        producer.setDaemon(true);
+        producer.start();
+        final long deadline = System.nanoTime() + 30 * GameLoop.NANOSECONDS_PER_SECOND;
+        while( listener.expected < taps && System.nanoTime() < deadline ) {
+            if( queue.drain(listener) == 0 ) {
+                Thread.yield();
+            }
+        }
+        producer.join(1000);
+
+        assertEquals(taps, listener.expected);
+        assertTrue(listener.inOrder);
+    }
+
+    @Test
+    public void doesNotAllocate() throws Exception {
+        AllocationCounter counter = new AllocationCounter();
+        Assume.assumeTrue(counter.isSupported());
+
+        InputQueue queue = new InputQueue(8);
+        OrderedListener listener = new OrderedListener();
+        for( long n = 0; n < 20000; n++ ) {
+            offer(queue, n);
+            queue.drain(listener);
+        }
+
+        final long overhead = counter.overhead();
+        final long before = counter.allocatedBytes();
+        for( long n = 20000; n < 40000; n++ ) {
+            offer(queue, n);
+            queue.drain(listener);
+        }
+        final long allocated = counter.allocatedBytes() - before - overhead;
+
+        assertEquals(0, allocated);
+        assertTrue(listener.inOrder);
+    }
+}
@@ -2,6 +2,9 @@ package com.tobiascarryer.inoball;
 
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.*;
 
 public class MainThreadUnitTests {
@@ -12,4 +15,99 @@ public class MainThreadUnitTests {
         assertEquals(0, thread.nanosecondsToMilliseconds(999999));
         assertEquals(1, thread.nanosecondsToMilliseconds(1000000));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void parksWhilePausedAndCarriesOnAfterResuming() throws Exception {
+        final AtomicInteger renders = new AtomicInteger();
+        MainThread thread = new MainThread(new GameLoop.Game() {
+            @Override
+            public void update(long tickTime) {
+            }
+
+            @Override
+            public void render(double interpolation) {
+                renders.incrementAndGet();
+            }
+
+            @Override
+            public boolean isIdle() {
+                return false;
+            }
+        }, new FrameMetrics(GameLoop.NANOSECONDS_PER_SECOND / MainThread.FPS));
+        thread.setDaemon(true);
+        thread.start();
+        waitForRenders(renders, 3);
+
+        thread.park();
+        assertTrue(thread.isParked());
+        final int rendersWhenPaused = renders.get();
+        Thread.sleep(100);
+        assertEquals(rendersWhenPaused, renders.get());
+        assertTrue(thread.isAlive());
+
+        //The same thread carries on, it is not started again
+        thread.unpark();
+        waitForRenders(renders, rendersWhenPaused + 3);
+        assertTrue(!thread.isParked());
+
+        thread.shutdown();
+        assertTrue(!thread.isAlive());
+    }
+
+    @Test
+    public void waitsWhileIdleUntilWoken() throws Exception {
+        final AtomicInteger renders = new AtomicInteger();
+        final AtomicBoolean idle = new AtomicBoolean(true);
+        MainThread thread = new MainThread(new GameLoop.Game() {
+            @Override
+            public void update(long tickTime) {
+            }
+
+            @Override
+            public void render(double interpolation) {
+                renders.incrementAndGet();
+            }
+
+            @Override
+            public boolean isIdle() {
+                return idle.get();
+            }
+        }, new FrameMetrics(GameLoop.NANOSECONDS_PER_SECOND / MainThread.FPS));
+        thread.setDaemon(true);
+        thread.start();
+
+        //One frame is drawn, then nothing until the thread is woken
+        waitForRenders(renders, 1);
+        Thread.sleep(100);
+        assertEquals(1, renders.get());
+
+        //A wake while the game is still idle draws one more frame
+        thread.wake();
+        waitForRenders(renders, 2);
+        Thread.sleep(100);
+        assertEquals(2, renders.get());
+
+        idle.set(false);
+        thread.wake();
+        waitForRenders(renders, 5);
+
+        //An idle thread can still be parked and resumed
+        idle.set(true);
+        Thread.sleep(100);
+        thread.park();
+        assertTrue(thread.isParked());
+        final int rendersWhenPaused = renders.get();
+        thread.unpark();
+        waitForRenders(renders, rendersWhenPaused + 1);
+
+        thread.shutdown();
+        assertTrue(!thread.isAlive());
+    }
+
+    private static void waitForRenders(AtomicInteger renders, int count) throws InterruptedException {
+        for( int i = 0; i < 500 && renders.get() < count; i++ ) {
+            Thread.sleep(10);
+        }
+        assertTrue(renders.get() >= count);
+    }
+}
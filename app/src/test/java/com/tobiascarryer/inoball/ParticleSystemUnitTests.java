@@ -0,0 +1,133 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class ParticleSystemUnitTests {
+    private static final int WIDTH = 720;
+    private static final int HEIGHT = 1280;
+    private static final int FPS = 60;
+
+    private static ParticleSystem system(int capacity) {
+        return new ParticleSystem(WIDTH, HEIGHT, FPS, capacity, new GameRandom(7));
+    }
+
+    @Test
+    public void burstsFromThePointAndFalls() {
+        final ParticleSystem particles = system(16);
+        assertEquals(4, particles.burst(100, 200, 4, 0, FPS));
+        assertEquals(4, particles.getCount());
+
+        final float[] points = new float[32];
+        assertEquals(8, particles.writePoints(points, 1));
+        for( int i = 0; i < 8; i += 2 ) {
+            assertEquals(100f, points[i], 0);
+            assertEquals(200f, points[i + 1], 0);
+        }
+
+        //Without any speed they only fall
+        particles.update();
+        particles.update();
+        particles.writePoints(points, 1);
+        assertEquals(100f, points[0], 0);
+        assertTrue(points[1] > 200);
+
+        //Halfway between the ticks is halfway between the positions
+        final float previousY = points[1];
+        particles.update();
+        particles.writePoints(points, 1);
+        final float currentY = points[1];
+        particles.writePoints(points, 0.5);
+        assertEquals((previousY + currentY) / 2, points[1], 0.001);
+    }
+
+    @Test
+    public void particlesDieAndTheirSlotsAreReused() {
+        final ParticleSystem particles = system(8);
+        assertEquals(8, particles.burst(WIDTH/2, HEIGHT/2, 8, 0, 10));
+        for( int tick = 0; tick < 10; tick++ ) {
+            particles.update();
+        }
+        assertEquals(0, particles.getCount());
+
+        assertEquals(8, particles.burst(WIDTH/2, HEIGHT/2, 8, 0, 10));
+        assertEquals(0, particles.getDroppedCount());
+    }
+
+    @Test
+    public void particlesThatLeaveTheWorldDie() {
+        final ParticleSystem particles = system(8);
+        particles.burst(WIDTH/2, HEIGHT, 8, 0, FPS * 10);
+        particles.update();
+        assertEquals(0, particles.getCount());
+
+        particles.burst(WIDTH/2, HEIGHT/2, 8, 8 * WIDTH * FPS, FPS * 10);
+        particles.update();
+        assertEquals(0, particles.getCount());
+    }
+
+    @Test
+    public void shrinksBurstsAndDropsParticlesWhenFull() {
+        final ParticleSystem particles = system(100);
+        assertEquals(60, particles.burst(0, 0, 60, 0, FPS));
+        //40 slots are left, 40 of 50 in proportion
+        assertEquals(40 * 2 * 20 / 100, particles.burst(0, 0, 20, 0, FPS));
+        assertEquals(4, particles.getDroppedCount());
+
+        particles.burst(0, 0, 1000, 0, FPS);
+        assertEquals(100, particles.getCount());
+        assertEquals(0, particles.burst(0, 0, 5, 0, FPS));
+        assertEquals(100, particles.getCount());
+
+        particles.clear();
+        assertEquals(0, particles.getCount());
+        assertEquals(50, particles.burst(0, 0, 50, 0, FPS));
+    }
+
+    @Test
+    public void keepsSurvivorsWhenOthersDie() {
+        final ParticleSystem particles = system(8);
+        particles.burst(10, 10, 4, 0, 2);
+        particles.burst(20, 20, 4, 0, FPS * 10);
+        for( int tick = 0; tick < 2; tick++ ) {
+            particles.update();
+        }
+        assertEquals(4, particles.getCount());
+
+        final float[] points = new float[16];
+        assertEquals(8, particles.writePoints(points, 1));
+        for( int i = 0; i < 8; i += 2 ) {
+            assertEquals(20f, points[i], 0);
+        }
+    }
+
+    @Test
+    public void doesNotAllocateAfterWarmUp() throws Exception {
+        AllocationCounter counter = new AllocationCounter();
+        Assume.assumeTrue(counter.isSupported());
+
+        final ParticleSystem particles = system(2048);
+        final float[] points = new float[2048 * 2];
+
+        //Warm up so the JIT and class loading are out of the way
+        for( int tick = 0; tick < 20000; tick++ ) {
+            particles.burst(WIDTH/2, HEIGHT/2, 40, WIDTH, FPS);
+            particles.update();
+            particles.writePoints(points, 0.5);
+        }
+
+        final long overhead = counter.overhead();
+        final long before = counter.allocatedBytes();
+        for( int tick = 0; tick < 20000; tick++ ) {
+            particles.burst(WIDTH/2, HEIGHT/2, 40, WIDTH, FPS);
+            particles.update();
+            particles.writePoints(points, 0.5);
+        }
+        final long allocated = counter.allocatedBytes() - before - overhead;
+
+        assertEquals(0, allocated);
+    }
+}
@@ -0,0 +1,55 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class PositionHistoryUnitTests {
+    @Test
+    public void interpolatesBetweenRecordedTicks() throws Exception {
+        PositionHistory history = new PositionHistory(4);
+        history.record(100, 0, 50);
+        history.record(200, 10, 30);
+
+        assertEquals(5, history.getXAt(150), 0.0001);
+        assertEquals(40, history.getYAt(150), 0.0001);
+        assertEquals(10, history.getXAt(200), 0.0001);
+
+        //Outside the history the closest position is used
+        assertEquals(0, history.getXAt(50), 0.0001);
+        assertEquals(10, history.getXAt(500), 0.0001);
+    }
+
+    @Test
+    public void forgetsTheOldestPositions() throws Exception {
+        PositionHistory history = new PositionHistory(3);
+        for( int tick = 0; tick < 10; tick++ ) {
+            history.record(tick * 100, tick, tick);
+        }
+
+        assertEquals(3, history.size());
+        assertEquals(7, history.getXAt(0), 0.0001);
+        assertEquals(8.5, history.getXAt(850), 0.0001);
+
+        history.clear();
+        assertEquals(0, history.size());
+    }
+
+    @Test
+    public void tapsHitWhereTheBallWas() throws Exception {
+        BallPhysics physics = new BallPhysics(720, 1280, 50, 60);
+        Ball ball = new Ball(physics);
+        physics.setGameX(0);
+        physics.setGameY(0);
+        ball.update(null, 0);
+
+        //The ball has moved far away since, but the tap happened while it was still there
+        physics.setGameX(500);
+        physics.setGameY(500);
+        ball.update(null, 100);
+        assertTrue(ball.containedAt(0, 50, 50));
+        assertTrue(!ball.containedAt(100, 50, 50));
+        assertTrue(ball.containedAt(100, 550, 550));
+    }
+}
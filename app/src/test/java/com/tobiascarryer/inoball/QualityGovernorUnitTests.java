@@ -0,0 +1,156 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class QualityGovernorUnitTests {
+    private static final long MS = 1000000L;
+    private static final long BUDGET = GameLoop.NANOSECONDS_PER_SECOND / 60;
+
+    //A window of 10 frames, down at 3 misses, up after 20 frames under 60% of the better budget
+    private static final QualityGovernor.Config CONFIG = new QualityGovernor.Config(BUDGET, 10, 0.3, 0.6, 20, 5);
+
+    private static class RecordingListener implements QualityGovernor.Listener {
+        final List<String> changes = new ArrayList<String>();
+        String lastTrigger;
+
+        @Override
+        public void onTierChanged(QualityGovernor.Tier from, QualityGovernor.Tier to, String trigger) {
+            changes.add(from.name + "->" + to.name);
+            lastTrigger = trigger;
+        }
+    }
+
+    private static void feed(QualityGovernor governor, long frameNanos, int frames) {
+        for( int i = 0; i < frames; i++ ) {
+            governor.onFrame(frameNanos);
+        }
+    }
+
+    @Test
+    public void staysAtFullQualityWhileFramesFitTheBudget() {
+        final RecordingListener listener = new RecordingListener();
+        final QualityGovernor governor = new QualityGovernor(QualityGovernor.defaultTiers(), CONFIG, listener);
+
+        //Two slow frames in every ten are not enough to step down
+        for( int i = 0; i < 1000; i++ ) {
+            governor.onFrame(i % 10 < 2 ? 30 * MS : 10 * MS);
+        }
+        assertEquals(0, governor.getTierIndex());
+        assertEquals(0, listener.changes.size());
+    }
+
+    @Test
+    public void stepsDownOneTierAtATimeWhileFramesMissTheBudget() {
+        final RecordingListener listener = new RecordingListener();
+        final QualityGovernor governor = new QualityGovernor(QualityGovernor.defaultTiers(), CONFIG, listener);
+
+        //A full window is needed before the first step
+        feed(governor, 20 * MS, 9);
+        assertEquals(0, governor.getTierIndex());
+        governor.onFrame(20 * MS);
+        assertEquals(1, governor.getTierIndex());
+        assertEquals("10 of 10 frames over 16.7ms", listener.lastTrigger);
+
+        //The frames right after the change don't count
+        feed(governor, 20 * MS, 5 + 9);
+        assertEquals(1, governor.getTierIndex());
+        governor.onFrame(20 * MS);
+        assertEquals(2, governor.getTierIndex());
+
+        //The last tier renders at 30 frames a second, which 20ms frames fit
+        feed(governor, 20 * MS, 15);
+        assertEquals(3, governor.getTierIndex());
+        feed(governor, 20 * MS, 1000);
+        assertEquals(3, governor.getTierIndex());
+        assertEquals("[full->reduced, reduced->low, low->minimal]", listener.changes.toString());
+
+        //Frames that miss even the last tier's budget can't go any lower
+        feed(governor, 50 * MS, 1000);
+        assertEquals(3, governor.getTierIndex());
+        assertEquals(3, governor.getChangeCount());
+    }
+
+    @Test
+    public void stepsDownWhenMissesPileUpInTheRollingWindow() {
+        final RecordingListener listener = new RecordingListener();
+        final QualityGovernor governor = new QualityGovernor(QualityGovernor.defaultTiers(), CONFIG, listener);
+
+        //Misses 20 frames apart never share a window
+        for( int i = 0; i < 200; i++ ) {
+            governor.onFrame(i % 20 == 0 ? 40 * MS : 10 * MS);
+        }
+        assertEquals(0, governor.getTierIndex());
+
+        //Three close together do
+        feed(governor, 40 * MS, 2);
+        feed(governor, 10 * MS, 3);
+        assertEquals(0, governor.getTierIndex());
+        governor.onFrame(40 * MS);
+        assertEquals(1, governor.getTierIndex());
+        assertEquals("3 of 10 frames over 16.7ms", listener.lastTrigger);
+    }
+
+    @Test
+    public void onlyStepsBackUpAfterALongRunOfHeadroom() {
+        final RecordingListener listener = new RecordingListener();
+        final QualityGovernor governor = new QualityGovernor(QualityGovernor.defaultTiers(), CONFIG, listener);
+        feed(governor, 20 * MS, 10);
+        assertEquals(1, governor.getTierIndex());
+
+        //Frames that fit the budget but not comfortably keep the lower tier
+        feed(governor, 14 * MS, 1000);
+        assertEquals(1, governor.getTierIndex());
+
+        //A slow frame starts the run over
+        feed(governor, 5 * MS, 19);
+        governor.onFrame(14 * MS);
+        feed(governor, 5 * MS, 19);
+        assertEquals(1, governor.getTierIndex());
+        governor.onFrame(5 * MS);
+        assertEquals(0, governor.getTierIndex());
+        assertEquals("20 frames in a row under 10.0ms", listener.lastTrigger);
+        assertEquals("[full->reduced, reduced->full]", listener.changes.toString());
+    }
+
+    @Test
+    public void doesNotBounceOnTheEdgeOfTheBudget() {
+        final RecordingListener listener = new RecordingListener();
+        final QualityGovernor governor = new QualityGovernor(QualityGovernor.defaultTiers(), CONFIG, listener);
+
+        //A device that takes a little over the budget at full quality and a little under it after
+        feed(governor, 17 * MS, 10);
+        assertEquals(1, governor.getTierIndex());
+        feed(governor, 15 * MS, 10000);
+        assertEquals(1, governor.getChangeCount());
+    }
+
+    @Test
+    public void usesTheTiersAndThresholdsItIsGiven() {
+        final RecordingListener listener = new RecordingListener();
+        final QualityGovernor.Tier[] tiers = {
+                new QualityGovernor.Tier("a", Viewport.QUALITY_HIGH, true, 1, 120),
+                new QualityGovernor.Tier("b", Viewport.QUALITY_LOW, false, 0, 60)};
+        final QualityGovernor.Config config = new QualityGovernor.Config(BUDGET, 4, 1, 0.5, 3, 0);
+        final QualityGovernor governor = new QualityGovernor(tiers, config, listener);
+
+        //The first tier's budget comes from its frame rate, and every frame in the window has to miss it
+        feed(governor, 9 * MS, 3);
+        governor.onFrame(8 * MS);
+        assertEquals(0, governor.getTierIndex());
+        feed(governor, 9 * MS, 3);
+        assertEquals(0, governor.getTierIndex());
+        governor.onFrame(9 * MS);
+        assertEquals(1, governor.getTierIndex());
+        assertEquals("b", governor.getTier().name);
+        assertTrue(governor.getLastTrigger().endsWith("over 8.3ms"));
+
+        feed(governor, 4 * MS, 3);
+        assertEquals(0, governor.getTierIndex());
+    }
+}
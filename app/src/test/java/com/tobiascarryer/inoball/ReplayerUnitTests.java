@@ -0,0 +1,180 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class ReplayerUnitTests {
+    private static final int WIDTH = 720;
+    private static final int HEIGHT = 1280;
+    private static final int FPS = 60;
+
+    private static int roll(GameRandom random, int sides) {
+        return (int) (random.nextDouble() * sides);
+    }
+
+    /**
+     * Plays a single ball game the way GamePanel does, tapping the ball whenever the tapper
+     * decides to, and records it.
+     */
+    private static Recorder playSingleBall(long seed, long tapperSeed, int ticks) {
+        final GameRandom random = new GameRandom(seed);
+        final GameRandom tapper = new GameRandom(tapperSeed);
+        final Recorder recorder = new Recorder(random.getState(), WIDTH, HEIGHT, FPS, 1, WIDTH/4);
+        final BallPhysics ball = new BallPhysics(WIDTH, HEIGHT, WIDTH/4, FPS, random);
+        ball.resetToStartingPosition();
+
+        for( int tick = 0; tick < ticks; tick++ ) {
+            final int roll = roll(tapper, 20);
+            if( roll == 0 ) {
+                recorder.onTap((int) ball.getCenterX(), (int) ball.getCenterY(), 0);
+                ball.tap();
+            } else if( roll == 1 ) {
+                recorder.onTap(0, -5, -1); //A miss
+            }
+            if( ball.update() ) {
+                ball.resetToStartingPosition();
+            }
+            recorder.onTick(ball.fingerprint());
+        }
+        return recorder;
+    }
+
+    @Test
+    public void replaysASingleBallGameExactly() throws Exception {
+        final Recorder recorder = playSingleBall(11, 5, 60 * FPS);
+        final Replayer replayer = new Replayer(recorder.toByteArray());
+
+        assertEquals(60 * FPS, replayer.getTickCount());
+        assertTrue(replayer.getTapCount() > 0);
+        assertEquals(recorder.getFingerprint(), replayer.getRecordedFingerprint());
+
+        final Replayer.Result result = replayer.run();
+        assertTrue(result.matches());
+        assertEquals(recorder.getFingerprint(), result.fingerprint);
+        assertEquals(60 * FPS, result.ticks);
+        assertTrue(result.gamesEnded > 0);
+
+        //Replaying again gives the same result
+        assertEquals(result.fingerprint, replayer.run().fingerprint);
+    }
+
+    @Test
+    public void replaysAMultiBallGameExactly() throws Exception {
+        final int balls = 9;
+        final int radius = GamePanel.multiBallRadius(WIDTH, balls);
+        final GameRandom random = new GameRandom(23);
+        final GameRandom tapper = new GameRandom(8);
+        final Recorder recorder = new Recorder(random.getState(), WIDTH, HEIGHT, FPS, balls, radius);
+        final BallSystem system = new BallSystem(WIDTH, HEIGHT, radius, FPS, balls, random);
+        for( int i = 0; i < balls; i++ ) {
+            system.add();
+        }
+
+        for( int tick = 0; tick < 30 * FPS; tick++ ) {
+            if( roll(tapper, 4) == 0 ) {
+                final int x = (int) system.getX(roll(tapper, balls)) + radius;
+                final int y = HEIGHT - radius;
+                final int hit = system.findBallAt(x, y);
+                recorder.onTap(x, y, hit);
+                if( hit >= 0 ) {
+                    system.tap(hit);
+                }
+            }
+            if( system.update() > 0 ) {
+                system.resetAll();
+            }
+            recorder.onTick(system.fingerprint());
+        }
+
+        final Replayer.Result result = new Replayer(recorder.toByteArray()).run();
+        assertTrue(result.matches());
+        assertTrue(result.bestScore > 0);
+    }
+
+    @Test
+    public void keepsTheTicksAndPositionsOfTaps() throws Exception {
+        final Recorder recorder = new Recorder(1, WIDTH, HEIGHT, FPS, 1, 180);
+        recorder.onTap(-3, 400, 0);
+        recorder.onTick(1);
+        recorder.onTick(2);
+        recorder.onTap(70000, 5, -1);
+        recorder.onTap(1, 2, 0);
+        recorder.onTick(3);
+
+        final Replayer replayer = new Replayer(recorder.toByteArray());
+        assertEquals(3, replayer.getTickCount());
+        assertEquals(3, replayer.getTapCount());
+        assertEquals(0, replayer.getTapTick(0));
+        assertEquals(-3, replayer.getTapX(0));
+        assertEquals(400, replayer.getTapY(0));
+        assertEquals(2, replayer.getTapTick(1));
+        assertEquals(70000, replayer.getTapX(1));
+        assertEquals(-1, replayer.getTapHit(1));
+        assertEquals(2, replayer.getTapTick(2));
+        assertEquals(0, replayer.getTapHit(2));
+    }
+
+    @Test
+    public void canKeepRecordingAfterASnapshot() throws Exception {
+        final Recorder recorder = playSingleBall(2, 3, FPS);
+        final byte[] first = recorder.toByteArray();
+        assertTrue(Arrays.equals(first, recorder.toByteArray()));
+
+        recorder.onTap(1, 1, -1);
+        recorder.onTick(4);
+        final Replayer replayer = new Replayer(recorder.toByteArray());
+        assertEquals(FPS + 1, replayer.getTickCount());
+        assertEquals(FPS, replayer.getTapTick(replayer.getTapCount() - 1));
+    }
+
+    @Test
+    public void detectsADifferentGame() throws Exception {
+        final byte[] recording = playSingleBall(4, 9, 10 * FPS).toByteArray();
+        //Change the last byte of the fingerprint
+        recording[recording.length - 1] ^= 1;
+        assertTrue(!new Replayer(recording).run().matches());
+    }
+
+    @Test
+    public void rejectsBrokenRecordings() throws Exception {
+        final byte[] recording = playSingleBall(4, 9, FPS).toByteArray();
+        try {
+            new Replayer(Arrays.copyOf(recording, recording.length - 3));
+            fail("A cut off recording was read.");
+        } catch (IOException e) {
+            //Expected
+        }
+
+        recording[0] = 'X';
+        try {
+            new Replayer(recording);
+            fail("A recording with the wrong magic number was read.");
+        } catch (IOException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void rejectsRecordingsOfOtherVersions() throws Exception {
+        final byte[] recording = playSingleBall(4, 9, FPS).toByteArray();
+        //The version follows the four bytes of the magic number
+        assertEquals(Recorder.VERSION, recording[4]);
+        assertTrue(new Replayer(recording).run().matches());
+
+        for( int version : new int[] {1, Recorder.VERSION + 1} ) {
+            recording[4] = (byte) version;
+            try {
+                new Replayer(recording);
+                fail("A version " + version + " recording was read.");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Recording version " + version + " can't be replayed"));
+            }
+        }
+    }
+}
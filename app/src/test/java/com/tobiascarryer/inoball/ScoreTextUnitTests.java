@@ -0,0 +1,59 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScoreTextUnitTests {
+
+    private static String text(ScoreText scoreText) {
+        return new String(scoreText.getChars(), scoreText.getStart(), scoreText.getLength());
+    }
+
+    @Test
+    public void formatsNumbers() throws Exception {
+        ScoreText scoreText = new ScoreText();
+        int[] values = {0, 7, 10, 42, 999, 1000, 123456789, Integer.MAX_VALUE, -1, -250, Integer.MIN_VALUE};
+        for( int value : values ) {
+            scoreText.setValue(value);
+            assertEquals(String.valueOf(value), text(scoreText));
+        }
+    }
+
+    @Test
+    public void reformatsWhenValueChanges() throws Exception {
+        ScoreText scoreText = new ScoreText();
+        scoreText.setValue(100);
+        assertEquals("100", text(scoreText));
+        scoreText.setValue(99);
+        assertEquals("99", text(scoreText));
+        scoreText.setValue(99);
+        assertEquals("99", text(scoreText));
+    }
+
+    @Test
+    public void doesNotAllocateAfterWarmUp() throws Exception {
+        AllocationCounter counter = new AllocationCounter();
+        Assume.assumeTrue(counter.isSupported());
+
+        ScoreText score = new ScoreText();
+        ScoreText highScore = new ScoreText();
+
+        //Warm up so the JIT and class loading are out of the way
+        for( int frame = 0; frame < 20000; frame++ ) {
+            score.setValue(frame / 60);
+            highScore.setValue(frame / 60 + 1000);
+        }
+
+        final long overhead = counter.overhead();
+        final long before = counter.allocatedBytes();
+        for( int frame = 0; frame < 20000; frame++ ) {
+            score.setValue(frame / 60);
+            highScore.setValue(frame / 60 + 1000);
+        }
+        final long allocated = counter.allocatedBytes() - before - overhead;
+
+        assertEquals(0, allocated);
+    }
+}
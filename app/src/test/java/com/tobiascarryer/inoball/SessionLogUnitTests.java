@@ -0,0 +1,170 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class SessionLogUnitTests {
+    private static final long MS = 1000000L;
+
+    private File mFile;
+
+    @Before
+    public void createFile() throws Exception {
+        mFile = File.createTempFile("sessions", null);
+        assertTrue(mFile.delete());
+    }
+
+    @After
+    public void deleteFile() throws Exception {
+        mFile.delete();
+    }
+
+    private static Session session(int n, int score) {
+        return new Session(1500000000000L + n, 1000 + n, score, 2 * n, 4000 + n, 9000 + n);
+    }
+
+    @Test
+    public void readsSessionsBackAfterReopening() throws Exception {
+        SessionLog log = new SessionLog(mFile);
+        assertEquals(0, log.size());
+        for( int n = 0; n < 5; n++ ) {
+            log.append(session(n, n * 3));
+        }
+        assertEquals(session(2, 6), log.get(2));
+        log.close();
+
+        assertEquals(5 * SessionLog.RECORD_BYTES, mFile.length());
+        SessionLog reopened = new SessionLog(mFile);
+        assertEquals(5, reopened.size());
+        for( int n = 0; n < 5; n++ ) {
+            assertEquals(session(n, n * 3), reopened.get(n));
+        }
+        reopened.close();
+    }
+
+    @Test
+    public void answersTopScoresAndLastSessions() throws Exception {
+        SessionLog log = new SessionLog(mFile);
+        int[] scores = {5, 40, 12, 40, 3, 27};
+        for( int n = 0; n < scores.length; n++ ) {
+            log.append(session(n, scores[n]));
+        }
+
+        List<Session> top = log.topScores(3);
+        assertEquals(3, top.size());
+        assertEquals(session(3, 40), top.get(0)); //The newer of the two 40s comes first
+        assertEquals(session(1, 40), top.get(1));
+        assertEquals(session(5, 27), top.get(2));
+
+        List<Session> last = log.lastSessions(2);
+        assertEquals(2, last.size());
+        assertEquals(session(5, 27), last.get(0));
+        assertEquals(session(4, 3), last.get(1));
+
+        assertEquals(scores.length, log.lastSessions(100).size());
+        assertEquals(scores.length, log.topScores(100).size());
+        log.close();
+    }
+
+    @Test
+    public void keepsOnlyTheBestScoresIndexed() throws Exception {
+        SessionLog log = new SessionLog(mFile);
+        final int sessions = SessionLog.TOP_INDEX_SIZE + 500;
+        for( int n = 0; n < sessions; n++ ) {
+            log.append(session(n, (n * 7919) % sessions));
+        }
+        log.close();
+
+        SessionLog reopened = new SessionLog(mFile);
+        List<Session> top = reopened.topScores(sessions);
+        assertEquals(SessionLog.TOP_INDEX_SIZE, top.size());
+        assertEquals(sessions - 1, top.get(0).score);
+        for( int i = 1; i < top.size(); i++ ) {
+            assertTrue(top.get(i).score <= top.get(i - 1).score);
+        }
+        assertEquals(sessions - SessionLog.TOP_INDEX_SIZE, top.get(top.size() - 1).score);
+        reopened.close();
+    }
+
+    @Test
+    public void growsTheMapInChunksWhileQueriedAfterEveryAppend() throws Exception {
+        SessionLog log = new SessionLog(mFile);
+        final int sessions = 3 * SessionLog.MAP_CHUNK_RECORDS + 10;
+        for( int n = 0; n < sessions; n++ ) {
+            log.append(session(n, n));
+            //Both the newest record, read from the file, and one from the map
+            final List<Session> last = log.lastSessions(1);
+            assertEquals(n, last.get(0).score);
+            assertEquals(1000 + n, last.get(0).durationMillis);
+            assertEquals(n / 2, log.get(n / 2).score);
+        }
+
+        //Opening maps the empty file once, then the map only grew once per chunk
+        assertEquals(1 + sessions / SessionLog.MAP_CHUNK_RECORDS, log.getMapCount());
+        assertEquals(sessions - 1, log.topScores(1).get(0).score);
+        log.close();
+    }
+
+    @Test
+    public void cutsOffATornRecord() throws Exception {
+        SessionLog log = new SessionLog(mFile);
+        log.append(session(0, 10));
+        log.append(session(1, 20));
+        log.close();
+
+        //A crash halfway through the next append, then a bit flip in the second record
+        FileOutputStream out = new FileOutputStream(mFile, true);
+        out.write(new byte[SessionLog.RECORD_BYTES / 2]);
+        out.close();
+
+        SessionLog reopened = new SessionLog(mFile);
+        assertEquals(2, reopened.size());
+        assertEquals(2 * SessionLog.RECORD_BYTES, mFile.length());
+        reopened.close();
+
+        RandomAccessFile raw = new RandomAccessFile(mFile, "rw");
+        raw.seek(SessionLog.RECORD_BYTES + 13);
+        raw.write(0x7F);
+        raw.close();
+
+        reopened = new SessionLog(mFile);
+        assertEquals(1, reopened.size());
+        reopened.append(session(2, 30));
+        assertEquals(session(2, 30), reopened.get(1));
+        reopened.close();
+    }
+
+    @Test
+    public void tracksAGameFromItsFirstJump() throws Exception {
+        FrameMetrics metrics = new FrameMetrics(16 * MS);
+        SessionTracker tracker = new SessionTracker(metrics);
+
+        metrics.beginFrame();
+        metrics.endFrame(50 * MS, 1); //Before the game started
+        tracker.onTap(0, false);
+        assertTrue(!tracker.isStarted());
+        assertNull(tracker.finish(0, 0, 0));
+
+        tracker.onTap(1000 * MS, true);
+        tracker.onTap(1500 * MS, false);
+        tracker.onTap(1600 * MS, true);
+        metrics.beginFrame();
+        metrics.endFrame(4 * MS, 2);
+        metrics.beginFrame();
+        metrics.endFrame(8 * MS, 3);
+
+        Session session = tracker.finish(4000 * MS, 1234, 2);
+        assertEquals(new Session(1234, 3000, 2, 3, 6000, 8000), session);
+        assertTrue(!tracker.isStarted());
+    }
+}
@@ -0,0 +1,114 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class SpatialGridUnitTests {
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 500;
+    private static final int RADIUS = 10;
+
+    /**
+     * @return count random corners, some of them off the edges of the world.
+     */
+    private static double[][] randomCorners(int count, long seed) {
+        GameRandom random = new GameRandom(seed);
+        double[][] corners = new double[2][count];
+        for( int i = 0; i < count; i++ ) {
+            corners[0][i] = random.nextDouble() * (WIDTH + 40) - 20;
+            corners[1][i] = random.nextDouble() * (HEIGHT + 80) - 60;
+        }
+        return corners;
+    }
+
+    private static boolean overlap(double[][] corners, int i, int j) {
+        final double a = corners[0][i] - corners[0][j];
+        final double b = corners[1][i] - corners[1][j];
+        return a*a + b*b < 4 * RADIUS * RADIUS;
+    }
+
+    @Test
+    public void findsTheTopBallUnderAPoint() throws Exception {
+        double[] x = {0, 5, 200};
+        double[] y = {0, 5, 200};
+        SpatialGrid grid = new SpatialGrid(WIDTH, HEIGHT, RADIUS, 3);
+        grid.rebuild(x, y, 3);
+
+        assertEquals(1, grid.findAt(12, 12)); //Inside both 0 and 1
+        assertEquals(0, grid.findAt(3, 10));
+        assertEquals(2, grid.findAt(210, 200));
+        assertEquals(-1, grid.findAt(100, 100));
+        assertEquals(-1, grid.findAt(218, 218)); //Inside the square but not the circle
+    }
+
+    @Test
+    public void findAtMatchesALinearScan() throws Exception {
+        final int count = 400;
+        double[][] corners = randomCorners(count, 11);
+        SpatialGrid grid = new SpatialGrid(WIDTH, HEIGHT, RADIUS, count);
+        grid.rebuild(corners[0], corners[1], count);
+
+        GameRandom random = new GameRandom(12);
+        for( int tap = 0; tap < 2000; tap++ ) {
+            final double tapX = random.nextDouble() * (WIDTH + 40) - 20;
+            final double tapY = random.nextDouble() * (HEIGHT + 80) - 60;
+            int expected = -1;
+            for( int i = 0; i < count; i++ ) {
+                final double a = tapX - (corners[0][i] + RADIUS);
+                final double b = tapY - (corners[1][i] + RADIUS);
+                if( a*a + b*b <= RADIUS * RADIUS ) {
+                    expected = i;
+                }
+            }
+            assertEquals(expected, grid.findAt(tapX, tapY));
+        }
+    }
+
+    @Test
+    public void findsEveryOverlappingPairOnce() throws Exception {
+        final int count = 300;
+        double[][] corners = randomCorners(count, 21);
+        SpatialGrid grid = new SpatialGrid(WIDTH, HEIGHT, RADIUS, count);
+        grid.rebuild(corners[0], corners[1], count);
+
+        int expected = 0;
+        for( int i = 0; i < count; i++ ) {
+            for( int j = i + 1; j < count; j++ ) {
+                if( overlap(corners, i, j) ) {
+                    expected++;
+                }
+            }
+        }
+        assertTrue(expected > 0);
+
+        final int pairs = grid.findOverlappingPairs();
+        assertEquals(expected, pairs);
+        assertEquals(pairs, grid.getPairCount());
+        boolean[][] seen = new boolean[count][count];
+        for( int p = 0; p < pairs; p++ ) {
+            final int first = grid.getFirst(p);
+            final int second = grid.getSecond(p);
+            assertTrue(first < second);
+            assertTrue(overlap(corners, first, second));
+            assertTrue(!seen[first][second]);
+            seen[first][second] = true;
+        }
+    }
+
+    @Test
+    public void followsMovesAfterARebuild() throws Exception {
+        double[] x = {0, 100};
+        double[] y = {0, 100};
+        SpatialGrid grid = new SpatialGrid(WIDTH, HEIGHT, RADIUS, 2);
+        grid.rebuild(x, y, 2);
+        assertEquals(0, grid.findOverlappingPairs());
+
+        x[1] = 10;
+        y[1] = 5;
+        grid.rebuild(x, y, 2);
+        assertEquals(1, grid.findOverlappingPairs());
+        assertEquals(1, grid.findAt(25, 15));
+    }
+}
@@ -0,0 +1,36 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpriteCacheUnitTests {
+    @Test
+    public void samplesDownWhileLargeEnough() throws Exception {
+        assertEquals(1, SpriteCache.calculateInSampleSize(960, 959, 960, 959));
+        assertEquals(1, SpriteCache.calculateInSampleSize(960, 959, 540, 540));
+        assertEquals(2, SpriteCache.calculateInSampleSize(960, 959, 360, 360));
+        assertEquals(4, SpriteCache.calculateInSampleSize(960, 959, 200, 200));
+        assertEquals(8, SpriteCache.calculateInSampleSize(960, 959, 60, 60));
+    }
+
+    @Test
+    public void neverSamplesBelowRequestedSize() throws Exception {
+        for( int requested = 1; requested <= 1000; requested++ ) {
+            int inSampleSize = SpriteCache.calculateInSampleSize(960, 959, requested, requested);
+            assertTrue(inSampleSize >= 1);
+            if( requested <= 959 ) {
+                assertTrue(959 / inSampleSize >= requested);
+            }
+        }
+    }
+
+    @Test
+    public void keysMatchOnResourceAndSize() throws Exception {
+        assertEquals(SpriteCache.key(R.drawable.ball, 10, 10), SpriteCache.key(R.drawable.ball, 10, 10));
+        assertEquals(SpriteCache.key(R.drawable.ball, 10, 10).hashCode(), SpriteCache.key(R.drawable.ball, 10, 10).hashCode());
+        assertFalse(SpriteCache.key(R.drawable.ball, 10, 10).equals(SpriteCache.key(R.drawable.ball, 10, 11)));
+        assertFalse(SpriteCache.key(R.drawable.ball, 10, 10).equals(SpriteCache.key(R.drawable.bg, 10, 10)));
+        assertTrue(SpriteCache.key(R.drawable.bg).isOriginalSize());
+    }
+}
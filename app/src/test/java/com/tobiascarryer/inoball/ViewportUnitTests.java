@@ -0,0 +1,76 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class ViewportUnitTests {
+    @Test
+    public void worldIsTheSameOnEveryScreenWithTheSameAspectRatio() throws Exception {
+        Viewport small = new Viewport(720, 1280);
+        Viewport large = new Viewport(1440, 2560);
+
+        assertEquals(Viewport.WORLD_WIDTH, small.getWorldWidth());
+        assertEquals(1280, small.getWorldHeight());
+        assertEquals(small.getWorldWidth(), large.getWorldWidth());
+        assertEquals(small.getWorldHeight(), large.getWorldHeight());
+    }
+
+    @Test
+    public void mapsTapsIntoTheWorld() throws Exception {
+        Viewport viewport = new Viewport(1440, 2560);
+        viewport.setBufferSize(360, 640);
+
+        //The render buffer's size doesn't matter for taps, they are in view pixels
+        assertEquals(0, viewport.toWorldX(0));
+        assertEquals(360, viewport.toWorldX(720));
+        assertEquals(719, viewport.toWorldX(1439.5f));
+        assertEquals(640, viewport.toWorldY(1280));
+        assertEquals(1279, viewport.toWorldY(2559));
+    }
+
+    @Test
+    public void lowerQualitiesDrawFewerPixels() throws Exception {
+        Viewport viewport = new Viewport(1440, 2560);
+
+        assertEquals(720, viewport.getBufferWidthFor(Viewport.QUALITY_HIGH));
+        assertEquals(1280, viewport.getBufferHeightFor(Viewport.QUALITY_HIGH));
+        assertEquals(540, viewport.getBufferWidthFor(Viewport.QUALITY_MEDIUM));
+        assertEquals(960, viewport.getBufferHeightFor(Viewport.QUALITY_MEDIUM));
+        assertEquals(360, viewport.getBufferWidthFor(Viewport.QUALITY_LOW));
+        assertEquals(640, viewport.getBufferHeightFor(Viewport.QUALITY_LOW));
+
+        //Never more pixels than the screen has
+        Viewport small = new Viewport(480, 800);
+        assertEquals(480, small.getBufferWidthFor(Viewport.QUALITY_HIGH));
+        assertEquals(800, small.getBufferHeightFor(Viewport.QUALITY_HIGH));
+    }
+
+    @Test
+    public void dirtyRectanglesCoverEverythingThatChanged() throws Exception {
+        Viewport viewport = new Viewport(1080, 1920);
+        viewport.setBufferSize(540, 960);
+
+        assertEquals(0.75f, viewport.getBufferScaleX(), 1e-6);
+        assertEquals(5, viewport.toBufferLeft(7));
+        assertEquals(6, viewport.toBufferRight(7));
+        assertEquals(75, viewport.toBufferLeft(100));
+        assertEquals(75, viewport.toBufferRight(100));
+        assertEquals(540, viewport.toBufferRight(viewport.getWorldWidth()));
+        assertEquals(960, viewport.toBufferBottom(viewport.getWorldHeight()));
+        assertEquals(0, viewport.toBufferTop(1));
+    }
+
+    @Test
+    public void cyclesThroughTheQualities() throws Exception {
+        int quality = Viewport.QUALITY_HIGH;
+        for( int i = 0; i < Viewport.QUALITY_COUNT; i++ ) {
+            assertTrue(Viewport.isQuality(quality));
+            quality = Viewport.nextQuality(quality);
+        }
+        assertEquals(Viewport.QUALITY_HIGH, quality);
+        assertTrue(!Viewport.isQuality(Viewport.QUALITY_COUNT));
+        assertTrue(!Viewport.isQuality(-1));
+    }
+}
@@ -0,0 +1,39 @@
+package com.tobiascarryer.inoball;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The per tick cost of the ball simulation and the cost of a tap.
+ */
+
+@State(Scope.Thread)
+public class BallPhysicsBenchmark {
+
+    private BallPhysics mBall;
+
+    @Setup
+    public void setUp() {
+        mBall = new BallPhysics(1080, 1920, 270, 60, new GameRandom(42));
+        mBall.resetToStartingPosition();
+        mBall.randomizeVelocity();
+    }
+
+    @Benchmark
+    public boolean update() {
+        //Keep the ball in the air so every tick does the full amount of work
+        if( mBall.update() ) {
+            mBall.resetToStartingPosition();
+            mBall.randomizeVelocity();
+        }
+        return mBall.canBeTapped();
+    }
+
+    @Benchmark
+    public double randomizeVelocity() {
+        mBall.randomizeVelocity();
+        return mBall.getGameX();
+    }
+}
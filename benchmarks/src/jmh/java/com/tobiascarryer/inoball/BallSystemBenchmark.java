@@ -0,0 +1,69 @@
+package com.tobiascarryer.inoball;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One tick of many balls, stored as parallel arrays in a BallSystem versus one BallPhysics
+ * object per ball. Every operation updates all the balls once, so divide the score by
+ * balls to get nanoseconds per ball per tick.
+ */
+
+@State(Scope.Thread)
+public class BallSystemBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int RADIUS = 16;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int balls;
+
+    private BallSystem mSystem;
+    private BallPhysics[] mObjects;
+
+    @Setup
+    public void setUp() {
+        mSystem = new BallSystem(WIDTH, HEIGHT, RADIUS, 60, balls, new GameRandom(42));
+        mObjects = new BallPhysics[balls];
+        final GameRandom random = new GameRandom(42);
+        for( int i = 0; i < balls; i++ ) {
+            mSystem.randomizeVelocity(mSystem.add());
+            mObjects[i] = new BallPhysics(WIDTH, HEIGHT, RADIUS, 60, random);
+            mObjects[i].resetToStartingPosition();
+            mObjects[i].randomizeVelocity();
+        }
+    }
+
+    @Benchmark
+    public int structureOfArrays() {
+        //Keep the balls in the air so every tick does the full amount of work
+        final int fallen = mSystem.update();
+        if( fallen > 0 ) {
+            for( int i = 0; i < balls; i++ ) {
+                if( mSystem.getY(i) > HEIGHT ) {
+                    mSystem.resetToStartingPosition(i);
+                    mSystem.randomizeVelocity(i);
+                }
+            }
+        }
+        return fallen;
+    }
+
+    @Benchmark
+    public int objectPerBall() {
+        int fallen = 0;
+        for( int i = 0; i < balls; i++ ) {
+            final BallPhysics ball = mObjects[i];
+            if( ball.update() ) {
+                fallen++;
+                ball.resetToStartingPosition();
+                ball.randomizeVelocity();
+            }
+        }
+        return fallen;
+    }
+}
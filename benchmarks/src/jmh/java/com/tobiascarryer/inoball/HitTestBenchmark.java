@@ -0,0 +1,42 @@
+package com.tobiascarryer.inoball;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The check GamePanel.onTouchEvent() runs to decide whether a tap landed on the ball.
+ */
+
+@State(Scope.Thread)
+public class HitTestBenchmark {
+
+    private static final int TAPS = 1024;
+
+    private BallPhysics mBall;
+    private final int[] mTapX = new int[TAPS];
+    private final int[] mTapY = new int[TAPS];
+    private int mNext = 0;
+
+    @Setup
+    public void setUp() {
+        mBall = new BallPhysics(1080, 1920, 270, 60);
+        mBall.resetToStartingPosition();
+
+        //Taps spread over the screen so about a tenth of them hit
+        long seed = 42;
+        for( int i = 0; i < TAPS; i++ ) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            mTapX[i] = (int) ((seed >>> 33) % 1080);
+            mTapY[i] = (int) ((seed >>> 1) % 1920);
+        }
+    }
+
+    @Benchmark
+    public boolean contains() {
+        final int i = mNext;
+        mNext = (i + 1) & (TAPS - 1);
+        return mBall.contains(mTapX[i], mTapY[i]);
+    }
+}
@@ -0,0 +1,41 @@
+package com.tobiascarryer.inoball;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One tick and one frame of a full ParticleSystem: every particle is moved, then written out
+ * for drawPoints(). Bursts refill the pool as particles die so the work per operation stays
+ * at the capacity. The gc profiler should report no allocations.
+ */
+
+@State(Scope.Thread)
+public class ParticleSystemBenchmark {
+
+    private static final int WIDTH = 720;
+    private static final int HEIGHT = 1280;
+    private static final int FPS = 60;
+
+    @Param({"256", "2048", "8192"})
+    public int particles;
+
+    private ParticleSystem mSystem;
+    private float[] mPoints;
+
+    @Setup
+    public void setUp() {
+        mSystem = new ParticleSystem(WIDTH, HEIGHT, FPS, particles, new GameRandom(42));
+        mPoints = new float[particles * 2];
+        mSystem.burst(WIDTH/2, HEIGHT/2, particles, WIDTH/2, FPS * 2);
+    }
+
+    @Benchmark
+    public int tickAndFrame() {
+        mSystem.burst(WIDTH/2, HEIGHT/2, particles - mSystem.getCount(), WIDTH/2, FPS * 2);
+        mSystem.update();
+        return mSystem.writePoints(mPoints, 0.5);
+    }
+}
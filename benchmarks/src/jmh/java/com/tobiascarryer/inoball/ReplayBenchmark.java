@@ -0,0 +1,52 @@
+package com.tobiascarryer.inoball;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+/**
+ * Replays a recorded minute of a single ball game. It is a repeatable workload that runs
+ * the physics the way a real game does, taps and falls included, so divide the score by
+ * TICKS to get nanoseconds per tick.
+ */
+
+@State(Scope.Thread)
+public class ReplayBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int FPS = 60;
+    private static final int TICKS = 60 * FPS;
+
+    private Replayer mReplayer;
+
+    @Setup
+    public void setUp() throws IOException {
+        final GameRandom random = new GameRandom(42);
+        final GameRandom tapper = new GameRandom(7);
+        final Recorder recorder = new Recorder(random.getState(), WIDTH, HEIGHT, FPS, 1, WIDTH/4);
+        final BallPhysics ball = new BallPhysics(WIDTH, HEIGHT, WIDTH/4, FPS, random);
+        ball.resetToStartingPosition();
+
+        //Tap the ball about three times a second
+        for( int tick = 0; tick < TICKS; tick++ ) {
+            if( tapper.nextDouble() < 0.05 ) {
+                recorder.onTap((int) ball.getCenterX(), (int) ball.getCenterY(), 0);
+                ball.tap();
+            }
+            if( ball.update() ) {
+                ball.resetToStartingPosition();
+            }
+            recorder.onTick(ball.fingerprint());
+        }
+        mReplayer = new Replayer(recorder.toByteArray());
+    }
+
+    @Benchmark
+    public long replay() {
+        return mReplayer.run().fingerprint;
+    }
+}
@@ -0,0 +1,33 @@
+package com.tobiascarryer.inoball;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Formatting the score for the HUD, compared to the String.valueOf() it replaced.
+ */
+
+@State(Scope.Thread)
+public class ScoreTextBenchmark {
+
+    private final ScoreText mScoreText = new ScoreText();
+    private int mScore = 0;
+
+    @Benchmark
+    public int setValue() {
+        mScoreText.setValue(mScore++ & 0xFFFF);
+        return mScoreText.getLength();
+    }
+
+    @Benchmark
+    public int setUnchangedValue() {
+        mScoreText.setValue(1234);
+        return mScoreText.getLength();
+    }
+
+    @Benchmark
+    public String stringValueOf() {
+        return String.valueOf(mScore++ & 0xFFFF);
+    }
+}
@@ -0,0 +1,98 @@
+package com.tobiascarryer.inoball;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Rebuilding the spatial grid, a tap and the overlap search, next to the linear scan and the
+ * pairwise checks the grid replaces.
+ */
+
+@State(Scope.Thread)
+public class SpatialGridBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int RADIUS = 16;
+    private static final int TAPS = 1024;
+
+    @Param({"10", "100", "1000"})
+    public int balls;
+
+    private double[] mX, mY;
+    private SpatialGrid mGrid;
+    private final double[] mTapX = new double[TAPS];
+    private final double[] mTapY = new double[TAPS];
+    private int mNext = 0;
+
+    @Setup
+    public void setUp() {
+        final GameRandom random = new GameRandom(42);
+        mX = new double[balls];
+        mY = new double[balls];
+        for( int i = 0; i < balls; i++ ) {
+            mX[i] = random.nextDouble() * (WIDTH - 2 * RADIUS);
+            mY[i] = random.nextDouble() * (HEIGHT - 2 * RADIUS);
+        }
+        for( int i = 0; i < TAPS; i++ ) {
+            mTapX[i] = random.nextDouble() * WIDTH;
+            mTapY[i] = random.nextDouble() * HEIGHT;
+        }
+
+        mGrid = new SpatialGrid(WIDTH, HEIGHT, RADIUS, balls);
+        mGrid.rebuild(mX, mY, balls);
+    }
+
+    @Benchmark
+    public SpatialGrid rebuild() {
+        mGrid.rebuild(mX, mY, balls);
+        return mGrid;
+    }
+
+    @Benchmark
+    public int findAt() {
+        final int i = mNext;
+        mNext = (i + 1) & (TAPS - 1);
+        return mGrid.findAt(mTapX[i], mTapY[i]);
+    }
+
+    @Benchmark
+    public int findAtLinear() {
+        final int t = mNext;
+        mNext = (t + 1) & (TAPS - 1);
+        final double radiusSquared = RADIUS * RADIUS;
+        int found = -1;
+        for( int i = 0; i < balls; i++ ) {
+            final double a = mTapX[t] - (mX[i] + RADIUS);
+            final double b = mTapY[t] - (mY[i] + RADIUS);
+            if( a*a + b*b <= radiusSquared ) {
+                found = i;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int findOverlappingPairs() {
+        return mGrid.findOverlappingPairs();
+    }
+
+    @Benchmark
+    public int findOverlappingPairsPairwise() {
+        final double diameterSquared = 4 * RADIUS * RADIUS;
+        int pairs = 0;
+        for( int i = 0; i < balls; i++ ) {
+            for( int j = i + 1; j < balls; j++ ) {
+                final double a = mX[i] - mX[j];
+                final double b = mY[i] - mY[j];
+                if( a*a + b*b < diameterSquared ) {
+                    pairs++;
+                }
+            }
+        }
+        return pairs;
+    }
+}
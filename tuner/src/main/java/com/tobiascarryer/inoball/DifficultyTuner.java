@@ -0,0 +1,268 @@
+package com.tobiascarryer.inoball;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sweeps a grid of BallLimits.Tuning values and tapper skills, plays many single ball games at
+ * every point on all cores and prints the score distribution and how long the ball stayed up.
+ *
+ * Games are split between threads with fork/join. Every game is seeded from the seed and its own
+ * number, so a point's results are the same no matter how many cores play them or in what order.
+ * Every point plays the same seeds, so differences between points come from the numbers and not
+ * from luck.
+ */
+
+final class DifficultyTuner {
+    //The world every phone plays in, see Viewport
+    static final int WORLD_WIDTH = 720;
+    static final int WORLD_HEIGHT = 1280;
+    static final int RADIUS = WORLD_WIDTH / 4;
+    static final int FPS = 60;
+
+    //Games a thread plays before a task is split no further
+    private static final int GAMES_PER_TASK = 4096;
+    private static final int HISTOGRAM_WIDTH = 40;
+    //GameLoop is not compiled into the tuner
+    private static final long NANOSECONDS_PER_SECOND = 1000000000L;
+
+    /**
+     * A point on the grid.
+     */
+    static final class Point {
+        final BallLimits.Tuning tuning;
+        final double reactionSeconds;
+        final double spread;
+
+        Point(BallLimits.Tuning tuning, double reactionSeconds, double spread) {
+            this.tuning = tuning;
+            this.reactionSeconds = reactionSeconds;
+            this.spread = spread;
+        }
+
+        @Override
+        public String toString() {
+            return tuning + " | reaction=" + reactionSeconds + "s spread=" + spread;
+        }
+    }
+
+    /**
+     * Plays games from first inclusive to last exclusive, splitting them in half until few are left.
+     */
+    private static final class GamesTask extends RecursiveTask<TunerStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final Point mPoint;
+        private final long mSeed;
+        private final long mFirst, mLast;
+        private final int mMaxTicks;
+
+        GamesTask(Point point, long seed, long first, long last, int maxTicks) {
+            mPoint = point;
+            mSeed = seed;
+            mFirst = first;
+            mLast = last;
+            mMaxTicks = maxTicks;
+        }
+
+        @Override
+        protected TunerStats compute() {
+            if( mLast - mFirst > GAMES_PER_TASK ) {
+                final long middle = mFirst + (mLast - mFirst) / 2;
+                final GamesTask left = new GamesTask(mPoint, mSeed, mFirst, middle, mMaxTicks);
+                final GamesTask right = new GamesTask(mPoint, mSeed, middle, mLast, mMaxTicks);
+                left.fork();
+                final TunerStats stats = right.compute();
+                stats.merge(left.join());
+                return stats;
+            }
+
+            final TunerStats stats = new TunerStats(FPS, mMaxTicks);
+            final ScriptedTapper tapper = new ScriptedTapper(WORLD_WIDTH, WORLD_HEIGHT, RADIUS, FPS,
+                    mPoint.tuning, (int) Math.round(mPoint.reactionSeconds * FPS), mPoint.spread, mMaxTicks);
+            for( long game = mFirst; game < mLast; game++ ) {
+                final int score = tapper.play(gameSeed(mSeed, game));
+                stats.add(score, tapper.getLastTicks(), tapper.wasLastGameStopped());
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * @return The seed of a game, only depending on the run's seed and the game's number.
+     */
+    static long gameSeed(long seed, long game) {
+        return GameRandom.mix(GameRandom.mix(seed) + game);
+    }
+
+    /**
+     * Post: games games have been played at the point on the pool's threads.
+     * @param maxTicks The longest a game may last.
+     */
+    static TunerStats play(ForkJoinPool pool, Point point, long seed, long games, int maxTicks) {
+        return pool.invoke(new GamesTask(point, seed, 0, games, maxTicks));
+    }
+
+    /**
+     * @return Every combination of the values, the last ones changing fastest.
+     */
+    static List<Point> grid(double[] edge, double[] top, double[] minFactor, double[] fall, double[] gravity,
+                            double[] reaction, double[] spread) {
+        final List<Point> points = new ArrayList<Point>();
+        for( double e : edge ) {
+            for( double t : top ) {
+                for( double m : minFactor ) {
+                    for( double f : fall ) {
+                        for( double g : gravity ) {
+                            final BallLimits.Tuning tuning = new BallLimits.Tuning(e, t, m, f, g);
+                            for( double r : reaction ) {
+                                for( double s : spread ) {
+                                    points.add(new Point(tuning, r, s));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return points;
+    }
+
+    public static void main(String[] args) {
+        final BallLimits.Tuning defaults = BallLimits.Tuning.DEFAULT;
+        double[] edge = {defaults.secondsToReachEdge};
+        double[] top = {defaults.secondsToReachTop};
+        double[] minFactor = {defaults.minVelocityFactor};
+        double[] fall = {defaults.secondsToFall};
+        double[] gravity = {defaults.gravityGrowth};
+        double[] reaction = {0.25};
+        double[] spread = {0.5};
+        long games = 1000000;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double maxSeconds = 120;
+
+        try {
+            for( String arg : args ) {
+                if( arg.equals("--help") ) {
+                    printUsage();
+                    return;
+                }
+                final int equals = arg.indexOf('=');
+                if( !arg.startsWith("--") || equals < 0 ) {
+                    throw new IllegalArgumentException("Expected --name=value, got " + arg);
+                }
+                final String name = arg.substring(2, equals);
+                final String value = arg.substring(equals + 1);
+                if( name.equals("edge") ) {
+                    edge = parseList(value);
+                } else if( name.equals("top") ) {
+                    top = parseList(value);
+                } else if( name.equals("min") ) {
+                    minFactor = parseList(value);
+                } else if( name.equals("fall") ) {
+                    fall = parseList(value);
+                } else if( name.equals("gravity") ) {
+                    gravity = parseList(value);
+                } else if( name.equals("reaction") ) {
+                    reaction = parseList(value);
+                } else if( name.equals("spread") ) {
+                    spread = parseList(value);
+                } else if( name.equals("sessions") ) {
+                    games = Long.parseLong(value);
+                } else if( name.equals("seed") ) {
+                    seed = Long.parseLong(value);
+                } else if( name.equals("threads") ) {
+                    threads = Integer.parseInt(value);
+                } else if( name.equals("max-seconds") ) {
+                    maxSeconds = Double.parseDouble(value);
+                } else {
+                    throw new IllegalArgumentException("Unknown option --" + name);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(1);
+            return;
+        }
+
+        final int maxTicks = (int) (maxSeconds * FPS);
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        final List<Point> points = grid(edge, top, minFactor, fall, gravity, reaction, spread);
+        System.out.println(points.size() + " points, " + games + " sessions each, seed " + seed
+                + ", " + threads + " threads");
+        for( Point point : points ) {
+            final long start = System.nanoTime();
+            final TunerStats stats = play(pool, point, seed, games, maxTicks);
+            final double seconds = (System.nanoTime() - start) / (double) NANOSECONDS_PER_SECOND;
+            System.out.println();
+            System.out.println(point);
+            System.out.print(format(stats));
+            System.out.println(String.format(Locale.US, "  played in %.1fs", seconds));
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * @return The score percentiles, the mean time to fall and a histogram of it, one line each.
+     */
+    static String format(TunerStats stats) {
+        final StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.US, "  score mean %.2f  p10 %d  p50 %d  p90 %d  p99 %d  max %d%n",
+                stats.getMeanScore(), stats.getScorePercentile(10), stats.getScorePercentile(50),
+                stats.getScorePercentile(90), stats.getScorePercentile(99), stats.getMaxScore()));
+        out.append(String.format(Locale.US, "  mean game %.1fs, %.3f%% still going at the limit%n",
+                stats.getMeanTicks() / FPS, 100.0 * stats.getStoppedGames() / Math.max(1, stats.getGames())));
+
+        long most = 0;
+        int lastUsed = -1;
+        for( int i = 0; i < stats.getTimeToFallBucketCount(); i++ ) {
+            most = Math.max(most, stats.getTimeToFallCount(i));
+            if( stats.getTimeToFallCount(i) > 0 ) {
+                lastUsed = i;
+            }
+        }
+        out.append(String.format("  time to fall:%n"));
+        for( int i = 0; i <= lastUsed; i++ ) {
+            final long count = stats.getTimeToFallCount(i);
+            final int bar = (int) Math.round((double) count * HISTOGRAM_WIDTH / most);
+            final double seconds = (double) i * stats.getTicksPerBucket() / FPS;
+            out.append(String.format(Locale.US, "  %6.1fs %-" + HISTOGRAM_WIDTH + "s %6.2f%%%n", seconds,
+                    repeat('#', bar), 100.0 * count / stats.getGames()));
+        }
+        return out.toString();
+    }
+
+    private static String repeat(char c, int times) {
+        final char[] chars = new char[times];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static double[] parseList(String value) {
+        final String[] parts = value.split(",");
+        final double[] values = new double[parts.length];
+        for( int i = 0; i < parts.length; i++ ) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+
+    private static void printUsage() {
+        System.err.println("Options, lists are comma separated and every combination is played:");
+        System.err.println("  --edge=0.5      seconds the fastest jump takes to cross the world and back");
+        System.err.println("  --top=1.1       seconds the fastest jump takes to reach the top");
+        System.err.println("  --min=0.75      the slowest jump as a fraction of the fastest");
+        System.err.println("  --fall=2        least seconds a jump takes to stop rising");
+        System.err.println("  --gravity=1.07  how much faster the ball falls every tick");
+        System.err.println("  --reaction=0.25 seconds the tapper sees the ball late");
+        System.err.println("  --spread=0.5    how far taps land from where they aim, in ball radii");
+        System.err.println("  --sessions=1000000 --seed=1 --threads=<cores> --max-seconds=120");
+        System.err.println("  --help          print these options and play nothing");
+    }
+}
@@ -0,0 +1,121 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * Plays single ball games the way a person would, for the difficulty tuner. The tapper sees
+ * the ball reactionTicks late, and follows its motion: from the last three ticks it saw it
+ * works out the ball's velocity and acceleration, and extrapolates them to where the ball is
+ * now. It taps whenever that ball isn't rising, no more often than it can react. A tap lands
+ * a random distance of up to spread radii away from where it aimed, and scores if it lands on
+ * the ball as it is now.
+ *
+ * Taps are handled before the ball moves, the way GamePanel.update() handles them. A tapper
+ * is reused for every game a thread plays so a game doesn't allocate. Not thread safe.
+ */
+
+final class ScriptedTapper {
+    private final int mReactionTicks;
+    private final double mSpread;
+    private final int mMaxTicks;
+
+    private final GameRandom mBallRandom = new GameRandom(0);
+    private final GameRandom mAimRandom = new GameRandom(0);
+    private final BallPhysics mBall;
+
+    //Where the centre of the ball was over the last reactionTicks + 3 ticks
+    private final double[] mSeenX, mSeenY;
+
+    private int mLastTicks = 0;
+    private boolean mLastGameStopped = false;
+
+    /**
+     * @param tuning The numbers the ball plays by. Cannot be null.
+     * @param reactionTicks How many ticks late the tapper sees the ball.
+     * @param spread How far from where it aims a tap may land, in ball radii.
+     * @param maxTicks The longest a game may last, games still going are stopped there.
+     */
+    ScriptedTapper(int worldWidth, int worldHeight, int radius, int fps, BallLimits.Tuning tuning,
+                   int reactionTicks, double spread, int maxTicks) {
+        assert reactionTicks >= 0 && spread >= 0 && maxTicks > 0;
+
+        mReactionTicks = reactionTicks;
+        mSpread = spread;
+        mMaxTicks = maxTicks;
+        mBall = new BallPhysics(worldWidth, worldHeight, radius, fps, mBallRandom, tuning);
+        mSeenX = new double[reactionTicks + 3];
+        mSeenY = new double[reactionTicks + 3];
+    }
+
+    /**
+     * Post: One game was played from the starting position until the ball fell or maxTicks passed.
+     * @param seed Decides how the ball jumps and where the taps land. The same seed plays the same game.
+     * @return The score the game ended with.
+     */
+    final int play(long seed) {
+        mBallRandom.setSeed(seed);
+        mAimRandom.setSeed(GameRandom.mix(seed));
+        final BallPhysics ball = mBall;
+        ball.resetToStartingPosition();
+
+        final int historyLength = mSeenX.length;
+        for( int i = 0; i < historyLength; i++ ) {
+            mSeenX[i] = ball.getCenterX();
+            mSeenY[i] = ball.getCenterY();
+        }
+
+        final double radius = ball.getRadius();
+        //How far a ball moves in reactionTicks ticks for every unit of acceleration per tick
+        final double ticksAccelerating = mReactionTicks * (mReactionTicks + 1) / 2.0;
+        int score = 0;
+        int cooldown = 0;
+        int tick = 0;
+        boolean fell = false;
+        while( !fell && tick < mMaxTicks ) {
+            //The tapper sees the ball where it was reactionTicks ago, and the two ticks before that
+            final int first = (tick + 1) % historyLength;
+            final int before = (tick + 2) % historyLength;
+            final int seen = (tick + 3) % historyLength;
+            final double xVelocity = mSeenX[seen] - mSeenX[before];
+            final double yVelocity = mSeenY[seen] - mSeenY[before];
+            final double xAcceleration = xVelocity - (mSeenX[before] - mSeenX[first]);
+            final double yAcceleration = yVelocity - (mSeenY[before] - mSeenY[first]);
+            if( cooldown > 0 ) {
+                cooldown--;
+            } else if( yVelocity + yAcceleration * mReactionTicks >= 0 ) {
+                //Keep accelerating the ball the way it was seen to for the ticks since, so the lead grows as it speeds up
+                final double aimX = mSeenX[seen] + xVelocity * mReactionTicks + xAcceleration * ticksAccelerating;
+                final double aimY = mSeenY[seen] + yVelocity * mReactionTicks + yAcceleration * ticksAccelerating;
+                final double angle = mAimRandom.nextDouble() * 2 * Math.PI;
+                final double distance = mAimRandom.nextDouble() * mSpread * radius;
+                final int x = (int) (aimX + Math.cos(angle) * distance);
+                final int y = (int) (aimY + Math.sin(angle) * distance);
+                if( ball.contains(x, y) && ball.tap() ) {
+                    score++;
+                }
+                cooldown = mReactionTicks;
+            }
+
+            fell = ball.update();
+            tick++;
+            mSeenX[tick % historyLength] = ball.getCenterX();
+            mSeenY[tick % historyLength] = ball.getCenterY();
+        }
+
+        mLastTicks = tick;
+        mLastGameStopped = !fell;
+        return score;
+    }
+
+    /**
+     * @return How many ticks the last game lasted.
+     */
+    final int getLastTicks() {
+        return mLastTicks;
+    }
+
+    /**
+     * @return True if the last game was stopped at maxTicks with the ball still up.
+     */
+    final boolean wasLastGameStopped() {
+        return mLastGameStopped;
+    }
+}
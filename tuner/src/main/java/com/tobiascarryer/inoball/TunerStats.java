@@ -0,0 +1,143 @@
+package com.tobiascarryer.inoball;
+
+/**
+ * Scores and game lengths of many simulated games, kept as histograms so millions of games
+ * take kilobytes. A game scores at most a point a tick, so the score histogram has a bucket
+ * for every score a game of maxTicks can reach. Stats from different threads are merged by
+ * adding their counts, so the result is the same in whatever order they are merged.
+ */
+
+final class TunerStats {
+    private final int mTicksPerBucket;
+    private final long[] mScores;
+    private final long[] mTimesToFall;
+
+    private long mGames = 0;
+    private long mStoppedGames = 0;
+    private long mScoreSum = 0;
+    private long mTickSum = 0;
+    private int mMaxScore = 0;
+
+    /**
+     * @param ticksPerBucket How many ticks of game length each bucket of the time to fall histogram covers.
+     * @param maxTicks The longest a game can last.
+     */
+    TunerStats(int ticksPerBucket, int maxTicks) {
+        assert ticksPerBucket > 0 && maxTicks > 0;
+
+        mTicksPerBucket = ticksPerBucket;
+        mScores = new long[maxTicks + 1];
+        mTimesToFall = new long[(maxTicks + ticksPerBucket - 1) / ticksPerBucket];
+    }
+
+    /**
+     * Post: The game is counted. Games that were stopped before the ball fell count towards the
+     *       scores but not the time to fall.
+     */
+    final void add(int score, int ticks, boolean stopped) {
+        assert score >= 0 && score <= getHighestScore();
+
+        mGames++;
+        mScores[score]++;
+        mScoreSum += score;
+        mTickSum += ticks;
+        mMaxScore = Math.max(mMaxScore, score);
+        if( stopped ) {
+            mStoppedGames++;
+        } else {
+            mTimesToFall[Math.min(ticks / mTicksPerBucket, mTimesToFall.length - 1)]++;
+        }
+    }
+
+    /**
+     * Pre: other has the same buckets.
+     * Post: This holds the games of both.
+     */
+    final void merge(TunerStats other) {
+        assert other.mTicksPerBucket == mTicksPerBucket && other.mTimesToFall.length == mTimesToFall.length;
+        assert other.mScores.length == mScores.length;
+
+        for( int i = 0; i < mScores.length; i++ ) {
+            mScores[i] += other.mScores[i];
+        }
+        for( int i = 0; i < mTimesToFall.length; i++ ) {
+            mTimesToFall[i] += other.mTimesToFall[i];
+        }
+        mGames += other.mGames;
+        mStoppedGames += other.mStoppedGames;
+        mScoreSum += other.mScoreSum;
+        mTickSum += other.mTickSum;
+        mMaxScore = Math.max(mMaxScore, other.mMaxScore);
+    }
+
+    final long getGames() {
+        return mGames;
+    }
+
+    /**
+     * @return The number of games stopped at the longest a game may last with the ball still up.
+     */
+    final long getStoppedGames() {
+        return mStoppedGames;
+    }
+
+    final double getMeanScore() {
+        return mGames == 0 ? 0 : (double) mScoreSum / mGames;
+    }
+
+    /**
+     * @return The mean number of ticks a game lasted, stopped games included.
+     */
+    final double getMeanTicks() {
+        return mGames == 0 ? 0 : (double) mTickSum / mGames;
+    }
+
+    final int getMaxScore() {
+        return mMaxScore;
+    }
+
+    /**
+     * @return The highest score a game can reach, a point for every tick of the longest game.
+     */
+    final int getHighestScore() {
+        return mScores.length - 1;
+    }
+
+    /**
+     * @param percentile From 0 to 100.
+     * @return The lowest score that at least percentile percent of the games didn't beat.
+     */
+    final int getScorePercentile(double percentile) {
+        final double wanted = mGames * percentile / 100;
+        long counted = 0;
+        for( int score = 0; score < mScores.length; score++ ) {
+            counted += mScores[score];
+            if( counted >= wanted && counted > 0 ) {
+                return score;
+            }
+        }
+        return getHighestScore();
+    }
+
+    /**
+     * @return The number of games with the score, from 0 to getHighestScore().
+     */
+    final long getScoreCount(int score) {
+        return mScores[score];
+    }
+
+    final int getTimeToFallBucketCount() {
+        return mTimesToFall.length;
+    }
+
+    final int getTicksPerBucket() {
+        return mTicksPerBucket;
+    }
+
+    /**
+     * @return The number of games where the ball fell within the bucket's ticks.
+     */
+    final long getTimeToFallCount(int bucket) {
+        return mTimesToFall[bucket];
+    }
+}
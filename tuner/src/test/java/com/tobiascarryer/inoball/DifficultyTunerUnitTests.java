@@ -0,0 +1,117 @@
+package com.tobiascarryer.inoball;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class DifficultyTunerUnitTests {
+    private static final int MAX_TICKS = 60 * DifficultyTuner.FPS;
+
+    private static DifficultyTuner.Point point(double gravity, double reaction, double spread) {
+        final BallLimits.Tuning defaults = BallLimits.Tuning.DEFAULT;
+        return new DifficultyTuner.Point(new BallLimits.Tuning(defaults.secondsToReachEdge,
+                defaults.secondsToReachTop, defaults.minVelocityFactor, defaults.secondsToFall, gravity),
+                reaction, spread);
+    }
+
+    private static void assertSameStats(TunerStats expected, TunerStats actual) {
+        assertEquals(expected.getGames(), actual.getGames());
+        assertEquals(expected.getStoppedGames(), actual.getStoppedGames());
+        assertEquals(expected.getMeanScore(), actual.getMeanScore(), 0);
+        assertEquals(expected.getMeanTicks(), actual.getMeanTicks(), 0);
+        for( int score = 0; score <= expected.getHighestScore(); score++ ) {
+            assertEquals(expected.getScoreCount(score), actual.getScoreCount(score));
+        }
+        for( int i = 0; i < expected.getTimeToFallBucketCount(); i++ ) {
+            assertEquals(expected.getTimeToFallCount(i), actual.getTimeToFallCount(i));
+        }
+    }
+
+    @Test
+    public void resultsDoNotDependOnTheNumberOfThreads() {
+        final DifficultyTuner.Point point = point(BallLimits.GRAVITY_GROWTH, 0.25, 0.5);
+        final ForkJoinPool one = new ForkJoinPool(1);
+        final ForkJoinPool four = new ForkJoinPool(4);
+        final TunerStats alone = DifficultyTuner.play(one, point, 9, 20000, MAX_TICKS);
+        final TunerStats shared = DifficultyTuner.play(four, point, 9, 20000, MAX_TICKS);
+        one.shutdown();
+        four.shutdown();
+
+        assertEquals(20000, alone.getGames());
+        assertTrue(alone.getMeanScore() > 0);
+        assertSameStats(alone, shared);
+    }
+
+    @Test
+    public void theSameSeedPlaysTheSameGame() {
+        final ScriptedTapper tapper = new ScriptedTapper(DifficultyTuner.WORLD_WIDTH, DifficultyTuner.WORLD_HEIGHT,
+                DifficultyTuner.RADIUS, DifficultyTuner.FPS, BallLimits.Tuning.DEFAULT, 15, 0.5, MAX_TICKS);
+        final int score = tapper.play(DifficultyTuner.gameSeed(3, 7));
+        final int ticks = tapper.getLastTicks();
+        tapper.play(DifficultyTuner.gameSeed(3, 8));
+        assertEquals(score, tapper.play(DifficultyTuner.gameSeed(3, 7)));
+        assertEquals(ticks, tapper.getLastTicks());
+    }
+
+    @Test
+    public void aSlowerSloppierTapperScoresLess() {
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        final TunerStats sharp = DifficultyTuner.play(pool, point(BallLimits.GRAVITY_GROWTH, 0.15, 0.2), 1, 5000, MAX_TICKS);
+        final TunerStats sloppy = DifficultyTuner.play(pool, point(BallLimits.GRAVITY_GROWTH, 0.5, 1.5), 1, 5000, MAX_TICKS);
+        pool.shutdown();
+
+        assertTrue(sharp.getMeanScore() > sloppy.getMeanScore());
+    }
+
+    @Test
+    public void theDefaultTapperKeepsTheBallUp() {
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        final TunerStats stats = DifficultyTuner.play(pool, point(BallLimits.GRAVITY_GROWTH, 0.25, 0.5), 1, 5000, MAX_TICKS);
+        pool.shutdown();
+
+        //More than the first tap, which hits a ball that hasn't moved yet
+        assertTrue(stats.getMeanScore() > 2);
+        assertTrue(stats.getScorePercentile(90) > stats.getScorePercentile(10));
+    }
+
+    @Test
+    public void keepsScoresUpToAPointATick() {
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        final TunerStats stats = DifficultyTuner.play(pool, point(BallLimits.GRAVITY_GROWTH, 0, 0), 1, 10, MAX_TICKS);
+        pool.shutdown();
+
+        assertEquals(MAX_TICKS, stats.getHighestScore());
+        assertEquals(10, stats.getStoppedGames());
+        assertTrue(stats.getMaxScore() > 1000);
+        assertTrue(stats.getScoreCount(stats.getMaxScore()) > 0);
+    }
+
+    @Test
+    public void countsScoresAndTimesToFall() {
+        final TunerStats stats = new TunerStats(DifficultyTuner.FPS, MAX_TICKS);
+        stats.add(0, 30, false);
+        stats.add(3, 90, false);
+        stats.add(5, MAX_TICKS, true);
+        assertEquals(1, stats.getTimeToFallCount(0));
+        assertEquals(1, stats.getTimeToFallCount(1));
+        assertEquals(1, stats.getStoppedGames());
+        assertEquals(3, stats.getScorePercentile(50));
+        assertEquals(5, stats.getMaxScore());
+    }
+
+    @Test
+    public void sweepsEveryCombination() {
+        final List<DifficultyTuner.Point> points = DifficultyTuner.grid(new double[] {0.4, 0.5}, new double[] {1.1},
+                new double[] {0.75}, new double[] {2}, new double[] {1.05, 1.07, 1.09}, new double[] {0.2, 0.3},
+                new double[] {0.5});
+        assertEquals(12, points.size());
+        assertEquals(0.4, points.get(0).tuning.secondsToReachEdge, 0);
+        assertEquals(0.3, points.get(1).reactionSeconds, 0);
+        assertEquals(1.07, points.get(2).tuning.gravityGrowth, 0);
+        assertEquals(0.5, points.get(11).tuning.secondsToReachEdge, 0);
+    }
+}